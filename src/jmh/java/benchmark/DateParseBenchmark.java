@@ -0,0 +1,103 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark parsing the published date of the feed entries with the format used by the feed
+ * parser, created for each feed, compared with a reused format and java.time parsers.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateParseBenchmark {
+
+    /**
+     * PUBLISHED_FORMAT of the feed parser.
+     */
+    private static final String PUBLISHED_FORMAT = "yyyy-MM-dd'T'hh:mm:ss'+00:00'";
+
+    /**
+     * Published date as written in the feeds.
+     */
+    private final String published = "2020-10-17T18:45:12+00:00";
+
+    /**
+     * Format reused by the thread.
+     */
+    private final SimpleDateFormat reusedFormat = new SimpleDateFormat(PUBLISHED_FORMAT);
+
+    /**
+     * @return Time parsed by a format created for the call, as the feed parser does per feed
+     * @throws ParseException The date is invalid
+     */
+    @Benchmark
+    public long simpleDateFormatPerCall() throws ParseException {
+        return new SimpleDateFormat(PUBLISHED_FORMAT).parse(published).getTime();
+    }
+
+    /**
+     * @return Time parsed by a format reused by the thread
+     * @throws ParseException The date is invalid
+     */
+    @Benchmark
+    public long simpleDateFormatReused() throws ParseException {
+        return reusedFormat.parse(published).getTime();
+    }
+
+    /**
+     * @return Time parsed by the thread safe ISO offset date time parser
+     */
+    @Benchmark
+    public long offsetDateTime() {
+        return OffsetDateTime.parse(published).toInstant().toEpochMilli();
+    }
+
+    /**
+     * @return Time read from the fixed positions of the digits
+     */
+    @Benchmark
+    public long fixedPositions() {
+        String s = published;
+        LocalDateTime dateTime = LocalDateTime.of(digits(s, 0, 4), digits(s, 5, 7),
+                digits(s, 8, 10), digits(s, 11, 13), digits(s, 14, 16), digits(s, 17, 19));
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1000;
+    }
+
+    /**
+     * Read the decimal number written between the given positions.
+     *
+     * @param s     Text
+     * @param start Start position, inclusive
+     * @param end   End position, exclusive
+     * @return Number
+     */
+    private static int digits(final String s, final int start, final int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            value = value * 10 + s.charAt(i) - '0';
+        }
+        return value;
+    }
+}
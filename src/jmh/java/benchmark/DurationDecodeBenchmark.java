@@ -0,0 +1,138 @@
+package benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.Durations;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark decoding the duration from a YouTube API videos response with the Gson tree used
+ * by the duration lookup, compared with a shared Gson instance, JsonParser and a streaming
+ * reader.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DurationDecodeBenchmark {
+
+    /**
+     * Response of a videos request with the contentDetails part.
+     */
+    static final String RESPONSE = "{\n"
+            + "  \"kind\": \"youtube#videoListResponse\",\n"
+            + "  \"etag\": \"Y5S9Xr0c1Gh7Q8fVXh6mVw3pK2s\",\n"
+            + "  \"items\": [\n"
+            + "    {\n"
+            + "      \"kind\": \"youtube#video\",\n"
+            + "      \"etag\": \"kV4Z2f1o9dQy3bXwT0cJ8nH5m6E\",\n"
+            + "      \"id\": \"dQw4w9WgXcQ\",\n"
+            + "      \"contentDetails\": {\n"
+            + "        \"duration\": \"PT1H23M45S\",\n"
+            + "        \"dimension\": \"2d\",\n"
+            + "        \"definition\": \"hd\",\n"
+            + "        \"caption\": \"false\",\n"
+            + "        \"licensedContent\": true,\n"
+            + "        \"contentRating\": {},\n"
+            + "        \"projection\": \"rectangular\"\n"
+            + "      }\n"
+            + "    }\n"
+            + "  ],\n"
+            + "  \"pageInfo\": {\n"
+            + "    \"totalResults\": 1,\n"
+            + "    \"resultsPerPage\": 1\n"
+            + "  }\n"
+            + "}\n";
+
+    /**
+     * Gson instance shared by the calls.
+     */
+    private final Gson gson = new Gson();
+
+    /**
+     * @return Duration decoded by the duration lookup, creating a Gson instance for each call
+     */
+    @Benchmark
+    public long gsonPerCall() {
+        return Durations.parseApiResponse(RESPONSE);
+    }
+
+    /**
+     * @return Duration decoded by a shared Gson instance
+     */
+    @Benchmark
+    public long gsonShared() {
+        return duration(gson.fromJson(RESPONSE, JsonObject.class));
+    }
+
+    /**
+     * @return Duration decoded by JsonParser
+     */
+    @Benchmark
+    public long jsonParser() {
+        return duration(JsonParser.parseString(RESPONSE).getAsJsonObject());
+    }
+
+    /**
+     * @return Duration decoded by a streaming reader, stopping at the duration
+     * @throws IOException The response is not valid JSON
+     */
+    @Benchmark
+    public long streaming() throws IOException {
+        try (JsonReader reader = new JsonReader(new StringReader(RESPONSE))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!"items".equals(reader.nextName())) {
+                    reader.skipValue();
+                    continue;
+                }
+                reader.beginArray();
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (!"contentDetails".equals(reader.nextName())) {
+                        reader.skipValue();
+                        continue;
+                    }
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        if ("duration".equals(reader.nextName())) {
+                            return Duration.parse(reader.nextString()).toSeconds();
+                        }
+                        reader.skipValue();
+                    }
+                }
+            }
+        }
+        throw new IOException("No duration in the response");
+    }
+
+    /**
+     * @param response Decoded response
+     * @return Duration of the first item in seconds
+     */
+    private static long duration(final JsonObject response) {
+        return Duration.parse(response.getAsJsonArray("items").get(0).getAsJsonObject()
+                .getAsJsonObject("contentDetails").get("duration").getAsString()).toSeconds();
+    }
+}
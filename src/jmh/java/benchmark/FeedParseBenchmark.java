@@ -0,0 +1,251 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+import service.FeedEntry;
+import service.FeedParser;
+import tools.Feeds;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark decoding a channel feed with the DOM parser used by the refresh, compared with a
+ * StAX and a SAX parser producing the same entries.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeedParseBenchmark {
+
+    /**
+     * StAX factory, thread safe once configured.
+     */
+    private static final XMLInputFactory STAX_FACTORY = XMLInputFactory.newInstance();
+
+    /**
+     * SAX factory.
+     */
+    private static final SAXParserFactory SAX_FACTORY = SAXParserFactory.newInstance();
+
+    /**
+     * Number of entries in the feed: 15 for a polled feed, 1 for a pushed entry.
+     */
+    @Param({"15", "1"})
+    private int entryCount;
+
+    /**
+     * Feed body.
+     */
+    private byte[] body;
+
+    /**
+     * Generate the feed.
+     */
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        String channelYtId = "UC" + Feeds.ytId(random, 22);
+        body = Feeds.atom(channelYtId, "Benchmark channel", Feeds.entries(random, channelYtId,
+                entryCount, System.currentTimeMillis())).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return Entries decoded by the DOM parser used by the refresh
+     * @throws Exception The feed could not be decoded
+     */
+    @Benchmark
+    public List<FeedEntry> dom() throws Exception {
+        return FeedParser.parse(body);
+    }
+
+    /**
+     * @return Entries decoded by a StAX parser
+     * @throws Exception The feed could not be decoded
+     */
+    @Benchmark
+    public List<FeedEntry> stax() throws Exception {
+        List<FeedEntry> entries = new ArrayList<>();
+        XMLStreamReader reader = STAX_FACTORY.createXMLStreamReader(
+                new ByteArrayInputStream(body));
+        try {
+            EntryBuilder entry = null;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event != XMLStreamConstants.START_ELEMENT) {
+                    if (event == XMLStreamConstants.END_ELEMENT && entry != null
+                            && "entry".equals(reader.getLocalName())) {
+                        entries.add(entry.build());
+                        entry = null;
+                    }
+                    continue;
+                }
+                String name = reader.getLocalName();
+                if ("entry".equals(name)) {
+                    entry = new EntryBuilder();
+                } else if (entry != null) {
+                    switch (name) {
+                        case "videoId":
+                            entry.ytId = reader.getElementText();
+                            break;
+                        case "channelId":
+                            entry.channelYtId = reader.getElementText();
+                            break;
+                        case "title":
+                            if (entry.title == null) {
+                                entry.title = reader.getElementText();
+                            }
+                            break;
+                        case "link":
+                            entry.url = reader.getAttributeValue(null, "href");
+                            break;
+                        case "published":
+                            entry.published = reader.getElementText();
+                            break;
+                        case "thumbnail":
+                            entry.thumbnailUrl = reader.getAttributeValue(null, "url");
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return entries;
+    }
+
+    /**
+     * @return Entries decoded by a SAX parser
+     * @throws Exception The feed could not be decoded
+     */
+    @Benchmark
+    public List<FeedEntry> sax() throws Exception {
+        List<FeedEntry> entries = new ArrayList<>();
+        SAXParser parser = SAX_FACTORY.newSAXParser();
+        parser.parse(new ByteArrayInputStream(body), new DefaultHandler() {
+            private final StringBuilder text = new StringBuilder();
+            private EntryBuilder entry;
+
+            @Override
+            public void startElement(final String uri, final String localName,
+                                     final String qName, final Attributes attributes) {
+                text.setLength(0);
+                if ("entry".equals(qName)) {
+                    entry = new EntryBuilder();
+                } else if (entry != null && "link".equals(qName)) {
+                    entry.url = attributes.getValue("href");
+                } else if (entry != null && "media:thumbnail".equals(qName)) {
+                    entry.thumbnailUrl = attributes.getValue("url");
+                }
+            }
+
+            @Override
+            public void characters(final char[] ch, final int start, final int length) {
+                text.append(ch, start, length);
+            }
+
+            @Override
+            public void endElement(final String uri, final String localName,
+                                   final String qName) {
+                if (entry == null) {
+                    return;
+                }
+                switch (qName) {
+                    case "entry":
+                        entries.add(entry.build());
+                        entry = null;
+                        break;
+                    case "yt:videoId":
+                        entry.ytId = text.toString();
+                        break;
+                    case "yt:channelId":
+                        entry.channelYtId = text.toString();
+                        break;
+                    case "title":
+                        entry.title = text.toString();
+                        break;
+                    case "published":
+                        entry.published = text.toString();
+                        break;
+                    default:
+                        break;
+                }
+            }
+        });
+        return entries;
+    }
+
+    /**
+     * Fields of an entry being decoded.
+     */
+    private static final class EntryBuilder {
+
+        /**
+         * YT id of the video.
+         */
+        private String ytId;
+
+        /**
+         * YT id of the channel.
+         */
+        private String channelYtId;
+
+        /**
+         * Title.
+         */
+        private String title;
+
+        /**
+         * URL.
+         */
+        private String url;
+
+        /**
+         * Published date.
+         */
+        private String published;
+
+        /**
+         * Thumbnail URL.
+         */
+        private String thumbnailUrl;
+
+        /**
+         * @return Decoded entry
+         */
+        private FeedEntry build() {
+            return new FeedEntry(ytId, channelYtId, title, url,
+                    OffsetDateTime.parse(published).toInstant().toEpochMilli(), thumbnailUrl);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package benchmark;
+
+import model.Video;
+import org.ocpsoft.prettytime.PrettyTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark formatting the video information shown for each video of the video pane: the
+ * duration and the relative publication time.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormatBenchmark {
+
+    /**
+     * Video duration in seconds, below and above an hour.
+     */
+    @Param({"754", "5025"})
+    private long duration;
+
+    /**
+     * Video to format.
+     */
+    private Video video;
+
+    /**
+     * PrettyTime instance shared by the calls.
+     */
+    private PrettyTime prettyTime;
+
+    /**
+     * Publication date, three days ago.
+     */
+    private Date date;
+
+    /**
+     * Create the video.
+     */
+    @Setup
+    public void setUp() {
+        video = new Video();
+        video.setDuration(duration);
+        prettyTime = new PrettyTime();
+        date = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(3));
+    }
+
+    /**
+     * @return Duration formatted by the video, as shown in the video pane
+     */
+    @Benchmark
+    public String formatDuration() {
+        return video.getFormatDuration();
+    }
+
+    /**
+     * @return Duration formatted with a StringBuilder instead of String.format
+     */
+    @Benchmark
+    public String formatDurationBuilder() {
+        long d = duration;
+        StringBuilder builder = new StringBuilder(8);
+        if (d >= 3600) {
+            builder.append(d / 3600).append(':');
+            pad(builder, (d % 3600) / 60);
+        } else {
+            builder.append((d % 3600) / 60);
+        }
+        builder.append(':');
+        pad(builder, d % 60);
+        return builder.toString();
+    }
+
+    /**
+     * @return Relative time formatted by a PrettyTime instance created for the call, as the
+     * video pane does for each video
+     */
+    @Benchmark
+    public String prettyTimePerCall() {
+        return new PrettyTime().format(date);
+    }
+
+    /**
+     * @return Relative time formatted by a shared PrettyTime instance
+     */
+    @Benchmark
+    public String prettyTimeShared() {
+        return prettyTime.format(date);
+    }
+
+    /**
+     * Append a number on two digits.
+     *
+     * @param builder Builder to append to
+     * @param value   Number between 0 and 59
+     */
+    private static void pad(final StringBuilder builder, final long value) {
+        if (value < 10) {
+            builder.append('0');
+        }
+        builder.append(value);
+    }
+}
@@ -0,0 +1,206 @@
+package benchmark;
+
+import config.Config;
+import database.ObjectBox;
+import io.objectbox.Box;
+import model.Channel;
+import model.Video;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import tools.Feeds;
+import tools.LibraryGenerator;
+import utils.Channels;
+import utils.Videos;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark the database queries run by the video pane and the refresh against a temporary
+ * database filled with a synthetic library of the given size. The sample mode reports the latency
+ * percentiles, the GC profiler of the jmh task the allocation per operation.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class QueryBenchmark {
+
+    /**
+     * Number of YT ids checked by the existence benchmark.
+     */
+    private static final int YT_ID_COUNT = 1024;
+
+    /**
+     * Number of videos in the library.
+     */
+    @Param({"10000", "100000", "1000000"})
+    private int videoCount;
+
+    /**
+     * Number of channels in the library.
+     */
+    @Param({"100", "1000", "10000"})
+    private int channelCount;
+
+    /**
+     * Temporary user directory holding the database.
+     */
+    private Path directory;
+
+    /**
+     * Channels of the library.
+     */
+    private List<Channel> channels;
+
+    /**
+     * YT ids of the latest videos of each channel, as listed in their feed.
+     */
+    private List<List<String>> feeds;
+
+    /**
+     * YT ids to check, up to half of them existing.
+     */
+    private String[] ytIds;
+
+    /**
+     * Number of operations run, used to rotate the channels and YT ids.
+     */
+    private int operation;
+
+    /**
+     * Fill a temporary database with the library.
+     *
+     * @throws IOException The temporary directory could not be created
+     */
+    @Setup
+    public void setUp() throws IOException {
+        // The constant is inlined, so Config is not loaded before the property is set and the
+        // database is opened in the temporary directory. Each trial runs in its own fork.
+        directory = Files.createTempDirectory("ytsubscriber-benchmark");
+        System.setProperty(Config.USER_DIR_PROPERTY, directory.toString());
+
+        LibraryGenerator generator = new LibraryGenerator(42, channelCount, videoCount);
+        Box<Video> videoBox = ObjectBox.get().boxFor(Video.class);
+        List<Channel> created = generator.createChannels();
+        ObjectBox.get().boxFor(Channel.class).put(created);
+
+        feeds = new ArrayList<>(channelCount);
+        List<String> existing = new ArrayList<>();
+        for (int i = 0; i < channelCount; i++) {
+            List<Video> videos = generator.createVideos(i, created.get(i));
+            videoBox.put(videos);
+            List<String> feed = new ArrayList<>(Feeds.ENTRY_COUNT);
+            for (Video video : videos.subList(0, Math.min(Feeds.ENTRY_COUNT, videos.size()))) {
+                feed.add(video.getYtId());
+            }
+            feeds.add(feed);
+            if (existing.size() < YT_ID_COUNT / 2 && !videos.isEmpty()) {
+                existing.add(videos.get(videos.size() / 2).getYtId());
+            }
+        }
+        Random random = new Random(42);
+        ytIds = new String[YT_ID_COUNT];
+        for (int i = 0; i < YT_ID_COUNT; i++) {
+            ytIds[i] = i % 2 == 0 && i / 2 < existing.size() ? existing.get(i / 2)
+                    : Feeds.ytId(random, 11);
+        }
+
+        // Read the channels back so their videos are loaded from the database
+        channels = Channels.getAll();
+    }
+
+    /**
+     * Close the database and delete the temporary directory.
+     *
+     * @throws IOException The temporary directory could not be deleted
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        ObjectBox.get().close();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    /**
+     * @return Unwatched videos shown in the video pane
+     */
+    @Benchmark
+    public List<Video> getUnwatchedVideos() {
+        return Videos.getUnwatchedVideos();
+    }
+
+    /**
+     * @return Number of unwatched videos shown in the title
+     */
+    @Benchmark
+    public long countUnwatchedVideos() {
+        return Videos.countUnwatchedVideos();
+    }
+
+    /**
+     * @return Number of unwatched videos of a channel, as shown in the channel list
+     */
+    @Benchmark
+    public long countChannelUnwatchedVideos() {
+        return Channels.countUnwatchedVideos(channels.get(next(channels.size())).getId());
+    }
+
+    /**
+     * @return Whether a video exists, as checked for each feed entry during a refresh
+     */
+    @Benchmark
+    public boolean exists() {
+        return Videos.exists(ytIds[next(ytIds.length)]);
+    }
+
+    /**
+     * Clean a channel after its feed has been read. The first clean of a channel deletes its
+     * watched videos that are not in the feed anymore, the following ones measure the scan
+     * of a refresh where nothing has to be deleted.
+     *
+     * @throws IOException An error occurred while deleting a thumbnail
+     */
+    @Benchmark
+    public void clean() throws IOException {
+        int index = next(channels.size());
+        Channel channel = channels.get(index);
+        // Reload the videos from the database, as a refresh reading the channels does
+        channel.getVideos().reset();
+        Channels.clean(channel, feeds.get(index));
+    }
+
+    /**
+     * @param bound Number of elements
+     * @return Index of the next element to use
+     */
+    private int next(final int bound) {
+        operation++;
+        return operation % bound;
+    }
+}
@@ -1,6 +1,7 @@
 package config;
 
 import utils.Channels;
+import utils.Logger;
 import utils.Videos;
 import view.Theme;
 
@@ -10,28 +11,46 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.Properties;
 
 /**
  * Class defining the application configuration.
  *
  * @author Alkisum
- * @version 4.1
+ * @version 4.6
  * @since 1.0
  */
 public final class Config {
 
+    /**
+     * System property overriding the user directory, e.g. to run the benchmarks against a
+     * temporary database.
+     */
+    public static final String USER_DIR_PROPERTY = "ytsubscriber.dir";
+
     /**
      * User directory.
      */
-    public static final String USER_DIR = System.getProperty("user.home")
-            + File.separator + ".YTSubscriber" + File.separator;
+    public static final String USER_DIR = System.getProperty(USER_DIR_PROPERTY,
+            System.getProperty("user.home") + File.separator + ".YTSubscriber")
+            + File.separator;
 
     /**
      * Properties file name.
      */
     private static final String CONFIG_FILE_PATH = USER_DIR + "config.properties";
 
+    /**
+     * Lock held while the configuration file is read or written, as each change loads and
+     * rewrites the whole file and the refreshes, the migrations and the servers change it from
+     * their own threads.
+     */
+    private static final Object LOCK = new Object();
+
     /**
      * Key for video URL in properties file.
      */
@@ -90,7 +109,7 @@ public final class Config {
     /**
      * Default value for schema version in properties file.
      */
-    public static final String PROP_SCHEMA_VERSION_VALUE = "5";
+    public static final String PROP_SCHEMA_VERSION_VALUE = "6";
 
     /**
      * Key for API key in properties file.
@@ -102,6 +121,146 @@ public final class Config {
      */
     public static final String PROP_MEDIA_PLAYER = "mediaPlayer";
 
+    /**
+     * Key for the maximum number of requests per second sent to a single host.
+     */
+    public static final String PROP_REQUESTS_PER_SECOND_KEY = "requestsPerSecond";
+
+    /**
+     * Key for the number of times a failed request is retried.
+     */
+    public static final String PROP_MAX_RETRIES_KEY = "maxRetries";
+
+    /**
+     * Key for the number of consecutive failures after which a channel is quarantined.
+     */
+    public static final String PROP_QUARANTINE_THRESHOLD_KEY = "quarantineThreshold";
+
+    /**
+     * Key for the number of hours between two probes of a quarantined channel.
+     */
+    public static final String PROP_QUARANTINE_PROBE_HOURS_KEY = "quarantineProbeHours";
+
+    /**
+     * Key for the identifiers of the channels left to read by a cancelled refresh.
+     */
+    public static final String PROP_REFRESH_CHECKPOINT_KEY = "refreshCheckpoint";
+
+    /**
+     * Key for the start time of the last backup, the next delta backup holding the changes
+     * since then.
+     */
+    public static final String PROP_BACKUP_CHECKPOINT_KEY = "backupCheckpoint";
+
+    /**
+     * Key for the schema version and the checkpoint of the last chunk committed by an
+     * interrupted migration.
+     */
+    public static final String PROP_MIGRATION_CHECKPOINT_KEY = "migrationCheckpoint";
+
+    /**
+     * Key for the port of the local HTTP API, the API is disabled if not set.
+     */
+    public static final String PROP_API_PORT_KEY = "apiPort";
+
+    /**
+     * Key for the token the requests to the local HTTP API must carry, no token is required if
+     * not set.
+     */
+    public static final String PROP_API_TOKEN_KEY = "apiToken";
+
+    /**
+     * Key for the public URL the WebSub hub sends the notifications to, WebSub is disabled if
+     * not set.
+     */
+    public static final String PROP_WEBSUB_CALLBACK_URL_KEY = "webSubCallbackUrl";
+
+    /**
+     * Key for the local port receiving the WebSub notifications.
+     */
+    public static final String PROP_WEBSUB_PORT_KEY = "webSubPort";
+
+    /**
+     * Key for the URL of the WebSub hub.
+     */
+    public static final String PROP_WEBSUB_HUB_KEY = "webSubHub";
+
+    /**
+     * Default URL of the WebSub hub.
+     */
+    public static final String PROP_WEBSUB_HUB_VALUE = "https://pubsubhubbub.appspot.com/subscribe";
+
+    /**
+     * Key for the base URL of the WebSub topics, followed by the channel YT id.
+     */
+    public static final String PROP_WEBSUB_TOPIC_KEY = "webSubTopicUrl";
+
+    /**
+     * Default base URL of the WebSub topics.
+     */
+    public static final String PROP_WEBSUB_TOPIC_VALUE =
+            "https://www.youtube.com/xml/feeds/videos.xml?channel_id=";
+
+    /**
+     * Key for the secret shared with the WebSub hub to sign the notifications.
+     */
+    public static final String PROP_WEBSUB_SECRET_KEY = "webSubSecret";
+
+    /**
+     * Key for the number of minutes between two metrics summaries written to the log.
+     */
+    public static final String PROP_METRICS_LOG_MINUTES_KEY = "metricsLogMinutes";
+
+    /**
+     * Key for the port of the OpenMetrics endpoint.
+     */
+    public static final String PROP_METRICS_PORT_KEY = "metricsPort";
+
+    /**
+     * Key for the address the OpenMetrics endpoint listens on.
+     */
+    public static final String PROP_METRICS_ADDRESS_KEY = "metricsAddress";
+
+    /**
+     * Key for the refresh time budget in seconds, above which the continuous flight recording
+     * is dumped. The recording is disabled if not set.
+     */
+    public static final String PROP_JFR_REFRESH_BUDGET_KEY = "jfrRefreshBudgetSeconds";
+
+    /**
+     * Key for the number of channel feeds read in parallel by a refresh.
+     */
+    public static final String PROP_REFRESH_THREADS_KEY = "refreshThreads";
+
+    /**
+     * Key for the YouTube Data API URL.
+     */
+    public static final String PROP_API_URL_KEY = "apiUrl";
+
+    /**
+     * Key for the number of days after which a watched video is deleted, the watched videos are
+     * kept if not set.
+     */
+    public static final String PROP_RETENTION_WATCHED_DAYS_KEY = "retentionWatchedDays";
+
+    /**
+     * Key for the maximum number of watched videos kept per channel, there is no limit if not
+     * set.
+     */
+    public static final String PROP_RETENTION_WATCHED_PER_CHANNEL_KEY =
+            "retentionWatchedPerChannel";
+
+    /**
+     * Key for the number of hours between two applications of the retention rules.
+     */
+    public static final String PROP_RETENTION_INTERVAL_HOURS_KEY = "retentionIntervalHours";
+
+    /**
+     * Key for the number of hours between two collections of the orphan thumbnails, 0 disables
+     * the collection.
+     */
+    public static final String PROP_THUMBNAIL_GC_HOURS_KEY = "thumbnailGcHours";
+
     /**
      * Config constructor.
      */
@@ -115,17 +274,19 @@ public final class Config {
      * @throws IOException An exception occurred while reading or writing the file
      */
     public static void setDefaultValues() throws IOException {
-        if (getValue(PROP_VIDEO_URL_KEY) == null) {
-            setValue(PROP_VIDEO_URL_KEY, PROP_VIDEO_URL_VALUE);
-        }
-        if (getValue(PROP_CHANNEL_URL_KEY) == null) {
-            setValue(PROP_CHANNEL_URL_KEY, PROP_CHANNEL_URL_VALUE);
-        }
-        if (getValue(PROP_THEME_KEY) == null) {
-            setValue(PROP_THEME_KEY, PROP_THEME_VALUE);
-        }
-        if (getValue(PROP_SCHEMA_VERSION_KEY) == null) {
-            setValue(PROP_SCHEMA_VERSION_KEY, PROP_SCHEMA_VERSION_VALUE);
+        synchronized (LOCK) {
+            if (getValue(PROP_VIDEO_URL_KEY) == null) {
+                setValue(PROP_VIDEO_URL_KEY, PROP_VIDEO_URL_VALUE);
+            }
+            if (getValue(PROP_CHANNEL_URL_KEY) == null) {
+                setValue(PROP_CHANNEL_URL_KEY, PROP_CHANNEL_URL_VALUE);
+            }
+            if (getValue(PROP_THEME_KEY) == null) {
+                setValue(PROP_THEME_KEY, PROP_THEME_VALUE);
+            }
+            if (getValue(PROP_SCHEMA_VERSION_KEY) == null) {
+                setValue(PROP_SCHEMA_VERSION_KEY, PROP_SCHEMA_VERSION_VALUE);
+            }
         }
     }
 
@@ -148,20 +309,39 @@ public final class Config {
     private static boolean createFile() throws IOException {
         File configFile = new File(CONFIG_FILE_PATH);
         if (configFile.getParentFile().exists() || configFile.getParentFile().mkdirs()) {
-            if (configFile.createNewFile()) {
+            if (!configFile.exists()) {
                 Properties prop = new Properties();
-                try (OutputStream output = new FileOutputStream(CONFIG_FILE_PATH)) {
-                    prop.setProperty(PROP_VIDEO_URL_KEY, PROP_VIDEO_URL_VALUE);
-                    prop.setProperty(PROP_CHANNEL_URL_KEY, PROP_CHANNEL_URL_VALUE);
-                    prop.setProperty(PROP_THEME_KEY, PROP_THEME_VALUE);
-                    prop.store(output, null);
-                    return true;
-                }
+                prop.setProperty(PROP_VIDEO_URL_KEY, PROP_VIDEO_URL_VALUE);
+                prop.setProperty(PROP_CHANNEL_URL_KEY, PROP_CHANNEL_URL_VALUE);
+                prop.setProperty(PROP_THEME_KEY, PROP_THEME_VALUE);
+                store(prop);
+                return true;
             }
         }
         return false;
     }
 
+    /**
+     * Write the properties to a temporary file next to the configuration file, then move it over
+     * the configuration file, so the file is never read half written, even by another process.
+     *
+     * @param prop Properties to write
+     * @throws IOException An exception occurred while writing or moving the file
+     */
+    private static void store(final Properties prop) throws IOException {
+        Path configPath = Paths.get(CONFIG_FILE_PATH);
+        Path tempPath = Files.createTempFile(configPath.getParent(), "config", ".tmp");
+        try {
+            try (OutputStream output = new FileOutputStream(tempPath.toFile())) {
+                prop.store(output, null);
+            }
+            Files.move(tempPath, configPath, StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempPath);
+        }
+    }
+
     /**
      * Get the value for the given key.
      *
@@ -170,14 +350,35 @@ public final class Config {
      * @throws IOException An exception occurred while getting the value
      */
     public static String getValue(final String key) throws IOException {
-        if (configFileExists() || createFile()) {
-            Properties prop = new Properties();
-            try (InputStream input = new FileInputStream(CONFIG_FILE_PATH)) {
-                prop.load(input);
-                return prop.getProperty(key);
+        synchronized (LOCK) {
+            if (configFileExists() || createFile()) {
+                Properties prop = new Properties();
+                try (InputStream input = new FileInputStream(CONFIG_FILE_PATH)) {
+                    prop.load(input);
+                    return prop.getProperty(key);
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Get the integer value for the given key.
+     *
+     * @param key          Key
+     * @param defaultValue Value returned when the key is not set or cannot be read
+     * @return Value
+     */
+    public static int getIntValue(final String key, final int defaultValue) {
+        try {
+            String value = getValue(key);
+            if (value != null && !value.isBlank()) {
+                return Integer.parseInt(value.trim());
             }
+        } catch (IOException | NumberFormatException e) {
+            Logger.get(Config.class).error(e);
         }
-        return null;
+        return defaultValue;
     }
 
     /**
@@ -188,14 +389,34 @@ public final class Config {
      * @throws IOException An exception occurred while setting the value
      */
     public static void setValue(final String key, final String value) throws IOException {
-        if (configFileExists() || createFile()) {
-            Properties prop = new Properties();
-            try (InputStream input = new FileInputStream(CONFIG_FILE_PATH)) {
-                prop.load(input);
-            }
-            try (OutputStream output = new FileOutputStream(CONFIG_FILE_PATH)) {
+        synchronized (LOCK) {
+            if (configFileExists() || createFile()) {
+                Properties prop = new Properties();
+                try (InputStream input = new FileInputStream(CONFIG_FILE_PATH)) {
+                    prop.load(input);
+                }
                 prop.put(key, value);
-                prop.store(output, null);
+                store(prop);
+            }
+        }
+    }
+
+    /**
+     * Remove the given key.
+     *
+     * @param key Key
+     * @throws IOException An exception occurred while removing the key
+     */
+    public static void removeValue(final String key) throws IOException {
+        synchronized (LOCK) {
+            if (configFileExists()) {
+                Properties prop = new Properties();
+                try (InputStream input = new FileInputStream(CONFIG_FILE_PATH)) {
+                    prop.load(input);
+                }
+                if (prop.remove(key) != null) {
+                    store(prop);
+                }
             }
         }
     }
@@ -14,6 +14,7 @@ import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import model.Channel;
 import task.OpmlReader;
+import task.OpmlWriter;
 import utils.Channels;
 import utils.ExceptionHandler;
 import view.Icon;
@@ -33,7 +34,7 @@ import java.util.ResourceBundle;
  * Controller for channel window.
  *
  * @author Alkisum
- * @version 4.1
+ * @version 4.6
  * @since 1.0
  */
 public class ChannelController implements Initializable {
@@ -145,6 +146,18 @@ public class ChannelController implements Initializable {
         showChannel(false);
     }
 
+    /**
+     * Select the quarantined channels, so they can be deleted.
+     */
+    @FXML
+    public final void onSelectQuarantinedClicked() {
+        for (Channel channel : channelList) {
+            channel.setChecked(Channels.isQuarantined(channel));
+        }
+        checkBoxAll.setSelected(false);
+        showChannel(false);
+    }
+
     /**
      * Called when the Import button is clicked.
      */
@@ -166,7 +179,8 @@ public class ChannelController implements Initializable {
         opmlReader.setOnSucceeded(t -> {
             progressMessage.textProperty().unbind();
             progressBar.progressProperty().unbind();
-            progressMessage.setText("");
+            // Keep the summary of the import shown
+            progressMessage.setText(opmlReader.getValue());
             progressBar.setProgress(0);
             progressBar.setVisible(false);
             showChannel(true);
@@ -186,6 +200,49 @@ public class ChannelController implements Initializable {
         });
     }
 
+    /**
+     * Called when the Export button is clicked.
+     */
+    @FXML
+    public final void onExportClicked() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Save OPML File");
+        fileChooser.setInitialFileName("subscriptions.opml");
+        fileChooser.getExtensionFilters().add(
+                new FileChooser.ExtensionFilter("OPML files", "*.opml", "*.xml"));
+        File selectedFile = fileChooser.showSaveDialog(stage);
+
+        if (selectedFile == null) {
+            return;
+        }
+        OpmlWriter opmlWriter = new OpmlWriter(selectedFile);
+        progressMessage.textProperty().bind(opmlWriter.messageProperty());
+        progressBar.progressProperty().bind(opmlWriter.progressProperty());
+        progressBar.setVisible(true);
+
+        new Thread(opmlWriter).start();
+        opmlWriter.setOnSucceeded(t -> {
+            progressMessage.textProperty().unbind();
+            progressBar.progressProperty().unbind();
+            progressMessage.setText("");
+            progressBar.setProgress(0);
+            progressBar.setVisible(false);
+        });
+
+        opmlWriter.setOnFailed(t -> {
+            try {
+                progressMessage.textProperty().unbind();
+                progressBar.progressProperty().unbind();
+                progressMessage.setText("");
+                progressBar.setProgress(0);
+                progressBar.setVisible(false);
+                throw opmlWriter.getException();
+            } catch (Throwable throwable) {
+                ExceptionHandler.handle(ChannelController.class, throwable);
+            }
+        });
+    }
+
     /**
      * Triggered when the user clicks on the add channel button.
      *
@@ -22,14 +22,19 @@ import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import jfr.UiApplyEvent;
 import kotlin.collections.ArrayDeque;
 import model.Channel;
 import model.Video;
+import server.WebSubSubscriber;
+import service.LibraryExporter;
+import service.RetentionPolicy;
 import task.DurationFetcher;
 import task.JsonExporter;
 import task.JsonImporter;
 import task.RssReader;
 import task.VideoDeleter;
+import utils.BackupWriter;
 import utils.Channels;
 import utils.ExceptionHandler;
 import utils.Videos;
@@ -43,16 +48,19 @@ import view.pane.VideoPane;
 import java.io.File;
 import java.io.IOException;
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 /**
  * Controller for video window.
  *
  * @author Alkisum
- * @version 4.1
+ * @version 4.6
  * @since 1.0
  */
-public class VideoController implements MigrationHelper.Listener {
+public class VideoController implements MigrationHelper.Listener, RssReader.Listener,
+        WebSubSubscriber.Listener, RetentionPolicy.Listener {
 
     /**
      * Frame width.
@@ -69,6 +77,11 @@ public class VideoController implements MigrationHelper.Listener {
      */
     private static final int UNWATCHED_VIDEOS_ID = -1;
 
+    /**
+     * Time in milliseconds to wait for the refresh to stop when the application is closed.
+     */
+    private static final long STOP_REFRESH_TIMEOUT = 10000;
+
     /**
      * Application instance.
      */
@@ -90,6 +103,26 @@ public class VideoController implements MigrationHelper.Listener {
      */
     private long postRefreshId;
 
+    /**
+     * Pane showing the videos in Video's scroll pane.
+     */
+    private VideoPane videoPane;
+
+    /**
+     * Number of unwatched videos in subscribed channels.
+     */
+    private long unwatchedCount;
+
+    /**
+     * Refresh running, null if there is none.
+     */
+    private RssReader rssReader;
+
+    /**
+     * Thread running the refresh, null if there is none.
+     */
+    private Thread rssReaderThread;
+
     /**
      * RadioMenuItem for classic theme.
      */
@@ -249,51 +282,182 @@ public class VideoController implements MigrationHelper.Listener {
     }
 
     /**
-     * Triggered when Refresh Button is clicked.
+     * Triggered when Refresh Button is clicked, start a refresh or cancel the one running.
      */
     @FXML
     public final void onRefreshClicked() {
-        RssReader rssReader = new RssReader(Channels.getAllOrderByName());
+        if (rssReader != null) {
+            // Keep the button disabled until the refresh has committed and saved its checkpoint
+            buttonRefresh.setDisable(true);
+            rssReader.cancel();
+            return;
+        }
 
-        buttonRefresh.setDisable(true);
+        RssReader reader = new RssReader(Channels.getAllOrderByName(), this);
+        rssReader = reader;
 
-        progressMessage.textProperty().bind(rssReader.messageProperty());
-        progressBar.progressProperty().bind(rssReader.progressProperty());
-        progressBar.setVisible(true);
+        buttonRefresh.setText("Cancel");
+        buttonRefresh.getTooltip().setText("Cancel the refresh");
 
-        new Thread(rssReader).start();
+        progressMessage.textProperty().bind(reader.messageProperty());
+        progressBar.progressProperty().bind(reader.progressProperty());
+        progressBar.setVisible(true);
 
-        final RssReader finalRssReaderOnSuccess = rssReader;
-        rssReader.setOnSucceeded(t -> {
+        reader.setOnSucceeded(t -> {
             resetProgressComponents();
 
+            // New videos have already been merged into the view while refreshing, only the
+            // videos deleted when cleaning the channels might still be shown
             refreshChannelList();
-            refreshVideoList();
+            if (postRefreshId != UNWATCHED_VIDEOS_ID) {
+                refreshVideoList();
+            }
 
-            List<Channel> notFoundChannels = finalRssReaderOnSuccess.getNotFoundChannels();
-            if (!notFoundChannels.isEmpty()) {
-                StringBuilder message = new StringBuilder();
-                for (Channel channel : notFoundChannels) {
-                    message.append(channel.getName()).append("\n");
-                }
-                ErrorDialog.show("Not found channels", message.toString());
+            showChannelErrors("Not found channels", reader.getNotFoundChannels());
+            showChannelErrors("Unreachable channels", reader.getFailedChannels());
+
+            // Errors occurred when reading durations
+            if (reader.hasDurationError()) {
+                ErrorDialog.show("Duration error",
+                        "An error occurred while reading the duration from videos.");
             }
+        });
 
-            buttonRefresh.setDisable(false);
+        reader.setOnCancelled(t -> {
+            resetProgressComponents();
+            refreshChannelList();
+            if (postRefreshId != UNWATCHED_VIDEOS_ID) {
+                refreshVideoList();
+            }
         });
 
-        rssReader.setOnFailed(t -> {
+        reader.setOnFailed(t -> {
             resetProgressComponents();
             try {
-                throw rssReader.getException();
+                throw reader.getException();
             } catch (Throwable throwable) {
                 ExceptionHandler.handle(VideoController.class, throwable);
             }
+        });
+
+        // The task keeps running after being cancelled until it has saved its checkpoint, only
+        // allow a new refresh once its thread is done
+        rssReaderThread = new Thread(() -> {
+            reader.run();
+            Platform.runLater(this::onRefreshEnded);
+        });
+        rssReaderThread.start();
+    }
+
+    /**
+     * Called when the refresh thread is done, whether the refresh succeeded, failed or has been
+     * cancelled.
+     */
+    private void onRefreshEnded() {
+        rssReader = null;
+        rssReaderThread = null;
+        buttonRefresh.setText("");
+        buttonRefresh.getTooltip().setText("Check for new videos available");
+        buttonRefresh.setDisable(false);
+    }
+
+    /**
+     * Cancel the running refresh, if any, and wait for it to commit what has been fetched.
+     * Called when the application is closed.
+     */
+    public final void stopRefresh() {
+        Thread thread = rssReaderThread;
+        if (rssReader == null || thread == null) {
+            return;
+        }
+        rssReader.cancel();
+        try {
+            thread.join(STOP_REFRESH_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public final void onChannelRefreshed(final Channel channel, final List<Video> newVideos) {
+        if (newVideos.isEmpty()) {
+            return;
+        }
+        List<Video> sortedVideos = new ArrayList<>(newVideos);
+        sortedVideos.sort(Comparator.comparingLong(Video::getTime).reversed());
+        Platform.runLater(() -> {
+            UiApplyEvent event = new UiApplyEvent(channel.getYtId());
+            event.begin();
+            mergeVideos(channel, sortedVideos);
+            event.setVideoCount(sortedVideos.size());
+            event.commit();
+        });
+    }
 
-            buttonRefresh.setDisable(false);
+    @Override
+    public final void onVideosPushed(final Channel channel, final List<Video> newVideos) {
+        onChannelRefreshed(channel, newVideos);
+    }
+
+    @Override
+    public final void onVideosDeleted(final long deletedCount, final long freedBytes) {
+        // Only watched videos are deleted, the unwatched videos are not affected
+        Platform.runLater(() -> {
+            if (videoPane != null && postRefreshId != UNWATCHED_VIDEOS_ID) {
+                refreshVideoList();
+            }
         });
     }
 
+    /**
+     * Merge the new videos of the given channel into the current view and update the counters.
+     *
+     * @param channel   Refreshed channel
+     * @param newVideos New videos of the channel, order by time (desc)
+     */
+    private void mergeVideos(final Channel channel, final List<Video> newVideos) {
+        if (channel.isSubscribed()) {
+            unwatchedCount += newVideos.size();
+            updateSubscriptionsButton();
+        }
+        listViewChannel.refresh();
+
+        boolean shown;
+        if (postRefreshId == UNWATCHED_VIDEOS_ID) {
+            shown = channel.isSubscribed();
+        } else {
+            shown = postRefreshId == channel.getId();
+        }
+        if (!shown || videoPane == null) {
+            return;
+        }
+        // New videos go after the videos with a start time, like in the queries
+        int index = 0;
+        while (index < videosShown.size() && videosShown.get(index).getStartTime() != null
+                && !videosShown.get(index).getStartTime().isEmpty()) {
+            index++;
+        }
+        videosShown.addAll(index, newVideos);
+        videoPane.insertVideos(index, newVideos);
+    }
+
+    /**
+     * Show an error dialog listing the given channels, if any.
+     *
+     * @param title    Dialog title
+     * @param channels Channels to list
+     */
+    private static void showChannelErrors(final String title, final List<Channel> channels) {
+        if (channels.isEmpty()) {
+            return;
+        }
+        StringBuilder message = new StringBuilder();
+        for (Channel channel : channels) {
+            message.append(channel.getName()).append("\n");
+        }
+        ErrorDialog.show(title, message.toString());
+    }
+
     /**
      * Triggered when the watch all menu item is clicked.
      */
@@ -438,7 +602,15 @@ public class VideoController implements MigrationHelper.Listener {
         ObservableList<Channel> items = FXCollections.observableArrayList();
         items.addAll(Channels.getAllOrderByName());
         listViewChannel.setItems(items);
-        buttonSubscriptions.setText("Subscriptions (" + Videos.countUnwatchedVideos() + ")");
+        unwatchedCount = Videos.countUnwatchedVideos();
+        updateSubscriptionsButton();
+    }
+
+    /**
+     * Show the number of unwatched videos in the subscriptions button.
+     */
+    private void updateSubscriptionsButton() {
+        buttonSubscriptions.setText("Subscriptions (" + unwatchedCount + ")");
     }
 
     /**
@@ -450,7 +622,8 @@ public class VideoController implements MigrationHelper.Listener {
         } else {
             videosShown = Videos.getByChannelId(postRefreshId);
         }
-        scrollPaneVideo.setContent(new VideoPane(videosShown, this, progressMessage, progressBar));
+        videoPane = new VideoPane(videosShown, this, progressMessage, progressBar);
+        scrollPaneVideo.setContent(videoPane);
     }
 
     /**
@@ -510,6 +683,7 @@ public class VideoController implements MigrationHelper.Listener {
      */
     @FXML
     public final void onExitClicked() {
+        stopRefresh();
         Platform.exit();
     }
 
@@ -561,8 +735,17 @@ public class VideoController implements MigrationHelper.Listener {
     @FXML
     public void onExportClicked() {
         FileChooser fileChooser = new FileChooser();
+        FileChooser.ExtensionFilter backupFilter = new FileChooser.ExtensionFilter(
+                "Backup files", "*." + BackupWriter.EXTENSION);
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("JSON files", "*.json"), backupFilter);
         File file = fileChooser.showSaveDialog(scene.getWindow());
         if (file != null) {
+            // The format is given by the extension of the file
+            if (fileChooser.getSelectedExtensionFilter() == backupFilter
+                    && !LibraryExporter.isBackupFile(file)) {
+                file = new File(file.getPath() + "." + BackupWriter.EXTENSION);
+            }
             JsonExporter jsonExporter = new JsonExporter(file);
 
             progressMessage.textProperty().bind(jsonExporter.messageProperty());
@@ -593,10 +776,31 @@ public class VideoController implements MigrationHelper.Listener {
      */
     @FXML
     public void onImportClicked() {
+        importJson(false);
+    }
+
+    /**
+     * Triggered when the Merge import item from menu is clicked.
+     */
+    @FXML
+    public void onMergeImportClicked() {
+        importJson(true);
+    }
+
+    /**
+     * Import the JSON file chosen by the user.
+     *
+     * @param merge Merge the file into the database instead of replacing the database
+     */
+    private void importJson(final boolean merge) {
         FileChooser fileChooser = new FileChooser();
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("JSON and backup files", "*.json",
+                        "*." + BackupWriter.EXTENSION),
+                new FileChooser.ExtensionFilter("All files", "*.*"));
         File file = fileChooser.showOpenDialog(scene.getWindow());
         if (file != null) {
-            JsonImporter jsonImporter = new JsonImporter(file);
+            JsonImporter jsonImporter = new JsonImporter(file, merge);
 
             progressMessage.textProperty().bind(jsonImporter.messageProperty());
             progressBar.progressProperty().bind(jsonImporter.progressProperty());
@@ -0,0 +1,173 @@
+package database;
+
+import config.Config;
+
+import java.io.IOException;
+
+/**
+ * Migration of the database to a schema version, run in bounded chunks.
+ * Each chunk is migrated in its own transaction and the checkpoint it returns is saved in the
+ * configuration file once the chunk is committed, so an interrupted migration resumes after the
+ * last chunk committed instead of starting over.
+ * <p>
+ * A blocking migration runs before the application can be used. The other migrations run in
+ * the background once the application is started, which requires the application to work with
+ * the data not migrated yet.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public abstract class Migration {
+
+    /**
+     * Checkpoint returned by {@link #migrateChunk(long, int)} when there is nothing left to
+     * migrate.
+     */
+    public static final long DONE = -1;
+
+    /**
+     * Checkpoint given to the first chunk.
+     */
+    public static final long START = 0;
+
+    /**
+     * Maximum number of entities migrated in one transaction.
+     */
+    private static final int CHUNK_SIZE = 1000;
+
+    /**
+     * Schema version the migration migrates to.
+     */
+    private final int schemaVersion;
+
+    /**
+     * The application cannot be used before the migration is done.
+     */
+    private final boolean blocking;
+
+    /**
+     * The migration has been cancelled.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * Migration constructor.
+     *
+     * @param schemaVersion Schema version the migration migrates to
+     * @param blocking      The application cannot be used before the migration is done
+     */
+    protected Migration(final int schemaVersion, final boolean blocking) {
+        this.schemaVersion = schemaVersion;
+        this.blocking = blocking;
+    }
+
+    /**
+     * @return Schema version the migration migrates to
+     */
+    public final int getSchemaVersion() {
+        return schemaVersion;
+    }
+
+    /**
+     * @return true if the application cannot be used before the migration is done, false if
+     * the migration can run in the background
+     */
+    public final boolean isBlocking() {
+        return blocking;
+    }
+
+    /**
+     * @return Description of the migration, shown while it runs
+     */
+    public abstract String getDescription();
+
+    /**
+     * Count the entities left to migrate, to report the progress.
+     *
+     * @param checkpoint Checkpoint returned by the last chunk committed, {@link #START} if none
+     * @return Number of entities left to migrate
+     */
+    protected abstract long count(long checkpoint);
+
+    /**
+     * Migrate the entities following the checkpoint, at most the given number of them. Called
+     * in a write transaction, which is committed when the method returns.
+     *
+     * @param checkpoint Checkpoint returned by the previous chunk, {@link #START} for the first
+     *                   chunk
+     * @param chunkSize  Maximum number of entities to migrate
+     * @return Checkpoint to give to the next chunk, usually the id of the last entity migrated,
+     * {@link #DONE} if there is nothing left to migrate
+     */
+    protected abstract long migrateChunk(long checkpoint, int chunkSize);
+
+    /**
+     * Run the migration from its saved checkpoint until it is done or cancelled.
+     *
+     * @param listener Listener notified of the progress
+     * @return true if the migration is done, false if it has been cancelled
+     * @throws Exception An error occurred while migrating a chunk or saving its checkpoint,
+     *                   the migration resumes after the last chunk committed
+     */
+    public final boolean run(final Listener listener) throws Exception {
+        long checkpoint = readCheckpoint();
+        long total = count(checkpoint);
+        long done = 0;
+        listener.onProgress(done, total);
+        while (!cancelled) {
+            long current = checkpoint;
+            checkpoint = ObjectBox.get().callInTx(() -> migrateChunk(current, CHUNK_SIZE));
+            if (checkpoint == DONE) {
+                Config.removeValue(Config.PROP_MIGRATION_CHECKPOINT_KEY);
+                listener.onProgress(total, total);
+                return true;
+            }
+            Config.setValue(Config.PROP_MIGRATION_CHECKPOINT_KEY,
+                    schemaVersion + ":" + checkpoint);
+            done = Math.min(total, done + CHUNK_SIZE);
+            listener.onProgress(done, total);
+        }
+        return false;
+    }
+
+    /**
+     * Cancel the migration once the chunk being migrated is committed.
+     */
+    public final void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Read the checkpoint saved by an interrupted run of this migration.
+     *
+     * @return Checkpoint, {@link #START} if there is none
+     * @throws IOException An error occurred while reading the configuration file
+     */
+    private long readCheckpoint() throws IOException {
+        String value = Config.getValue(Config.PROP_MIGRATION_CHECKPOINT_KEY);
+        String prefix = schemaVersion + ":";
+        if (value == null || !value.startsWith(prefix)) {
+            return START;
+        }
+        try {
+            return Long.parseLong(value.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return START;
+        }
+    }
+
+    /**
+     * Listener notified of the progress of a migration.
+     */
+    public interface Listener {
+
+        /**
+         * Called from the migrating thread after each chunk.
+         *
+         * @param done  Number of entities migrated, approximated by the chunk size
+         * @param total Number of entities to migrate
+         */
+        void onProgress(long done, long total);
+    }
+}
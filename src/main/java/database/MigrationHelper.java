@@ -8,18 +8,30 @@ import utils.Logger;
 import view.dialog.ProgressDialog;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
 
 /**
  * Helper class for database migration.
+ * The blocking migrations, and the migrations they follow, run before the application is used,
+ * with a progress dialog. The other migrations run one after the other on a low priority thread
+ * once the application is started.
  *
  * @author Alkisum
- * @version 4.1
+ * @version 4.6
  * @since 4.1
  */
 public class MigrationHelper {
 
+    /**
+     * Maximum time in milliseconds to wait for the chunk being migrated to be committed when
+     * stopping.
+     */
+    private static final long STOP_TIMEOUT = 5000;
+
     /**
      * Listener to get notified when the migration is finished.
      */
@@ -31,9 +43,14 @@ public class MigrationHelper {
     private final Window parentWindow;
 
     /**
-     * Queue of migration tasks.
+     * Queue of the migrations to run before the application is used.
+     */
+    private final Queue<Migration> foregroundMigrations = new LinkedList<>();
+
+    /**
+     * Queue of the migrations to run in the background.
      */
-    private final Queue<Task<?>> migrationTasks = new LinkedList<>();
+    private final Queue<Migration> backgroundMigrations = new LinkedList<>();
 
     /**
      * Current schema version.
@@ -41,21 +58,19 @@ public class MigrationHelper {
     private int currentSchemaVersion;
 
     /**
-     * Task to migrate database to schema version 6 (not implemented yet).
+     * Migration being run, null if none.
      */
-    private final Task<Void> migrateToSchemaVersion6 = new Task<>() {
-        @Override
-        protected Void call() throws Exception {
-            int seconds = 10;
-            for (int i = 0; i < seconds; i++) {
-                updateProgress(i + 1, seconds);
-                updateMessage("Migrating " + i + " seconds...");
-                Thread.sleep(1000);
-            }
-            currentSchemaVersion = 6;
-            return null;
-        }
-    };
+    private volatile Migration runningMigration;
+
+    /**
+     * Thread running the background migrations, null if not started.
+     */
+    private Thread backgroundThread;
+
+    /**
+     * The migrations have been stopped.
+     */
+    private volatile boolean stopped;
 
     /**
      * Migration Helper constructor.
@@ -70,48 +85,143 @@ public class MigrationHelper {
     }
 
     /**
-     * Add migration tasks to queue.
+     * @return Migrations of all the schema versions, in order
+     */
+    private static List<Migration> createMigrations() {
+        return Arrays.asList(
+                new StartTimeMigration()
+        );
+    }
+
+    /**
+     * Add the migrations newer than the current schema version to the queues.
      *
      * @return true if there is pending migration, false otherwise
      */
     public final boolean hasPendingMigration() {
-        // if (currentSchemaVersion < 6) {
-        //     migrationTasks.add(migrateToSchemaVersion6);
-        // }
-        return !migrationTasks.isEmpty();
+        List<Migration> pending = new ArrayList<>();
+        for (Migration migration : createMigrations()) {
+            if (migration.getSchemaVersion() > currentSchemaVersion) {
+                pending.add(migration);
+            }
+        }
+        // The migrations run in order, so the ones before a blocking migration block as well
+        int foregroundCount = 0;
+        for (int i = 0; i < pending.size(); i++) {
+            if (pending.get(i).isBlocking()) {
+                foregroundCount = i + 1;
+            }
+        }
+        foregroundMigrations.addAll(pending.subList(0, foregroundCount));
+        backgroundMigrations.addAll(pending.subList(foregroundCount, pending.size()));
+        return !pending.isEmpty();
     }
 
     /**
-     * Show progress dialog and run migration tasks.
+     * Show progress dialog and run the foreground migrations, then start the background ones.
      */
     public final void migrate() {
-        Task<?> currentUpdateTask = migrationTasks.poll();
-        if (currentUpdateTask == null) {
+        Migration migration = foregroundMigrations.poll();
+        if (migration == null) {
             listener.onMigrationFinished();
+            migrateInBackground();
             return;
         }
 
         ProgressDialog progressDialog = new ProgressDialog();
+        Task<Boolean> task = new Task<>() {
+            @Override
+            protected Boolean call() throws Exception {
+                updateMessage(migration.getDescription() + "...");
+                return migration.run(this::updateProgress);
+            }
+        };
 
-        currentUpdateTask.setOnSucceeded(t -> {
-            this.updateSchemaVersion();
+        task.setOnSucceeded(t -> {
+            runningMigration = null;
             progressDialog.dismiss();
-            migrate();
+            if (task.getValue()) {
+                currentSchemaVersion = migration.getSchemaVersion();
+                this.updateSchemaVersion();
+                migrate();
+            }
         });
 
-        currentUpdateTask.setOnFailed(t -> {
+        task.setOnFailed(t -> {
+            runningMigration = null;
             progressDialog.dismiss();
             try {
-                throw currentUpdateTask.getException();
+                throw task.getException();
             } catch (Throwable throwable) {
                 ExceptionHandler.handle(MigrationHelper.class, throwable);
             }
+            // The following migrations depend on this one, they run at the next start
             listener.onMigrationFinished();
         });
 
-        progressDialog.show(currentUpdateTask, getX(), getY());
+        progressDialog.show(task, getX(), getY());
+
+        runningMigration = migration;
+        new Thread(task).start();
+    }
 
-        new Thread(currentUpdateTask).start();
+    /**
+     * Run the background migrations one after the other on a low priority thread.
+     */
+    private void migrateInBackground() {
+        if (backgroundMigrations.isEmpty()) {
+            return;
+        }
+        backgroundThread = new Thread(() -> {
+            Migration migration;
+            while (!stopped && (migration = backgroundMigrations.poll()) != null) {
+                runningMigration = migration;
+                Logger.get(MigrationHelper.class).info(migration.getDescription()
+                        + " in the background");
+                try {
+                    if (!migration.run((done, total) -> { })) {
+                        break;
+                    }
+                } catch (Exception e) {
+                    // The following migrations depend on this one, they run at the next start
+                    Logger.get(MigrationHelper.class).error(e);
+                    break;
+                }
+                currentSchemaVersion = migration.getSchemaVersion();
+                try {
+                    Config.setValue(Config.PROP_SCHEMA_VERSION_KEY,
+                            String.valueOf(currentSchemaVersion));
+                } catch (IOException e) {
+                    Logger.get(MigrationHelper.class).error(e);
+                    break;
+                }
+                Logger.get(MigrationHelper.class).info("Database migrated to schema version "
+                        + currentSchemaVersion);
+            }
+            runningMigration = null;
+        }, "migration");
+        backgroundThread.setDaemon(true);
+        backgroundThread.setPriority(Thread.MIN_PRIORITY);
+        backgroundThread.start();
+    }
+
+    /**
+     * Stop the migrations once the chunk being migrated is committed, the stopped migration
+     * resumes from its checkpoint at the next start.
+     */
+    public final void stop() {
+        stopped = true;
+        Migration migration = runningMigration;
+        if (migration != null) {
+            migration.cancel();
+        }
+        if (backgroundThread != null) {
+            try {
+                backgroundThread.join(STOP_TIMEOUT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
     }
 
     /**
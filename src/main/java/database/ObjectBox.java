@@ -2,24 +2,44 @@ package database;
 
 import config.Config;
 import io.objectbox.BoxStore;
+import io.objectbox.reactive.DataSubscription;
+import metrics.Histogram;
+import metrics.Metrics;
 import model.MyObjectBox;
 
 import java.io.File;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Singleton class providing ObjectBox database.
  *
  * @author Alkisum
- * @version 4.1
+ * @version 4.6
  * @since 4.0
  */
 public final class ObjectBox {
 
+    /**
+     * Name of the database directory.
+     */
+    private static final String NAME = "subscriptions";
+
     /**
      * ObjectBox database.
      */
     private static BoxStore boxStore;
 
+    /**
+     * Revision of the database, incremented each time a transaction changes data. It starts from
+     * the current time so revisions are not reused after a restart.
+     */
+    private static final AtomicLong REVISION = new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * Subscription incrementing the revision, kept to prevent it from being garbage collected.
+     */
+    private static DataSubscription revisionSubscription;
+
     /**
      * ObjectBox constructor.
      */
@@ -33,8 +53,10 @@ public final class ObjectBox {
     private static void init() {
         boxStore = MyObjectBox.builder()
                 .baseDirectory(new File(Config.USER_DIR))
-                .name("subscriptions")
+                .name(NAME)
                 .build();
+        revisionSubscription = boxStore.subscribe().onlyChanges()
+                .observer(entityClass -> REVISION.incrementAndGet());
     }
 
     /**
@@ -47,6 +69,66 @@ public final class ObjectBox {
         return boxStore;
     }
 
+    /**
+     * Increment the revision right after a transaction changing data has been committed, for
+     * the writes whose result is read at once by the clients of the API, e.g. a client polling
+     * with the entity tag it had before its own change. The observer increments it again
+     * shortly after.
+     */
+    public static void incrementRevision() {
+        REVISION.incrementAndGet();
+    }
+
+    /**
+     * Get the revision of the database. The revision is incremented asynchronously, shortly
+     * after a transaction changing data has been committed, or synchronously by
+     * {@link #incrementRevision()}.
+     *
+     * @return Revision of the database
+     */
+    public static long getRevision() {
+        get();
+        return REVISION.get();
+    }
+
+    /**
+     * @return Size of the database files in bytes
+     */
+    public static long getSizeOnDisk() {
+        File[] files = new File(Config.USER_DIR, NAME).listFiles();
+        long size = 0;
+        if (files != null) {
+            for (File file : files) {
+                size += file.length();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Get the histogram measuring the latency of a query.
+     *
+     * @param entity    Name of the queried entity
+     * @param operation Name of the query
+     * @return Histogram
+     */
+    public static Histogram queryTimer(final String entity, final String operation) {
+        return Metrics.timer("db_query_seconds", "Latency of the database queries",
+                "entity", entity, "operation", operation);
+    }
+
+    /**
+     * Get the histogram measuring the latency of a write transaction.
+     *
+     * @param entity    Name of the written entity
+     * @param operation Name of the transaction
+     * @return Histogram
+     */
+    public static Histogram txTimer(final String entity, final String operation) {
+        return Metrics.timer("db_tx_seconds", "Latency of the database write transactions",
+                "entity", entity, "operation", operation);
+    }
+
     /**
      * Close ObjectBox database.
      */
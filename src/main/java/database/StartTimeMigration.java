@@ -0,0 +1,57 @@
+package database;
+
+import io.objectbox.Box;
+import model.Video;
+import model.Video_;
+
+import java.util.List;
+
+/**
+ * Migration to schema version 6: the empty start times, imported from the JSON exports of the
+ * previous versions, are stored as null, so the videos without start time are sorted together.
+ * It runs in the background, the empty start times being handled as null until then. The
+ * imports store the empty start times as null as well, so they do not bring them back.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public class StartTimeMigration extends Migration {
+
+    /**
+     * Box storing videos.
+     */
+    private final Box<Video> videoBox = ObjectBox.get().boxFor(Video.class);
+
+    /**
+     * StartTimeMigration constructor.
+     */
+    public StartTimeMigration() {
+        super(6, false);
+    }
+
+    @Override
+    public final String getDescription() {
+        return "Clearing the empty start times";
+    }
+
+    @Override
+    protected final long count(final long checkpoint) {
+        return videoBox.query().equal(Video_.startTime, "")
+                .greater(Video_.id, checkpoint).build().count();
+    }
+
+    @Override
+    protected final long migrateChunk(final long checkpoint, final int chunkSize) {
+        List<Video> videos = videoBox.query().equal(Video_.startTime, "")
+                .greater(Video_.id, checkpoint).order(Video_.id).build().find(0, chunkSize);
+        if (videos.isEmpty()) {
+            return DONE;
+        }
+        for (Video video : videos) {
+            video.setStartTime(null);
+        }
+        videoBox.put(videos);
+        return videos.get(videos.size() - 1).getId();
+    }
+}
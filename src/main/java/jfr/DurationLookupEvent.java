@@ -0,0 +1,59 @@
+package jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event emitted when the duration of a new video is requested to the YouTube API.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+@Name("ytsubscriber.DurationLookup")
+@Label("Duration Lookup")
+@Description("Request of a video duration to the YouTube API")
+@Category({"YTSubscriber", "Refresh"})
+@StackTrace(false)
+public final class DurationLookupEvent extends Event {
+
+    /**
+     * YT id of the channel.
+     */
+    @Label("Channel")
+    private String channelYtId;
+
+    /**
+     * YT id of the video.
+     */
+    @Label("Video")
+    private String videoYtId;
+
+    /**
+     * Whether the duration could be read.
+     */
+    @Label("Success")
+    private boolean success;
+
+    /**
+     * DurationLookupEvent constructor.
+     *
+     * @param channelYtId YT id of the channel
+     * @param videoYtId   YT id of the video
+     */
+    public DurationLookupEvent(final String channelYtId, final String videoYtId) {
+        this.channelYtId = channelYtId;
+        this.videoYtId = videoYtId;
+    }
+
+    /**
+     * @param success Whether the duration could be read
+     */
+    public void setSuccess(final boolean success) {
+        this.success = success;
+    }
+}
@@ -0,0 +1,59 @@
+package jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event emitted when a feed entry is looked up in the database.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+@Name("ytsubscriber.ExistenceCheck")
+@Label("Existence Check")
+@Description("Lookup of a feed entry in the database")
+@Category({"YTSubscriber", "Refresh"})
+@StackTrace(false)
+public final class ExistenceCheckEvent extends Event {
+
+    /**
+     * YT id of the channel.
+     */
+    @Label("Channel")
+    private String channelYtId;
+
+    /**
+     * YT id of the video.
+     */
+    @Label("Video")
+    private String videoYtId;
+
+    /**
+     * Whether the video is already in the database.
+     */
+    @Label("Exists")
+    private boolean exists;
+
+    /**
+     * ExistenceCheckEvent constructor.
+     *
+     * @param channelYtId YT id of the channel
+     * @param videoYtId   YT id of the video
+     */
+    public ExistenceCheckEvent(final String channelYtId, final String videoYtId) {
+        this.channelYtId = channelYtId;
+        this.videoYtId = videoYtId;
+    }
+
+    /**
+     * @param exists Whether the video is already in the database
+     */
+    public void setExists(final boolean exists) {
+        this.exists = exists;
+    }
+}
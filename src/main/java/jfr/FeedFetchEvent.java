@@ -0,0 +1,66 @@
+package jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event emitted when the feed of a channel is downloaded.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+@Name("ytsubscriber.FeedFetch")
+@Label("Feed Fetch")
+@Description("Download of a channel feed")
+@Category({"YTSubscriber", "Refresh"})
+@StackTrace(false)
+public final class FeedFetchEvent extends Event {
+
+    /**
+     * YT id of the channel.
+     */
+    @Label("Channel")
+    private String channelYtId;
+
+    /**
+     * Size of the feed.
+     */
+    @DataAmount
+    @Label("Bytes")
+    private long bytes;
+
+    /**
+     * Whether the feed could be downloaded.
+     */
+    @Label("Success")
+    private boolean success;
+
+    /**
+     * FeedFetchEvent constructor.
+     *
+     * @param channelYtId YT id of the channel
+     */
+    public FeedFetchEvent(final String channelYtId) {
+        this.channelYtId = channelYtId;
+    }
+
+    /**
+     * @param bytes Size of the feed
+     */
+    public void setBytes(final long bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * @param success Whether the feed could be downloaded
+     */
+    public void setSuccess(final boolean success) {
+        this.success = success;
+    }
+}
@@ -0,0 +1,66 @@
+package jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event emitted when the feed of a channel is decoded.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+@Name("ytsubscriber.FeedParse")
+@Label("Feed Parse")
+@Description("Decoding of a channel feed")
+@Category({"YTSubscriber", "Refresh"})
+@StackTrace(false)
+public final class FeedParseEvent extends Event {
+
+    /**
+     * YT id of the channel.
+     */
+    @Label("Channel")
+    private String channelYtId;
+
+    /**
+     * Size of the feed.
+     */
+    @DataAmount
+    @Label("Bytes")
+    private long bytes;
+
+    /**
+     * Number of entries in the feed.
+     */
+    @Label("Entries")
+    private int entryCount;
+
+    /**
+     * FeedParseEvent constructor.
+     *
+     * @param channelYtId YT id of the channel
+     */
+    public FeedParseEvent(final String channelYtId) {
+        this.channelYtId = channelYtId;
+    }
+
+    /**
+     * @param bytes Size of the feed
+     */
+    public void setBytes(final long bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * @param entryCount Number of entries in the feed
+     */
+    public void setEntryCount(final int entryCount) {
+        this.entryCount = entryCount;
+    }
+}
@@ -0,0 +1,51 @@
+package jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event emitted when the new videos of a channel are saved.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+@Name("ytsubscriber.Persist")
+@Label("Persist")
+@Description("Transaction saving the new videos of a channel")
+@Category({"YTSubscriber", "Refresh"})
+@StackTrace(false)
+public final class PersistEvent extends Event {
+
+    /**
+     * YT id of the channel.
+     */
+    @Label("Channel")
+    private String channelYtId;
+
+    /**
+     * Number of videos saved.
+     */
+    @Label("Videos")
+    private int videoCount;
+
+    /**
+     * PersistEvent constructor.
+     *
+     * @param channelYtId YT id of the channel
+     */
+    public PersistEvent(final String channelYtId) {
+        this.channelYtId = channelYtId;
+    }
+
+    /**
+     * @param videoCount Number of videos saved
+     */
+    public void setVideoCount(final int videoCount) {
+        this.videoCount = videoCount;
+    }
+}
@@ -0,0 +1,157 @@
+package jfr;
+
+import config.Config;
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import utils.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Utility class keeping a continuous flight recording of the last minutes, with the JDK default
+ * low overhead settings and the refresh events. The recording is dumped to the recordings
+ * directory when a refresh takes longer than the time budget set in the configuration file.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public final class RefreshRecorder {
+
+    /**
+     * Directory the recordings are dumped to.
+     */
+    public static final String RECORDINGS_PATH = Config.USER_DIR + "recordings" + File.separator;
+
+    /**
+     * Minimum age of the recorded data kept in the recording.
+     */
+    private static final Duration MIN_MAX_AGE = Duration.ofMinutes(10);
+
+    /**
+     * Maximum number of dumps kept in the recordings directory.
+     */
+    private static final int MAX_DUMPS = 10;
+
+    /**
+     * Events of the refresh pipeline.
+     */
+    private static final List<Class<? extends Event>> EVENTS = List.of(FeedFetchEvent.class,
+            FeedParseEvent.class, ExistenceCheckEvent.class, DurationLookupEvent.class,
+            PersistEvent.class, ThumbnailDownloadEvent.class, UiApplyEvent.class);
+
+    /**
+     * Continuous recording, null if it is not started.
+     */
+    private static Recording recording;
+
+    /**
+     * Time budget of a refresh in milliseconds.
+     */
+    private static long budget;
+
+    /**
+     * RefreshRecorder constructor.
+     */
+    private RefreshRecorder() {
+
+    }
+
+    /**
+     * Start the continuous recording if a refresh time budget is set in the configuration file.
+     * Does nothing if it has already been started.
+     */
+    public static synchronized void start() {
+        if (recording != null) {
+            return;
+        }
+        int seconds = Config.getIntValue(Config.PROP_JFR_REFRESH_BUDGET_KEY, 0);
+        if (seconds <= 0) {
+            return;
+        }
+        try {
+            Recording r = new Recording(Configuration.getConfiguration("default"));
+            for (Class<? extends Event> event : EVENTS) {
+                r.enable(event);
+            }
+            r.setName("YTSubscriber");
+            r.setToDisk(true);
+            // Keep at least twice the budget so a slow refresh is recorded from its start
+            Duration budgetDuration = Duration.ofSeconds(seconds);
+            r.setMaxAge(budgetDuration.multipliedBy(2).compareTo(MIN_MAX_AGE) > 0
+                    ? budgetDuration.multipliedBy(2) : MIN_MAX_AGE);
+            r.start();
+            recording = r;
+            budget = TimeUnit.SECONDS.toMillis(seconds);
+            Logger.get(RefreshRecorder.class).info("Flight recording started, dumped when a "
+                    + "refresh takes more than " + seconds + " s");
+        } catch (IOException | ParseException | IllegalStateException | SecurityException e) {
+            Logger.get(RefreshRecorder.class).error("Cannot start the flight recording", e);
+        }
+    }
+
+    /**
+     * Dump the recording if the refresh took longer than the time budget.
+     *
+     * @param duration Refresh duration in milliseconds
+     */
+    public static synchronized void onRefreshFinished(final long duration) {
+        if (recording == null || duration <= budget) {
+            return;
+        }
+        File directory = new File(RECORDINGS_PATH);
+        if (!directory.exists() && !directory.mkdirs()) {
+            Logger.get(RefreshRecorder.class).error("Cannot create " + RECORDINGS_PATH);
+            return;
+        }
+        File file = new File(directory, "refresh-"
+                + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".jfr");
+        try {
+            recording.dump(file.toPath());
+            Logger.get(RefreshRecorder.class).warn("Refresh took " + duration + " ms, flight "
+                    + "recording dumped to " + file);
+        } catch (IOException e) {
+            Logger.get(RefreshRecorder.class).error("Cannot dump the flight recording", e);
+        }
+        deleteOldDumps(directory);
+    }
+
+    /**
+     * Stop the continuous recording.
+     */
+    public static synchronized void stop() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    /**
+     * Delete the oldest dumps, keeping the {@link #MAX_DUMPS} most recent.
+     *
+     * @param directory Recordings directory
+     */
+    private static void deleteOldDumps(final File directory) {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith("refresh-")
+                && name.endsWith(".jfr"));
+        if (files == null || files.length <= MAX_DUMPS) {
+            return;
+        }
+        // The names sort by date
+        Arrays.sort(files);
+        for (int i = 0; i < files.length - MAX_DUMPS; i++) {
+            if (!files[i].delete()) {
+                Logger.get(RefreshRecorder.class).warn("Cannot delete " + files[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event emitted when the thumbnail of a video is downloaded.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+@Name("ytsubscriber.ThumbnailDownload")
+@Label("Thumbnail Download")
+@Description("Download of a video thumbnail")
+@Category({"YTSubscriber", "Refresh"})
+@StackTrace(false)
+public final class ThumbnailDownloadEvent extends Event {
+
+    /**
+     * YT id of the channel.
+     */
+    @Label("Channel")
+    private String channelYtId;
+
+    /**
+     * YT id of the video.
+     */
+    @Label("Video")
+    private String videoYtId;
+
+    /**
+     * Size of the thumbnail.
+     */
+    @DataAmount
+    @Label("Bytes")
+    private long bytes;
+
+    /**
+     * ThumbnailDownloadEvent constructor.
+     *
+     * @param videoYtId YT id of the video
+     */
+    public ThumbnailDownloadEvent(final String videoYtId) {
+        this.videoYtId = videoYtId;
+    }
+
+    /**
+     * Set the channel once the event is known to be committed, as it is resolved through the
+     * video relation.
+     *
+     * @param channelYtId YT id of the channel
+     */
+    public void setChannelYtId(final String channelYtId) {
+        this.channelYtId = channelYtId;
+    }
+
+    /**
+     * @param bytes Size of the thumbnail
+     */
+    public void setBytes(final long bytes) {
+        this.bytes = bytes;
+    }
+}
@@ -0,0 +1,52 @@
+package jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event emitted when the new videos of a channel are merged into the view, on the JavaFX
+ * application thread.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+@Name("ytsubscriber.UiApply")
+@Label("UI Apply")
+@Description("Merge of the new videos of a channel into the view")
+@Category({"YTSubscriber", "Refresh"})
+@StackTrace(false)
+public final class UiApplyEvent extends Event {
+
+    /**
+     * YT id of the channel.
+     */
+    @Label("Channel")
+    private String channelYtId;
+
+    /**
+     * Number of videos merged.
+     */
+    @Label("Videos")
+    private int videoCount;
+
+    /**
+     * UiApplyEvent constructor.
+     *
+     * @param channelYtId YT id of the channel
+     */
+    public UiApplyEvent(final String channelYtId) {
+        this.channelYtId = channelYtId;
+    }
+
+    /**
+     * @param videoCount Number of videos merged
+     */
+    public void setVideoCount(final int videoCount) {
+        this.videoCount = videoCount;
+    }
+}
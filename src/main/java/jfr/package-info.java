@@ -0,0 +1,8 @@
+/**
+ * JFR package, describing the refresh pipeline to Java Flight Recorder.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+package jfr;
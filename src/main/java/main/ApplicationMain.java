@@ -10,6 +10,13 @@ import javafx.scene.Scene;
 import javafx.scene.image.Image;
 import javafx.stage.Screen;
 import javafx.stage.Stage;
+import jfr.RefreshRecorder;
+import metrics.Metrics;
+import server.ApiServer;
+import server.MetricsServer;
+import server.WebSubSubscriber;
+import service.RetentionPolicy;
+import service.ThumbnailCollector;
 import utils.ExceptionHandler;
 
 import java.io.IOException;
@@ -18,7 +25,7 @@ import java.io.IOException;
  * Main class.
  *
  * @author Alkisum
- * @version 4.1
+ * @version 4.6
  * @since 1.0
  */
 public class ApplicationMain extends Application {
@@ -33,6 +40,36 @@ public class ApplicationMain extends Application {
      */
     private static final double MIN_HEIGHT = 400;
 
+    /**
+     * Helper running the database migrations.
+     */
+    private MigrationHelper migrationHelper;
+
+    /**
+     * Local HTTP API server, null if the API is disabled.
+     */
+    private ApiServer apiServer;
+
+    /**
+     * WebSub subscriber receiving the new videos, null if WebSub is disabled.
+     */
+    private WebSubSubscriber webSubSubscriber;
+
+    /**
+     * OpenMetrics server, null if the endpoint is disabled.
+     */
+    private MetricsServer metricsServer;
+
+    /**
+     * Retention policy deleting the old watched videos, null if no retention rule is set.
+     */
+    private RetentionPolicy retentionPolicy;
+
+    /**
+     * Collector of the orphan thumbnails, null if the collection is disabled.
+     */
+    private ThumbnailCollector thumbnailCollector;
+
     @Override
     public final void start(final Stage primaryStage) throws Exception {
         Config.setDefaultValues();
@@ -52,15 +89,41 @@ public class ApplicationMain extends Application {
         setWindow(scene);
         primaryStage.show();
 
-        MigrationHelper migrationHelper = new MigrationHelper(videoController, scene.getWindow());
+        // The services write to the database, they wait for the blocking migrations
+        migrationHelper = new MigrationHelper(() -> {
+            videoController.onMigrationFinished();
+            startServices(videoController);
+        }, scene.getWindow());
         if (migrationHelper.hasPendingMigration()) {
             migrationHelper.migrate();
         } else {
             videoController.init();
+            startServices(videoController);
         }
 
+        Metrics.startLogging();
+        RefreshRecorder.start();
+
         primaryStage.setOnCloseRequest(event -> {
+            videoController.stopRefresh();
+            if (apiServer != null) {
+                apiServer.stop();
+            }
+            if (webSubSubscriber != null) {
+                webSubSubscriber.stop();
+            }
+            if (metricsServer != null) {
+                metricsServer.stop();
+            }
+            if (retentionPolicy != null) {
+                retentionPolicy.stop();
+            }
+            if (thumbnailCollector != null) {
+                thumbnailCollector.stop();
+            }
+            migrationHelper.stop();
             ObjectBox.close();
+            Metrics.log();
             double width = scene.getWindow().getWidth();
             double height = scene.getWindow().getHeight();
             double x = scene.getWindow().getX();
@@ -76,6 +139,19 @@ public class ApplicationMain extends Application {
         });
     }
 
+    /**
+     * Start the services enabled in the configuration file, once the database can be used.
+     *
+     * @param videoController Controller notified of the videos pushed or deleted by the services
+     */
+    private void startServices(final VideoController videoController) {
+        apiServer = ApiServer.startIfEnabled();
+        webSubSubscriber = WebSubSubscriber.startIfEnabled(videoController);
+        metricsServer = MetricsServer.startIfEnabled();
+        retentionPolicy = RetentionPolicy.startIfEnabled(videoController);
+        thumbnailCollector = ThumbnailCollector.startIfEnabled();
+    }
+
     /**
      * Set window position and dimension with values stored in configuration
      * file.
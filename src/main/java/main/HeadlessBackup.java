@@ -0,0 +1,232 @@
+package main;
+
+import com.google.gson.JsonObject;
+import config.Config;
+import database.ObjectBox;
+import service.LibraryExporter;
+import service.LibraryImporter;
+import utils.Channels;
+import utils.Logger;
+import utils.Tombstones;
+import utils.Videos;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Back up or restore the library from the command line, without starting the JavaFX toolkit.
+ * <p>
+ * A backup exports the whole library, or with the delta argument only the changes since the
+ * previous backup, and saves its start time in the configuration file for the next delta. A
+ * restore imports a full backup followed by the deltas exported after it, in order, once their
+ * recorded time ranges show that they follow each other.
+ * A summary is printed to the standard output as a single JSON line.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public final class HeadlessBackup {
+
+    /**
+     * Argument starting a backup, followed by the file to export to.
+     */
+    public static final String BACKUP_ARG = "--backup";
+
+    /**
+     * Argument starting a restore, followed by the full backup and the deltas to import.
+     */
+    public static final String RESTORE_ARG = "--restore";
+
+    /**
+     * Argument making the backup a delta of the changes since the previous backup.
+     */
+    private static final String DELTA_ARG = "--delta";
+
+    /**
+     * Argument skipping the download of the thumbnails of the restored videos.
+     */
+    private static final String NO_THUMBNAILS_ARG = "--no-thumbnails";
+
+    /**
+     * Exit code when the backup or the restore succeeded.
+     */
+    private static final int EXIT_SUCCESS = 0;
+
+    /**
+     * Exit code when the backup or the restore failed.
+     */
+    private static final int EXIT_FAILURE = 1;
+
+    /**
+     * Exit code when the arguments are invalid.
+     */
+    private static final int EXIT_USAGE = 2;
+
+    /**
+     * HeadlessBackup constructor.
+     */
+    private HeadlessBackup() {
+
+    }
+
+    /**
+     * Run the backup or the restore and exit.
+     *
+     * @param args Arguments, starting with {@link #BACKUP_ARG} or {@link #RESTORE_ARG}
+     */
+    public static void main(final String[] args) {
+        boolean delta = false;
+        boolean downloadThumbnails = true;
+        List<File> files = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            if (DELTA_ARG.equals(args[i]) && BACKUP_ARG.equals(args[0])) {
+                delta = true;
+            } else if (NO_THUMBNAILS_ARG.equals(args[i]) && RESTORE_ARG.equals(args[0])) {
+                downloadThumbnails = false;
+            } else if (!args[i].startsWith("--")) {
+                files.add(new File(args[i]));
+            } else {
+                files.clear();
+                break;
+            }
+        }
+        if (BACKUP_ARG.equals(args[0]) && files.size() == 1) {
+            System.exit(backup(files.get(0), delta));
+        } else if (RESTORE_ARG.equals(args[0]) && !files.isEmpty()) {
+            System.exit(restore(files, downloadThumbnails));
+        }
+        System.err.println("Usage: " + BACKUP_ARG + " <file> [" + DELTA_ARG + "]");
+        System.err.println("       " + RESTORE_ARG + " <full backup> [<delta>...] ["
+                + NO_THUMBNAILS_ARG + "]");
+        System.exit(EXIT_USAGE);
+    }
+
+    /**
+     * Export the library, or the changes since the previous backup, and save the checkpoint of
+     * the next delta.
+     *
+     * @param file  File to export to, its extension giving the format
+     * @param delta Export only the changes since the previous backup
+     * @return Exit code
+     */
+    private static int backup(final File file, final boolean delta) {
+        long start = System.currentTimeMillis();
+        JsonObject json = new JsonObject();
+        json.addProperty("file", file.getAbsolutePath());
+        json.addProperty("delta", delta);
+        try {
+            Config.setDefaultValues();
+            LibraryExporter exporter = new LibraryExporter(file, (done, total, message) -> {
+            });
+            if (delta) {
+                String checkpoint = Config.getValue(Config.PROP_BACKUP_CHECKPOINT_KEY);
+                if (checkpoint == null) {
+                    throw new IllegalStateException("No previous backup to make a delta of");
+                }
+                exporter.setSince(Long.parseLong(checkpoint));
+            }
+            exporter.run();
+            Config.setValue(Config.PROP_BACKUP_CHECKPOINT_KEY,
+                    String.valueOf(exporter.getUntil()));
+            if (!delta) {
+                // The next deltas do not read the deletions older than this backup
+                Tombstones.deleteBefore(exporter.getUntil() - LibraryExporter.SAVE_MARGIN);
+            }
+            json.addProperty("until", exporter.getUntil());
+            json.addProperty("channels", exporter.getChannelCount());
+            json.addProperty("videos", exporter.getVideoCount());
+            json.addProperty("deleted", exporter.getDeletedCount());
+            json.addProperty("bytes", file.length());
+            json.addProperty("durationMs", System.currentTimeMillis() - start);
+            System.out.println(json);
+            return EXIT_SUCCESS;
+        } catch (Exception e) {
+            Logger.get(HeadlessBackup.class).error(e);
+            json.addProperty("error", String.valueOf(e));
+            System.out.println(json);
+            return EXIT_FAILURE;
+        } finally {
+            ObjectBox.close();
+        }
+    }
+
+    /**
+     * Replace the library by the full backup and apply the deltas.
+     *
+     * @param files              Full backup followed by the deltas, in the order they were
+     *                           exported
+     * @param downloadThumbnails Download the thumbnails of the restored videos
+     * @return Exit code
+     */
+    private static int restore(final List<File> files, final boolean downloadThumbnails) {
+        long start = System.currentTimeMillis();
+        JsonObject json = new JsonObject();
+        int applied = 0;
+        try {
+            Config.setDefaultValues();
+            checkChain(files);
+            for (File file : files) {
+                LibraryImporter importer = new LibraryImporter(file, false,
+                        (done, total, message) -> {
+                        });
+                importer.setDownloadThumbnails(downloadThumbnails);
+                importer.run();
+                applied++;
+            }
+            json.addProperty("files", applied);
+            json.addProperty("channels", Channels.count());
+            json.addProperty("videos", Videos.count());
+            json.addProperty("durationMs", System.currentTimeMillis() - start);
+            System.out.println(json);
+            return EXIT_SUCCESS;
+        } catch (Exception e) {
+            Logger.get(HeadlessBackup.class).error(e);
+            json.addProperty("files", applied);
+            json.addProperty("error", String.valueOf(e));
+            System.out.println(json);
+            return EXIT_FAILURE;
+        } finally {
+            ObjectBox.close();
+        }
+    }
+
+    /**
+     * Check that the files make a chain before importing any of them: a full backup followed by
+     * deltas, each delta starting at or before the export of the file before it and ending
+     * after it, so no change is missed and none is applied out of order.
+     *
+     * @param files Full backup followed by the deltas, in the order they were exported
+     * @throws IOException              An error occurred while reading a file
+     * @throws IllegalArgumentException The files do not make a chain
+     */
+    private static void checkChain(final List<File> files) throws IOException {
+        long until = -1;
+        for (int i = 0; i < files.size(); i++) {
+            File file = files.get(i);
+            long[] range = LibraryImporter.readRange(file);
+            boolean delta = range[0] >= 0;
+            if (i == 0 && delta) {
+                throw new IllegalArgumentException(file + " is a delta, the restore must start"
+                        + " with a full backup");
+            } else if (i > 0 && !delta) {
+                throw new IllegalArgumentException(file + " is a full backup, it would replace"
+                        + " the files before it and can only be the first file");
+            } else if (i > 0 && until < 0) {
+                // The full backups in JSON do not record the time of their export
+                Logger.get(HeadlessBackup.class).warn("Cannot check that " + file
+                        + " follows " + files.get(i - 1));
+            } else if (i > 0 && range[0] > until) {
+                throw new IllegalArgumentException(file + " does not follow "
+                        + files.get(i - 1) + ": the changes between " + until + " and "
+                        + range[0] + " are missing");
+            } else if (i > 0 && range[1] <= until) {
+                throw new IllegalArgumentException(file + " is older than " + files.get(i - 1)
+                        + ", the deltas must be given in the order they were exported");
+            }
+            until = range[1];
+        }
+    }
+}
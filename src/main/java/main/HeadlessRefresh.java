@@ -0,0 +1,221 @@
+package main;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import config.Config;
+import database.ObjectBox;
+import jfr.RefreshRecorder;
+import metrics.Metrics;
+import model.Channel;
+import service.RefreshSummary;
+import service.Refresher;
+import utils.Channels;
+import utils.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Refresh the channels from the command line, without starting the JavaFX toolkit.
+ * A summary of the refresh is printed to the standard output as a single JSON line.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public final class HeadlessRefresh {
+
+    /**
+     * Argument starting a headless refresh.
+     */
+    public static final String REFRESH_ARG = "--refresh";
+
+    /**
+     * Argument followed by the comma-separated channels (YT ids or names) to refresh.
+     */
+    private static final String CHANNELS_ARG = "--channels";
+
+    /**
+     * Exit code when the refresh succeeded.
+     */
+    private static final int EXIT_SUCCESS = 0;
+
+    /**
+     * Exit code when the refresh failed.
+     */
+    private static final int EXIT_FAILURE = 1;
+
+    /**
+     * Exit code when the arguments are invalid.
+     */
+    private static final int EXIT_USAGE = 2;
+
+    /**
+     * Time in seconds to wait for the refresh to save its checkpoint when the process is
+     * stopped.
+     */
+    private static final long STOP_TIMEOUT = 10;
+
+    /**
+     * HeadlessRefresh constructor.
+     */
+    private HeadlessRefresh() {
+
+    }
+
+    /**
+     * Run the refresh and exit.
+     *
+     * @param args Arguments, starting with {@link #REFRESH_ARG}
+     */
+    public static void main(final String[] args) {
+        Set<String> filter = null;
+        for (int i = 1; i < args.length; i++) {
+            if (CHANNELS_ARG.equals(args[i]) && i + 1 < args.length) {
+                filter = Arrays.stream(args[++i].split(","))
+                        .map(String::trim)
+                        .filter(s -> !s.isEmpty())
+                        .map(s -> s.toLowerCase(Locale.ROOT))
+                        .collect(Collectors.toSet());
+            } else {
+                System.err.println("Usage: " + REFRESH_ARG + " [" + CHANNELS_ARG
+                        + " <id or name>,...]");
+                System.exit(EXIT_USAGE);
+            }
+        }
+        System.exit(refresh(filter));
+    }
+
+    /**
+     * Refresh the channels matching the given filter.
+     *
+     * @param filter YT ids or names (lower case) of the channels to refresh, null for all
+     * @return Exit code
+     */
+    private static int refresh(final Set<String> filter) {
+        CountDownLatch done = new CountDownLatch(1);
+        Refresher refresher = null;
+        Thread shutdownHook = null;
+        try {
+            Config.setDefaultValues();
+            RefreshRecorder.start();
+            List<Channel> channels = select(Channels.getAllOrderByName(), filter);
+
+            Refresher r = new Refresher(channels, null);
+            // Only a refresh of all the channels resumes and saves the refresh checkpoint
+            r.setResumable(filter == null);
+            refresher = r;
+
+            // Stopping the process (e.g. a cron timeout) cancels the refresh, so the channels
+            // already read are committed and the remaining ones are read by the next refresh of
+            // all the channels
+            shutdownHook = new Thread(() -> {
+                r.cancel();
+                try {
+                    done.await(STOP_TIMEOUT, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            Runtime.getRuntime().addShutdownHook(shutdownHook);
+
+            RefreshSummary summary = r.run();
+            System.out.println(toJson(r, summary));
+            return EXIT_SUCCESS;
+        } catch (Exception e) {
+            Logger.get(HeadlessRefresh.class).error(e);
+            JsonObject json = refresher == null ? new JsonObject()
+                    : toJson(refresher, refresher.getSummary());
+            json.addProperty("error", String.valueOf(e));
+            System.out.println(json);
+            return EXIT_FAILURE;
+        } finally {
+            ObjectBox.close();
+            Metrics.log();
+            done.countDown();
+            removeShutdownHook(shutdownHook);
+        }
+    }
+
+    /**
+     * Keep the channels matching the given filter.
+     *
+     * @param channels All the channels
+     * @param filter   YT ids or names (lower case) of the channels to keep, null for all
+     * @return Channels matching the filter
+     */
+    private static List<Channel> select(final List<Channel> channels, final Set<String> filter) {
+        if (filter == null) {
+            return channels;
+        }
+        List<Channel> selected = new ArrayList<>();
+        for (Channel channel : channels) {
+            if (filter.contains(channel.getYtId().toLowerCase(Locale.ROOT))
+                    || filter.contains(channel.getName().toLowerCase(Locale.ROOT))) {
+                selected.add(channel);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Build the JSON summary of the refresh.
+     *
+     * @param refresher Refresher
+     * @param summary   Summary of the refresh
+     * @return JSON summary
+     */
+    private static JsonObject toJson(final Refresher refresher, final RefreshSummary summary) {
+        JsonObject json = new JsonObject();
+        json.addProperty("cancelled", refresher.isCancelled());
+        json.addProperty("channels", summary.getChannelCount());
+        json.addProperty("read", summary.getReadChannelCount());
+        json.addProperty("unchanged", summary.getSkippedChannelCount());
+        json.addProperty("quarantined", summary.getQuarantinedChannelCount());
+        json.addProperty("failed", summary.getFailedChannelCount());
+        json.addProperty("newVideos", summary.getNewVideoCount());
+        json.addProperty("durationError", refresher.hasDurationError());
+        json.addProperty("durationMs", summary.getDuration());
+        JsonObject stages = new JsonObject();
+        for (RefreshSummary.Stage stage : RefreshSummary.Stage.values()) {
+            stages.addProperty(stage.name().toLowerCase(Locale.ROOT),
+                    summary.getStageTime(stage));
+        }
+        json.add("stagesMs", stages);
+        json.add("notFound", toJson(refresher.getNotFoundChannels()));
+        json.add("unreachable", toJson(refresher.getFailedChannels()));
+        return json;
+    }
+
+    /**
+     * @param channels Channels
+     * @return JSON array of the channel YT ids
+     */
+    private static JsonArray toJson(final List<Channel> channels) {
+        return new Gson().toJsonTree(channels.stream().map(Channel::getYtId)
+                .collect(Collectors.toList())).getAsJsonArray();
+    }
+
+    /**
+     * Remove the given shutdown hook, unless the JVM is already shutting down.
+     *
+     * @param hook Shutdown hook, can be null
+     */
+    private static void removeShutdownHook(final Thread hook) {
+        if (hook == null) {
+            return;
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(hook);
+        } catch (IllegalStateException e) {
+            // Shutdown in progress, the hook is waiting for the refresh to end
+        }
+    }
+}
@@ -1,20 +1,36 @@
 package main;
 
+import server.ApiServer;
+
+import java.io.IOException;
+
 /**
  * Main class.
  *
  * @author Alkisum
- * @version 4.4
+ * @version 4.6
  * @since 4.4
  */
 public class Main {
 
     /**
-     * Main method.
+     * Main method, start the application or, with the --refresh argument, refresh the channels
+     * without starting the GUI, or, with the --serve argument, run the local HTTP API without
+     * starting the GUI.
      *
      * @param args Arguments
+     * @throws IOException The local HTTP API could not be started
      */
-    public static void main(String[] args) {
-        ApplicationMain.main(args);
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && HeadlessRefresh.REFRESH_ARG.equals(args[0])) {
+            HeadlessRefresh.main(args);
+        } else if (args.length > 0 && ApiServer.SERVE_ARG.equals(args[0])) {
+            ApiServer.main(args);
+        } else if (args.length > 0 && (HeadlessBackup.BACKUP_ARG.equals(args[0])
+                || HeadlessBackup.RESTORE_ARG.equals(args[0]))) {
+            HeadlessBackup.main(args);
+        } else {
+            ApplicationMain.main(args);
+        }
     }
 }
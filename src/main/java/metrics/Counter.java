@@ -0,0 +1,59 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic count, cheap to increment from many threads.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public final class Counter extends Metric {
+
+    /**
+     * Current count.
+     */
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * Counter constructor.
+     *
+     * @param name   Name of the metric family
+     * @param help   Description of the metric family
+     * @param labels Label names and values, alternated
+     */
+    Counter(final String name, final String help, final String... labels) {
+        super(name, help, labels);
+    }
+
+    @Override
+    public Type getType() {
+        return Type.COUNTER;
+    }
+
+    /**
+     * Increment the count by one.
+     */
+    public void increment() {
+        count.increment();
+    }
+
+    /**
+     * Increment the count by the given amount.
+     *
+     * @param amount Amount to add, ignored if negative
+     */
+    public void add(final long amount) {
+        if (amount > 0) {
+            count.add(amount);
+        }
+    }
+
+    /**
+     * @return Current count
+     */
+    public long get() {
+        return count.sum();
+    }
+}
@@ -0,0 +1,44 @@
+package metrics;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Value read from its source each time the metric is collected.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public final class Gauge extends Metric {
+
+    /**
+     * Source of the value.
+     */
+    private final LongSupplier supplier;
+
+    /**
+     * Gauge constructor.
+     *
+     * @param name     Name of the metric family
+     * @param help     Description of the metric family
+     * @param supplier Source of the value
+     * @param labels   Label names and values, alternated
+     */
+    Gauge(final String name, final String help, final LongSupplier supplier,
+          final String... labels) {
+        super(name, help, labels);
+        this.supplier = supplier;
+    }
+
+    @Override
+    public Type getType() {
+        return Type.GAUGE;
+    }
+
+    /**
+     * @return Current value
+     */
+    public long get() {
+        return supplier.getAsLong();
+    }
+}
@@ -0,0 +1,346 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Distribution of recorded values, bucketed like an HDR histogram: values below 16 have their
+ * own bucket, larger values share each power of two between 16 linear sub-buckets. Any
+ * positive long can be recorded with a relative error below 6.25% in a fixed 960 slot array,
+ * without locking.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public final class Histogram extends Metric {
+
+    /**
+     * Number of bits of the sub-bucket index.
+     */
+    private static final int SUB_BITS = 4;
+
+    /**
+     * Number of sub-buckets per power of two.
+     */
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+
+    /**
+     * Number of buckets, covering the values up to Long.MAX_VALUE.
+     */
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BITS) * SUB_COUNT;
+
+    /**
+     * Number of values recorded in each bucket.
+     */
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * Number of recorded values.
+     */
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * Sum of the recorded values.
+     */
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * Largest recorded value.
+     */
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Factor converting the recorded values to the base unit of the metric, e.g. 1e-9 for
+     * durations recorded in nanoseconds and exposed in seconds.
+     */
+    private final double unit;
+
+    /**
+     * Histogram constructor.
+     *
+     * @param name   Name of the metric family
+     * @param help   Description of the metric family
+     * @param unit   Factor converting the recorded values to the base unit of the metric
+     * @param labels Label names and values, alternated
+     */
+    Histogram(final String name, final String help, final double unit,
+              final String... labels) {
+        super(name, help, labels);
+        this.unit = unit;
+    }
+
+    @Override
+    public Type getType() {
+        return Type.HISTOGRAM;
+    }
+
+    /**
+     * Record a value.
+     *
+     * @param value Value to record, negative values are recorded as 0
+     */
+    public void record(final long value) {
+        long v = Math.max(0, value);
+        buckets.incrementAndGet(bucketIndex(v));
+        count.increment();
+        sum.add(v);
+        max.accumulate(v);
+    }
+
+    /**
+     * Record the time elapsed since the given start.
+     *
+     * @param start Start time in nanoseconds, as given by {@link System#nanoTime()}
+     */
+    public void recordSince(final long start) {
+        record(System.nanoTime() - start);
+    }
+
+    /**
+     * Run the given action and record its duration in nanoseconds.
+     *
+     * @param action Action to run
+     * @param <T>    Type of the result
+     * @return Result of the action
+     */
+    public <T> T time(final Supplier<T> action) {
+        long start = System.nanoTime();
+        try {
+            return action.get();
+        } finally {
+            recordSince(start);
+        }
+    }
+
+    /**
+     * Run the given action and record its duration in nanoseconds.
+     *
+     * @param action Action to run
+     */
+    public void time(final Runnable action) {
+        long start = System.nanoTime();
+        try {
+            action.run();
+        } finally {
+            recordSince(start);
+        }
+    }
+
+    /**
+     * @return Number of recorded values
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return Sum of the recorded values
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * @return Largest recorded value
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return Factor converting the recorded values to the base unit of the metric
+     */
+    public double getUnit() {
+        return unit;
+    }
+
+    /**
+     * Estimate the value below which the given percentage of the recorded values fall.
+     * It walks the buckets without allocating, so it can be called while rendering.
+     *
+     * @param percentile Percentage, between 0 and 100
+     * @return Value at the percentile, 0 if no value has been recorded
+     */
+    public long getValueAtPercentile(final double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += buckets.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * Math.min(100, percentile) / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(bucketMiddle(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * @return Snapshot of the distribution
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(getCount(), getSum(), getMax(), getValueAtPercentile(50),
+                getValueAtPercentile(90), getValueAtPercentile(99), unit);
+    }
+
+    /**
+     * Get the index of the bucket the given value falls in.
+     *
+     * @param value Positive value
+     * @return Bucket index
+     */
+    static int bucketIndex(final long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BITS;
+        return shift * SUB_COUNT + (int) (value >>> shift);
+    }
+
+    /**
+     * Get the value in the middle of the given bucket.
+     *
+     * @param index Bucket index
+     * @return Middle value of the bucket
+     */
+    static long bucketMiddle(final int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_COUNT - 1;
+        long top = index % SUB_COUNT + SUB_COUNT;
+        return (top << shift) + ((1L << shift) >>> 1);
+    }
+
+    /**
+     * Immutable summary of a histogram at a point in time.
+     */
+    public static final class Snapshot {
+
+        /**
+         * Number of recorded values.
+         */
+        private final long count;
+
+        /**
+         * Sum of the recorded values.
+         */
+        private final long sum;
+
+        /**
+         * Largest recorded value.
+         */
+        private final long max;
+
+        /**
+         * Median.
+         */
+        private final long p50;
+
+        /**
+         * 90th percentile.
+         */
+        private final long p90;
+
+        /**
+         * 99th percentile.
+         */
+        private final long p99;
+
+        /**
+         * Factor converting the values to the base unit of the metric.
+         */
+        private final double unit;
+
+        /**
+         * Snapshot constructor.
+         *
+         * @param count Number of recorded values
+         * @param sum   Sum of the recorded values
+         * @param max   Largest recorded value
+         * @param p50   Median
+         * @param p90   90th percentile
+         * @param p99   99th percentile
+         * @param unit  Factor converting the values to the base unit of the metric
+         */
+        private Snapshot(final long count, final long sum, final long max, final long p50,
+                         final long p90, final long p99, final double unit) {
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+            this.unit = unit;
+        }
+
+        /**
+         * @return Number of recorded values
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return Sum of the recorded values, in the base unit
+         */
+        public double getSum() {
+            return sum * unit;
+        }
+
+        /**
+         * @return Mean of the recorded values, in the base unit
+         */
+        public double getMean() {
+            return count == 0 ? 0 : getSum() / count;
+        }
+
+        /**
+         * @return Largest recorded value, in the base unit
+         */
+        public double getMax() {
+            return max * unit;
+        }
+
+        /**
+         * @return Median, in the base unit
+         */
+        public double getP50() {
+            return p50 * unit;
+        }
+
+        /**
+         * @return 90th percentile, in the base unit
+         */
+        public double getP90() {
+            return p90 * unit;
+        }
+
+        /**
+         * @return 99th percentile, in the base unit
+         */
+        public double getP99() {
+            return p99 * unit;
+        }
+
+        @Override
+        public String toString() {
+            // Durations are easier to read in milliseconds
+            double factor = unit < 1 ? 1000 : 1;
+            String suffix = unit < 1 ? "ms" : "";
+            return String.format("count=%d mean=%.2f%s p50=%.2f%s p90=%.2f%s p99=%.2f%s "
+                            + "max=%.2f%s", count, getMean() * factor, suffix,
+                    getP50() * factor, suffix, getP90() * factor, suffix,
+                    getP99() * factor, suffix, getMax() * factor, suffix);
+        }
+    }
+}
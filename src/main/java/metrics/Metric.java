@@ -0,0 +1,135 @@
+package metrics;
+
+/**
+ * Named measurement registered in {@link Metrics}. Metrics sharing the same name form a family
+ * and are told apart by their labels.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public abstract class Metric {
+
+    /**
+     * Name of the metric family.
+     */
+    private final String name;
+
+    /**
+     * Description of the metric family.
+     */
+    private final String help;
+
+    /**
+     * Label names and values, alternated.
+     */
+    private final String[] labels;
+
+    /**
+     * Metric constructor.
+     *
+     * @param name   Name of the metric family
+     * @param help   Description of the metric family
+     * @param labels Label names and values, alternated
+     */
+    Metric(final String name, final String help, final String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be given as name and value pairs: "
+                    + name);
+        }
+        this.name = name;
+        this.help = help;
+        this.labels = labels.clone();
+    }
+
+    /**
+     * Build the key identifying the metric in the registry, e.g. name{label="value"}.
+     *
+     * @param name   Name of the metric family
+     * @param labels Label names and values, alternated
+     * @return Key of the metric
+     */
+    static String key(final String name, final String... labels) {
+        if (labels.length == 0) {
+            return name;
+        }
+        StringBuilder builder = new StringBuilder(name).append('{');
+        for (int i = 0; i + 1 < labels.length; i += 2) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(labels[i]).append("=\"").append(labels[i + 1]).append('"');
+        }
+        return builder.append('}').toString();
+    }
+
+    /**
+     * @return Type of the metric
+     */
+    public abstract Type getType();
+
+    /**
+     * @return Name of the metric family
+     */
+    public final String getName() {
+        return name;
+    }
+
+    /**
+     * @return Description of the metric family
+     */
+    public final String getHelp() {
+        return help;
+    }
+
+    /**
+     * @return Number of labels
+     */
+    public final int getLabelCount() {
+        return labels.length / 2;
+    }
+
+    /**
+     * @param index Label index
+     * @return Name of the label
+     */
+    public final String getLabelName(final int index) {
+        return labels[index * 2];
+    }
+
+    /**
+     * @param index Label index
+     * @return Value of the label
+     */
+    public final String getLabelValue(final int index) {
+        return labels[index * 2 + 1];
+    }
+
+    /**
+     * @return Key of the metric, e.g. name{label="value"}
+     */
+    public final String getKey() {
+        return key(name, labels);
+    }
+
+    /**
+     * Type of metric.
+     */
+    public enum Type {
+
+        /**
+         * Monotonic count.
+         */
+        COUNTER,
+
+        /**
+         * Value read when the metric is collected.
+         */
+        GAUGE,
+
+        /**
+         * Distribution of recorded values.
+         */
+        HISTOGRAM
+    }
+}
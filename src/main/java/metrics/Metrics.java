@@ -0,0 +1,275 @@
+package metrics;
+
+import config.Config;
+import utils.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * In-process registry of the application metrics. Metrics are created on first lookup and
+ * live until the application exits; callers on hot paths keep the returned instance in a field.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public final class Metrics {
+
+    /**
+     * Default number of minutes between two summaries written to the log.
+     */
+    private static final int DEFAULT_LOG_MINUTES = 15;
+
+    /**
+     * Factor converting nanoseconds to seconds.
+     */
+    private static final double NANOS = 1e-9;
+
+    /**
+     * Registered metrics, mapped by key.
+     */
+    private static final Map<String, Metric> METRICS = new ConcurrentHashMap<>();
+
+    /**
+     * Sorted view of the registered metrics, rebuilt after a registration so collecting the
+     * metrics does not allocate once they are all registered.
+     */
+    private static volatile List<Metric> sorted = Collections.emptyList();
+
+    /**
+     * Number of registrations, tells whether a sorted view built concurrently is up to date.
+     */
+    private static final AtomicInteger REGISTRATIONS = new AtomicInteger();
+
+    /**
+     * Scheduler writing the summaries to the log, created when the logging starts.
+     */
+    private static ScheduledExecutorService scheduler;
+
+    /**
+     * Metrics constructor.
+     */
+    private Metrics() {
+
+    }
+
+    /**
+     * Get or create a counter.
+     *
+     * @param name   Name of the metric family
+     * @param help   Description of the metric family
+     * @param labels Label names and values, alternated
+     * @return Counter
+     */
+    public static Counter counter(final String name, final String help,
+                                  final String... labels) {
+        return lookup(Counter.class, name, labels, () -> new Counter(name, help, labels));
+    }
+
+    /**
+     * Register a gauge, replacing the one previously registered with the same name and labels.
+     *
+     * @param name     Name of the metric family
+     * @param help     Description of the metric family
+     * @param supplier Source of the value, called each time the metric is collected
+     * @param labels   Label names and values, alternated
+     * @return Gauge
+     */
+    public static Gauge gauge(final String name, final String help, final LongSupplier supplier,
+                              final String... labels) {
+        Gauge gauge = new Gauge(name, help, supplier, labels);
+        METRICS.put(gauge.getKey(), gauge);
+        registered();
+        return gauge;
+    }
+
+    /**
+     * Register the gauges monitoring the given executor: number of queued tasks and number of
+     * threads running a task.
+     *
+     * @param name     Name of the executor
+     * @param executor Executor to monitor
+     */
+    public static void monitor(final String name, final ThreadPoolExecutor executor) {
+        gauge("executor_queued_tasks", "Number of tasks waiting in the executor queue",
+                () -> executor.getQueue().size(), "executor", name);
+        gauge("executor_active_threads", "Number of executor threads running a task",
+                executor::getActiveCount, "executor", name);
+    }
+
+    /**
+     * Get or create a histogram of durations, recorded in nanoseconds and exposed in seconds.
+     *
+     * @param name   Name of the metric family
+     * @param help   Description of the metric family
+     * @param labels Label names and values, alternated
+     * @return Histogram
+     */
+    public static Histogram timer(final String name, final String help,
+                                  final String... labels) {
+        return lookup(Histogram.class, name, labels,
+                () -> new Histogram(name, help, NANOS, labels));
+    }
+
+    /**
+     * Get or create a histogram of values recorded in their base unit, e.g. bytes.
+     *
+     * @param name   Name of the metric family
+     * @param help   Description of the metric family
+     * @param labels Label names and values, alternated
+     * @return Histogram
+     */
+    public static Histogram histogram(final String name, final String help,
+                                      final String... labels) {
+        return lookup(Histogram.class, name, labels,
+                () -> new Histogram(name, help, 1, labels));
+    }
+
+    /**
+     * Get or create a metric.
+     *
+     * @param type    Expected metric class
+     * @param name    Name of the metric family
+     * @param labels  Label names and values, alternated
+     * @param factory Factory creating the metric when it does not exist
+     * @param <T>     Metric type
+     * @return Metric
+     */
+    private static <T extends Metric> T lookup(final Class<T> type, final String name,
+                                               final String[] labels,
+                                               final Supplier<T> factory) {
+        String key = Metric.key(name, labels);
+        Metric metric = METRICS.get(key);
+        if (metric == null) {
+            metric = METRICS.computeIfAbsent(key, k -> factory.get());
+            registered();
+        }
+        if (!type.isInstance(metric)) {
+            throw new IllegalArgumentException(key + " is already registered"
+                    + " as a " + metric.getType());
+        }
+        return type.cast(metric);
+    }
+
+    /**
+     * Invalidate the sorted view after a registration.
+     */
+    private static void registered() {
+        REGISTRATIONS.incrementAndGet();
+        sorted = null;
+    }
+
+    /**
+     * @return Registered metrics, sorted by name then labels so families are contiguous
+     */
+    public static List<Metric> getAll() {
+        List<Metric> metrics = sorted;
+        if (metrics == null) {
+            int registrations = REGISTRATIONS.get();
+            List<Metric> list = new ArrayList<>(METRICS.values());
+            list.sort(Comparator.comparing(Metric::getName).thenComparing(Metric::getKey));
+            metrics = Collections.unmodifiableList(list);
+            // Do not cache a view missing a metric registered meanwhile
+            if (REGISTRATIONS.get() == registrations) {
+                sorted = metrics;
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Take a snapshot of the registered metrics.
+     * Counters and gauges are mapped to their value, histograms to their
+     * {@link Histogram.Snapshot}.
+     *
+     * @return Values mapped by metric key, sorted like {@link #getAll()}
+     */
+    public static Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        for (Metric metric : getAll()) {
+            snapshot.put(metric.getKey(), value(metric));
+        }
+        return snapshot;
+    }
+
+    /**
+     * @param metric Metric
+     * @return Current value of the metric
+     */
+    private static Object value(final Metric metric) {
+        switch (metric.getType()) {
+            case COUNTER:
+                return ((Counter) metric).get();
+            case GAUGE:
+                return ((Gauge) metric).get();
+            default:
+                return ((Histogram) metric).snapshot();
+        }
+    }
+
+    /**
+     * Write a summary of the metrics to the log, skipping the ones never recorded.
+     */
+    public static void log() {
+        StringBuilder builder = new StringBuilder("Metrics summary:");
+        for (Metric metric : getAll()) {
+            Object value;
+            try {
+                value = value(metric);
+            } catch (RuntimeException e) {
+                value = e.toString();
+            }
+            boolean recorded = metric.getType() == Metric.Type.GAUGE
+                    || value instanceof Histogram.Snapshot
+                    && ((Histogram.Snapshot) value).getCount() > 0
+                    || value instanceof Long && (Long) value > 0;
+            if (!recorded) {
+                continue;
+            }
+            builder.append(System.lineSeparator()).append("  ").append(metric.getKey())
+                    .append(' ').append(value);
+        }
+        Logger.get(Metrics.class).info(builder.toString());
+    }
+
+    /**
+     * Start writing a summary to the log periodically, every metricsLogMinutes minutes set in
+     * the configuration file (0 disables it). Does nothing if it has already been started.
+     */
+    public static synchronized void startLogging() {
+        if (scheduler != null) {
+            return;
+        }
+        int minutes = Config.getIntValue(Config.PROP_METRICS_LOG_MINUTES_KEY,
+                DEFAULT_LOG_MINUTES);
+        if (minutes <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> {
+            // A periodic task stops for good when it throws
+            try {
+                log();
+            } catch (RuntimeException e) {
+                Logger.get(Metrics.class).error(e);
+            }
+        }, minutes, minutes, TimeUnit.MINUTES);
+    }
+}
@@ -0,0 +1,8 @@
+/**
+ * Metrics package, measuring the application processes in memory.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+package metrics;
@@ -3,6 +3,7 @@ package model;
 import io.objectbox.annotation.Backlink;
 import io.objectbox.annotation.Entity;
 import io.objectbox.annotation.Id;
+import io.objectbox.annotation.Index;
 import io.objectbox.annotation.Transient;
 import io.objectbox.relation.ToMany;
 import utils.Channels;
@@ -12,7 +13,7 @@ import utils.JsonIgnore;
  * Class defining channel.
  *
  * @author Alkisum
- * @version 4.1
+ * @version 4.6
  * @since 1.0
  */
 @Entity
@@ -38,8 +39,33 @@ public class Channel {
     /**
      * YT id.
      */
+    @Index
     private String ytId;
 
+    /**
+     * Number of consecutive refreshes that failed to read the channel feed.
+     */
+    @JsonIgnore
+    private int failureCount;
+
+    /**
+     * Time of the last refresh that failed to read the channel feed.
+     */
+    @JsonIgnore
+    private long lastFailureTime;
+
+    /**
+     * Fingerprint of the feed body the last time it was read.
+     */
+    @JsonIgnore
+    private long feedHash;
+
+    /**
+     * Time the channel was last saved, read by the delta exports.
+     */
+    @JsonIgnore
+    private long updatedAt;
+
     /**
      * List of videos attached to the channel.
      */
@@ -130,6 +156,62 @@ public class Channel {
         this.ytId = ytId;
     }
 
+    /**
+     * @return Number of consecutive refreshes that failed to read the channel feed
+     */
+    public int getFailureCount() {
+        return failureCount;
+    }
+
+    /**
+     * @param failureCount Number of consecutive refreshes that failed to read the channel feed
+     */
+    public void setFailureCount(final int failureCount) {
+        this.failureCount = failureCount;
+    }
+
+    /**
+     * @return Time of the last refresh that failed to read the channel feed
+     */
+    public long getLastFailureTime() {
+        return lastFailureTime;
+    }
+
+    /**
+     * @param lastFailureTime Time of the last refresh that failed to read the channel feed
+     */
+    public void setLastFailureTime(final long lastFailureTime) {
+        this.lastFailureTime = lastFailureTime;
+    }
+
+    /**
+     * @return Fingerprint of the feed body the last time it was read
+     */
+    public long getFeedHash() {
+        return feedHash;
+    }
+
+    /**
+     * @param feedHash Fingerprint of the feed body to set
+     */
+    public void setFeedHash(final long feedHash) {
+        this.feedHash = feedHash;
+    }
+
+    /**
+     * @return Time the channel was last saved
+     */
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    /**
+     * @param updatedAt Time the channel was last saved
+     */
+    public void setUpdatedAt(final long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
     /**
      * @return List of videos attached to the channel
      */
@@ -0,0 +1,115 @@
+package model;
+
+import io.objectbox.annotation.Entity;
+import io.objectbox.annotation.Id;
+import io.objectbox.annotation.Index;
+
+/**
+ * Class defining the trace of a deleted channel or video, read by the delta exports to delete
+ * it from the restored libraries as well.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+@Entity
+public class Tombstone {
+
+    /**
+     * Tombstone id.
+     */
+    @Id
+    private long id;
+
+    /**
+     * YT id of the deleted channel, or of the channel of the deleted video.
+     */
+    private String channelYtId;
+
+    /**
+     * YT id of the deleted video, null if the channel itself has been deleted.
+     */
+    private String videoYtId;
+
+    /**
+     * Time of the deletion.
+     */
+    @Index
+    private long deletedAt;
+
+    /**
+     * Tombstone constructor.
+     */
+    public Tombstone() {
+
+    }
+
+    /**
+     * Tombstone constructor.
+     *
+     * @param channelYtId YT id of the deleted channel, or of the channel of the deleted video
+     * @param videoYtId   YT id of the deleted video, null if the channel has been deleted
+     * @param deletedAt   Time of the deletion
+     */
+    public Tombstone(final String channelYtId, final String videoYtId, final long deletedAt) {
+        this.channelYtId = channelYtId;
+        this.videoYtId = videoYtId;
+        this.deletedAt = deletedAt;
+    }
+
+    /**
+     * @return Tombstone id
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * @param id Tombstone id to set
+     */
+    public void setId(final long id) {
+        this.id = id;
+    }
+
+    /**
+     * @return YT id of the deleted channel, or of the channel of the deleted video
+     */
+    public String getChannelYtId() {
+        return channelYtId;
+    }
+
+    /**
+     * @param channelYtId YT id of the deleted channel, or of the channel of the deleted video
+     */
+    public void setChannelYtId(final String channelYtId) {
+        this.channelYtId = channelYtId;
+    }
+
+    /**
+     * @return YT id of the deleted video, null if the channel has been deleted
+     */
+    public String getVideoYtId() {
+        return videoYtId;
+    }
+
+    /**
+     * @param videoYtId YT id of the deleted video, null if the channel has been deleted
+     */
+    public void setVideoYtId(final String videoYtId) {
+        this.videoYtId = videoYtId;
+    }
+
+    /**
+     * @return Time of the deletion
+     */
+    public long getDeletedAt() {
+        return deletedAt;
+    }
+
+    /**
+     * @param deletedAt Time of the deletion
+     */
+    public void setDeletedAt(final long deletedAt) {
+        this.deletedAt = deletedAt;
+    }
+}
@@ -3,6 +3,7 @@ package model;
 import config.Config;
 import io.objectbox.annotation.Entity;
 import io.objectbox.annotation.Id;
+import io.objectbox.annotation.Index;
 import io.objectbox.relation.ToOne;
 import utils.JsonIgnore;
 import utils.Videos;
@@ -14,7 +15,7 @@ import java.io.IOException;
  * Class defining video.
  *
  * @author Alkisum
- * @version 4.1
+ * @version 4.6
  * @since 1.0
  */
 @Entity
@@ -53,8 +54,10 @@ public class Video {
     private long duration;
 
     /**
-     * ID used by YT to identify the video.
+     * ID used by YT to identify the video, indexed as the videos are looked up by it for each
+     * feed entry, pushed entry and video marked as watched through the API.
      */
+    @Index
     private String ytId;
 
     /**
@@ -62,6 +65,13 @@ public class Video {
      */
     private String startTime;
 
+    /**
+     * Time the video was last saved, read by the delta exports.
+     */
+    @Index
+    @JsonIgnore
+    private long updatedAt;
+
     /**
      * Video's channel.
      */
@@ -116,6 +126,13 @@ public class Video {
         return title;
     }
 
+    /**
+     * @param title Video title to set
+     */
+    public void setTitle(final String title) {
+        this.title = title;
+    }
+
     /**
      * @return Video URL
      */
@@ -191,10 +208,24 @@ public class Video {
     }
 
     /**
-     * @param startTime Time the video should be started
+     * @param startTime Time the video should be started, an empty time being stored as null
      */
     public void setStartTime(final String startTime) {
-        this.startTime = startTime;
+        this.startTime = startTime == null || startTime.isEmpty() ? null : startTime;
+    }
+
+    /**
+     * @return Time the video was last saved
+     */
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    /**
+     * @param updatedAt Time the video was last saved
+     */
+    public void setUpdatedAt(final long updatedAt) {
+        this.updatedAt = updatedAt;
     }
 
     /**
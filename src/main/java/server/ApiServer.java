@@ -0,0 +1,533 @@
+package server;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import config.Config;
+import database.ObjectBox;
+import metrics.Metrics;
+import model.Channel;
+import model.Video;
+import utils.Channels;
+import utils.Logger;
+import utils.Videos;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Local HTTP server exposing the subscription database as JSON, for other tools such as media
+ * center front ends. The server only listens on the loopback address.
+ * <p>
+ * GET responses carry an entity tag built from the database revision, so a client polling with
+ * If-None-Match gets a 304 response without the database being queried when nothing changed.
+ * <p>
+ * A web page opened in a browser can send requests to the loopback address as well: the POST
+ * requests must have a JSON body, which a page cannot send without a preflight request that is
+ * never allowed, and the requests coming from another origin are rejected. If a token is set in
+ * the configuration file, every request must also carry it as a bearer token.
+ * <ul>
+ * <li>GET /api/videos/unwatched?offset=&amp;limit= - Unwatched videos of subscribed channels</li>
+ * <li>GET /api/channels - Channels</li>
+ * <li>GET /api/channels/{ytId}/videos?offset=&amp;limit= - Videos of a channel</li>
+ * <li>POST /api/videos/watched - Set the watched state of videos, the body being
+ * {"ytIds": [...], "watched": true}</li>
+ * </ul>
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public class ApiServer {
+
+    /**
+     * Argument starting the API server without the GUI.
+     */
+    public static final String SERVE_ARG = "--serve";
+
+    /**
+     * Port used when the server is started without the GUI and no port is configured.
+     */
+    private static final int DEFAULT_PORT = 8642;
+
+    /**
+     * Number of threads handling the requests.
+     */
+    private static final int THREAD_COUNT = 2;
+
+    /**
+     * Default number of items in a page.
+     */
+    private static final int DEFAULT_LIMIT = 50;
+
+    /**
+     * Maximum number of items in a page.
+     */
+    private static final int MAX_LIMIT = 500;
+
+    /**
+     * Maximum size of a request body in bytes.
+     */
+    private static final int MAX_BODY_SIZE = 1024 * 1024;
+
+    /**
+     * Prefix of the channel endpoints.
+     */
+    private static final String CHANNELS_PATH = "/api/channels";
+
+    /**
+     * Media type of the request bodies.
+     */
+    private static final String JSON_TYPE = "application/json";
+
+    /**
+     * Scheme of the Authorization header carrying the token.
+     */
+    private static final String BEARER = "Bearer ";
+
+    /**
+     * HTTP server.
+     */
+    private final HttpServer server;
+
+    /**
+     * Token the requests must carry, null if none is required.
+     */
+    private final String token;
+
+    /**
+     * Executor handling the requests.
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * ApiServer constructor.
+     *
+     * @param port Port to listen on, 0 for any free port
+     * @throws IOException The server could not be bound to the port, or the configuration file
+     *                     could not be read
+     */
+    public ApiServer(final int port) throws IOException {
+        String configToken = Config.getValue(Config.PROP_API_TOKEN_KEY);
+        token = configToken == null || configToken.isBlank() ? null : configToken.trim();
+        server = HttpServer.create(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(THREAD_COUNT, runnable -> {
+            Thread thread = new Thread(runnable, "api-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Metrics.monitor("api", executor);
+        server.setExecutor(executor);
+        server.createContext("/api/videos/unwatched", guard(authorize(this::handleUnwatched)));
+        server.createContext("/api/videos/watched", guard(authorize(this::handleWatched)));
+        server.createContext(CHANNELS_PATH, guard(authorize(this::handleChannels)));
+    }
+
+    /**
+     * Start the server if a port is set in the configuration file.
+     *
+     * @return Started server, null if the API is disabled or the server could not be started
+     */
+    public static ApiServer startIfEnabled() {
+        int port = Config.getIntValue(Config.PROP_API_PORT_KEY, 0);
+        if (port <= 0) {
+            return null;
+        }
+        try {
+            ApiServer apiServer = new ApiServer(port);
+            apiServer.start();
+            return apiServer;
+        } catch (IOException e) {
+            Logger.get(ApiServer.class).error("Cannot start API server on port " + port, e);
+            return null;
+        }
+    }
+
+    /**
+     * Run the server, and the WebSub subscriber and the metrics server if enabled, without the
+     * GUI until the process is stopped.
+     *
+     * @param args Arguments, starting with {@link #SERVE_ARG}
+     * @throws IOException The server could not be started
+     */
+    public static void main(final String[] args) throws IOException {
+        Config.setDefaultValues();
+        ApiServer apiServer = new ApiServer(
+                Config.getIntValue(Config.PROP_API_PORT_KEY, DEFAULT_PORT));
+        apiServer.start();
+        WebSubSubscriber webSubSubscriber = WebSubSubscriber.startIfEnabled(null);
+        MetricsServer metricsServer = MetricsServer.startIfEnabled();
+        Metrics.startLogging();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            apiServer.stop();
+            if (webSubSubscriber != null) {
+                webSubSubscriber.stop();
+            }
+            if (metricsServer != null) {
+                metricsServer.stop();
+            }
+            ObjectBox.close();
+            Metrics.log();
+        }));
+        // The request threads are daemons, keep the process alive until it is stopped
+        try {
+            Thread.currentThread().join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Start the server.
+     */
+    public final void start() {
+        server.start();
+        Logger.get(ApiServer.class).info("API server listening on " + server.getAddress());
+    }
+
+    /**
+     * Stop the server, waiting at most a second for the running exchanges.
+     */
+    public final void stop() {
+        server.stop(1);
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return Port the server is listening on
+     */
+    public final int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Handle the requests for the unwatched videos.
+     *
+     * @param exchange Exchange
+     * @throws IOException An error occurred while sending the response
+     */
+    private void handleUnwatched(final HttpExchange exchange) throws IOException {
+        if (!checkGet(exchange) || !checkPath(exchange, "/api/videos/unwatched")) {
+            return;
+        }
+        String etag = etag();
+        if (Exchanges.notModified(exchange, etag)) {
+            Exchanges.sendNotModified(exchange, etag);
+            return;
+        }
+        Map<String, String> query = Exchanges.query(exchange);
+        int offset = parseParameter(query, "offset", 0, 0, Integer.MAX_VALUE);
+        int limit = parseParameter(query, "limit", DEFAULT_LIMIT, 1, MAX_LIMIT);
+        if (offset < 0 || limit < 0) {
+            Exchanges.sendError(exchange, 400, "Invalid offset or limit");
+            return;
+        }
+        exchange.getResponseHeaders().set("ETag", etag);
+        Exchanges.sendJson(exchange, 200, page(Videos.countUnwatchedVideos(), offset, limit,
+                Videos.getUnwatchedVideos(offset, limit)));
+    }
+
+    /**
+     * Handle the requests for the channels and their videos.
+     *
+     * @param exchange Exchange
+     * @throws IOException An error occurred while sending the response
+     */
+    private void handleChannels(final HttpExchange exchange) throws IOException {
+        if (!checkGet(exchange)) {
+            return;
+        }
+        String path = exchange.getRequestURI().getPath();
+        String[] segments = path.substring(CHANNELS_PATH.length()).split("/");
+        // Either "/api/channels" or "/api/channels/{ytId}/videos"
+        boolean list = segments.length == 0 || segments.length == 1 && segments[0].isEmpty();
+        boolean videos = segments.length == 3 && segments[0].isEmpty()
+                && !segments[1].isEmpty() && segments[2].equals("videos");
+        if (!list && !videos) {
+            Exchanges.sendError(exchange, 404, "Not found");
+            return;
+        }
+
+        String etag = etag();
+        if (Exchanges.notModified(exchange, etag)) {
+            Exchanges.sendNotModified(exchange, etag);
+            return;
+        }
+
+        if (list) {
+            JsonArray items = new JsonArray();
+            for (Channel channel : Channels.getAllOrderByName()) {
+                items.add(toJson(channel));
+            }
+            exchange.getResponseHeaders().set("ETag", etag);
+            Exchanges.sendJson(exchange, 200, items);
+            return;
+        }
+
+        Channel channel = Channels.getByYtId(segments[1]);
+        if (channel == null) {
+            Exchanges.sendError(exchange, 404, "Unknown channel: " + segments[1]);
+            return;
+        }
+        Map<String, String> query = Exchanges.query(exchange);
+        int offset = parseParameter(query, "offset", 0, 0, Integer.MAX_VALUE);
+        int limit = parseParameter(query, "limit", DEFAULT_LIMIT, 1, MAX_LIMIT);
+        if (offset < 0 || limit < 0) {
+            Exchanges.sendError(exchange, 400, "Invalid offset or limit");
+            return;
+        }
+        exchange.getResponseHeaders().set("ETag", etag);
+        Exchanges.sendJson(exchange, 200, page(Videos.countByChannelId(channel.getId()),
+                offset, limit, Videos.getByChannelId(channel.getId(), offset, limit)));
+    }
+
+    /**
+     * Handle the requests setting the watched state of videos.
+     *
+     * @param exchange Exchange
+     * @throws IOException An error occurred while sending the response
+     */
+    private void handleWatched(final HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().set("Allow", "POST");
+            Exchanges.sendError(exchange, 405, "Method not allowed");
+            return;
+        }
+        if (!checkPath(exchange, "/api/videos/watched")) {
+            return;
+        }
+        // A form or a text/plain body can be posted by any web page without preflight
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (contentType == null || !contentType.split(";")[0].trim()
+                .equalsIgnoreCase(JSON_TYPE)) {
+            Exchanges.sendError(exchange, 415, "Expected " + JSON_TYPE);
+            return;
+        }
+        byte[] body = Exchanges.readBody(exchange, MAX_BODY_SIZE);
+        if (body == null) {
+            Exchanges.sendError(exchange, 413, "Request body too large");
+            return;
+        }
+
+        List<String> ytIds = new ArrayList<>();
+        boolean watched = true;
+        try {
+            JsonObject json = JsonParser.parseString(new String(body, StandardCharsets.UTF_8))
+                    .getAsJsonObject();
+            for (JsonElement ytId : json.getAsJsonArray("ytIds")) {
+                ytIds.add(ytId.getAsString());
+            }
+            if (json.has("watched")) {
+                watched = json.get("watched").getAsBoolean();
+            }
+        } catch (JsonParseException | IllegalStateException | ClassCastException
+                | UnsupportedOperationException | NullPointerException e) {
+            Exchanges.sendError(exchange, 400,
+                    "Expected {\"ytIds\": [...], \"watched\": true|false}");
+            return;
+        }
+
+        JsonObject result = new JsonObject();
+        result.addProperty("updated", Videos.setWatched(watched, ytIds));
+        Exchanges.sendJson(exchange, 200, result);
+    }
+
+    /**
+     * Wrap the given handler so that unexpected errors are logged and answered with a 500
+     * response instead of closing the connection.
+     *
+     * @param handler Handler to wrap
+     * @return Wrapped handler
+     */
+    static HttpHandler guard(final HttpHandler handler) {
+        return exchange -> {
+            try {
+                handler.handle(exchange);
+            } catch (RuntimeException e) {
+                Logger.get(ApiServer.class).error(e);
+                Exchanges.sendError(exchange, 500, "Internal server error");
+            }
+        };
+    }
+
+    /**
+     * Wrap the given handler so that the requests coming from another origin are answered with
+     * a 403 response, and the requests without the configured token with a 401 response.
+     *
+     * @param handler Handler to wrap
+     * @return Wrapped handler
+     */
+    private HttpHandler authorize(final HttpHandler handler) {
+        return exchange -> {
+            String origin = exchange.getRequestHeaders().getFirst("Origin");
+            if (origin != null && !isLocalOrigin(origin)) {
+                Exchanges.sendError(exchange, 403, "Forbidden origin");
+                return;
+            }
+            if (token != null) {
+                String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+                if (authorization == null || !authorization.startsWith(BEARER)
+                        || !MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8),
+                        authorization.substring(BEARER.length()).trim()
+                                .getBytes(StandardCharsets.UTF_8))) {
+                    exchange.getResponseHeaders().set("WWW-Authenticate", "Bearer");
+                    Exchanges.sendError(exchange, 401, "Invalid token");
+                    return;
+                }
+            }
+            handler.handle(exchange);
+        };
+    }
+
+    /**
+     * @param origin Origin header of a request
+     * @return true if the origin is the server itself, false for any other web page
+     */
+    private boolean isLocalOrigin(final String origin) {
+        int port = getPort();
+        return origin.equals("http://127.0.0.1:" + port)
+                || origin.equals("http://localhost:" + port);
+    }
+
+    /**
+     * Check the request method is GET or HEAD, send a 405 response otherwise.
+     *
+     * @param exchange Exchange
+     * @return true if the request method is allowed, false otherwise
+     * @throws IOException An error occurred while sending the response
+     */
+    static boolean checkGet(final HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        if ("GET".equals(method) || "HEAD".equals(method)) {
+            return true;
+        }
+        exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+        Exchanges.sendError(exchange, 405, "Method not allowed");
+        return false;
+    }
+
+    /**
+     * Check the request path is exactly the given path, send a 404 response otherwise.
+     *
+     * @param exchange Exchange
+     * @param path     Expected path
+     * @return true if the path matches, false otherwise
+     * @throws IOException An error occurred while sending the response
+     */
+    static boolean checkPath(final HttpExchange exchange, final String path)
+            throws IOException {
+        String requestPath = exchange.getRequestURI().getPath();
+        if (requestPath.equals(path) || requestPath.equals(path + "/")) {
+            return true;
+        }
+        Exchanges.sendError(exchange, 404, "Not found");
+        return false;
+    }
+
+    /**
+     * @return Entity tag of the current database revision
+     */
+    private static String etag() {
+        return "W/\"" + Long.toHexString(ObjectBox.getRevision()) + "\"";
+    }
+
+    /**
+     * Parse a paging parameter.
+     *
+     * @param query        Query parameters
+     * @param name         Parameter name
+     * @param defaultValue Value if the parameter is missing
+     * @param min          Minimum value, a lower value is invalid
+     * @param max          Maximum value, a higher value is lowered to it
+     * @return Parameter value, -1 if it is invalid
+     */
+    private static int parseParameter(final Map<String, String> query, final String name,
+                                      final int defaultValue, final int min, final int max) {
+        String value = query.get(name);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(value);
+            // A limit of 0 would be read as no limit by the queries
+            if (parsed < min) {
+                return -1;
+            }
+            return Math.min(max, parsed);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Build a page of videos.
+     *
+     * @param total  Total number of videos
+     * @param offset Number of videos skipped
+     * @param limit  Maximum number of videos in the page
+     * @param videos Videos of the page
+     * @return JSON page
+     */
+    private static JsonObject page(final long total, final int offset, final int limit,
+                                   final List<Video> videos) {
+        JsonArray items = new JsonArray();
+        for (Video video : videos) {
+            items.add(toJson(video));
+        }
+        JsonObject json = new JsonObject();
+        json.addProperty("total", total);
+        json.addProperty("offset", offset);
+        json.addProperty("limit", limit);
+        json.add("items", items);
+        return json;
+    }
+
+    /**
+     * @param channel Channel
+     * @return JSON representation of the channel
+     */
+    private static JsonObject toJson(final Channel channel) {
+        JsonObject json = new JsonObject();
+        json.addProperty("ytId", channel.getYtId());
+        json.addProperty("name", channel.getName());
+        json.addProperty("subscribed", channel.isSubscribed());
+        json.addProperty("unwatched", Channels.countUnwatchedVideos(channel.getId()));
+        return json;
+    }
+
+    /**
+     * @param video Video
+     * @return JSON representation of the video
+     */
+    private static JsonObject toJson(final Video video) {
+        JsonObject json = new JsonObject();
+        json.addProperty("ytId", video.getYtId());
+        json.addProperty("title", video.getTitle());
+        json.addProperty("url", video.getUrl());
+        json.addProperty("time", video.getTime());
+        json.addProperty("duration", video.getDuration());
+        json.addProperty("watched", video.isWatched());
+        json.addProperty("startTime", video.getStartTime());
+        json.addProperty("thumbnailUrl", video.getThumbnailUrl());
+        Channel channel = video.getChannel().getTarget();
+        if (channel != null) {
+            json.addProperty("channelYtId", channel.getYtId());
+            json.addProperty("channelName", channel.getName());
+        }
+        return json;
+    }
+}
@@ -0,0 +1,215 @@
+package server;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Utility class for the exchanges of the embedded HTTP server.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public final class Exchanges {
+
+    /**
+     * Content type of the JSON responses.
+     */
+    private static final String JSON_TYPE = "application/json; charset=utf-8";
+
+    /**
+     * Content type of the text responses.
+     */
+    private static final String TEXT_TYPE = "text/plain; charset=utf-8";
+
+    /**
+     * Exchanges constructor.
+     */
+    private Exchanges() {
+
+    }
+
+    /**
+     * Parse the query string of the request.
+     *
+     * @param exchange Exchange
+     * @return Query parameters mapped by name, the last value wins
+     */
+    public static Map<String, String> query(final HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int index = pair.indexOf('=');
+            String name = index < 0 ? pair : pair.substring(0, index);
+            String value = index < 0 ? "" : pair.substring(index + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    /**
+     * Read the request body.
+     *
+     * @param exchange Exchange
+     * @param maxSize  Maximum size of the body in bytes
+     * @return Request body, null if it is larger than the maximum size
+     * @throws IOException An error occurred while reading the body
+     */
+    public static byte[] readBody(final HttpExchange exchange, final int maxSize)
+            throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                if (out.size() + read > maxSize) {
+                    return null;
+                }
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Check whether the request carries the given entity tag in its If-None-Match header.
+     *
+     * @param exchange Exchange
+     * @param etag     Entity tag of the current representation
+     * @return true if the client already has the current representation, false otherwise
+     */
+    public static boolean notModified(final HttpExchange exchange, final String etag) {
+        String header = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (header == null) {
+            return false;
+        }
+        for (String tag : header.split(",")) {
+            String value = tag.trim();
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Send a 304 Not Modified response.
+     *
+     * @param exchange Exchange
+     * @param etag     Entity tag of the current representation
+     * @throws IOException An error occurred while sending the response
+     */
+    public static void sendNotModified(final HttpExchange exchange, final String etag)
+            throws IOException {
+        exchange.getResponseHeaders().set("ETag", etag);
+        exchange.sendResponseHeaders(304, -1);
+        exchange.close();
+    }
+
+    /**
+     * Send a JSON response.
+     *
+     * @param exchange Exchange
+     * @param code     Status code
+     * @param json     JSON body
+     * @throws IOException An error occurred while sending the response
+     */
+    public static void sendJson(final HttpExchange exchange, final int code,
+                                final JsonElement json) throws IOException {
+        send(exchange, code, JSON_TYPE, json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Send a JSON error response.
+     *
+     * @param exchange Exchange
+     * @param code     Status code
+     * @param message  Error message
+     * @throws IOException An error occurred while sending the response
+     */
+    public static void sendError(final HttpExchange exchange, final int code,
+                                 final String message) throws IOException {
+        JsonObject json = new JsonObject();
+        json.addProperty("error", message);
+        sendJson(exchange, code, json);
+    }
+
+    /**
+     * Send a text response.
+     *
+     * @param exchange Exchange
+     * @param code     Status code
+     * @param text     Text body
+     * @throws IOException An error occurred while sending the response
+     */
+    public static void sendText(final HttpExchange exchange, final int code, final String text)
+            throws IOException {
+        send(exchange, code, TEXT_TYPE, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Send a response with an empty body.
+     *
+     * @param exchange Exchange
+     * @param code     Status code
+     * @throws IOException An error occurred while sending the response
+     */
+    public static void sendEmpty(final HttpExchange exchange, final int code)
+            throws IOException {
+        exchange.sendResponseHeaders(code, -1);
+        exchange.close();
+    }
+
+    /**
+     * Send a response.
+     *
+     * @param exchange    Exchange
+     * @param code        Status code
+     * @param contentType Content type of the body
+     * @param body        Body
+     * @throws IOException An error occurred while sending the response
+     */
+    public static void send(final HttpExchange exchange, final int code,
+                            final String contentType, final byte[] body) throws IOException {
+        send(exchange, code, contentType, body, body.length);
+    }
+
+    /**
+     * Send a response whose body is the beginning of the given buffer.
+     *
+     * @param exchange    Exchange
+     * @param code        Status code
+     * @param contentType Content type of the body
+     * @param buffer      Buffer starting with the body
+     * @param length      Length of the body
+     * @throws IOException An error occurred while sending the response
+     */
+    public static void send(final HttpExchange exchange, final int code,
+                            final String contentType, final byte[] buffer, final int length)
+            throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        // A length of -1 means no body, 0 would mean a chunked body
+        boolean empty = length == 0 || "HEAD".equals(exchange.getRequestMethod());
+        exchange.sendResponseHeaders(code, empty ? -1 : length);
+        if (!empty) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(buffer, 0, length);
+            }
+        }
+        exchange.close();
+    }
+}
@@ -0,0 +1,177 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import config.Config;
+import database.ObjectBox;
+import metrics.Metrics;
+import utils.Channels;
+import utils.Logger;
+import utils.Videos;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * HTTP server exposing the metrics in the OpenMetrics text format at /metrics, to be scraped by
+ * Prometheus. It is disabled unless a port is set in the configuration file and listens on the
+ * loopback address unless another address is configured.
+ * <p>
+ * Besides the metrics recorded by the application (refresh durations, channel failures,
+ * latencies...), the server registers gauges for the database size, the unwatched backlog, the
+ * channels, the executor queues and the JVM memory, read on each scrape.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public class MetricsServer {
+
+    /**
+     * Path of the metrics.
+     */
+    private static final String METRICS_PATH = "/metrics";
+
+    /**
+     * Content type of the OpenMetrics text format.
+     */
+    private static final String CONTENT_TYPE =
+            "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    /**
+     * HTTP server.
+     */
+    private final HttpServer server;
+
+    /**
+     * Executor handling the scrapes, a single thread is enough and lets the writer reuse its
+     * buffers.
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Writer rendering the metrics.
+     */
+    private final OpenMetricsWriter writer = new OpenMetricsWriter();
+
+    /**
+     * MetricsServer constructor.
+     *
+     * @param address Address to listen on
+     * @param port    Port to listen on, 0 for any free port
+     * @throws IOException The server could not be bound to the port
+     */
+    public MetricsServer(final InetAddress address, final int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(address, port), 0);
+        executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(1, runnable -> {
+            Thread thread = new Thread(runnable, "metrics-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext(METRICS_PATH, ApiServer.guard(this::handle));
+    }
+
+    /**
+     * Start the server if a port is set in the configuration file.
+     *
+     * @return Started server, null if the endpoint is disabled or the server could not be
+     * started
+     */
+    public static MetricsServer startIfEnabled() {
+        int port = Config.getIntValue(Config.PROP_METRICS_PORT_KEY, 0);
+        if (port <= 0) {
+            return null;
+        }
+        try {
+            String address = Config.getValue(Config.PROP_METRICS_ADDRESS_KEY);
+            MetricsServer metricsServer = new MetricsServer(address == null || address.isBlank()
+                    ? InetAddress.getLoopbackAddress() : InetAddress.getByName(address.trim()),
+                    port);
+            metricsServer.start();
+            return metricsServer;
+        } catch (IOException e) {
+            Logger.get(MetricsServer.class).error("Cannot start metrics server on port " + port,
+                    e);
+            return null;
+        }
+    }
+
+    /**
+     * Start the server.
+     */
+    public final void start() {
+        registerGauges();
+        Metrics.monitor("metrics", executor);
+        server.start();
+        Logger.get(MetricsServer.class).info("Metrics server listening on "
+                + server.getAddress());
+    }
+
+    /**
+     * Stop the server, waiting at most a second for the running exchanges.
+     */
+    public final void stop() {
+        server.stop(1);
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return Port the server is listening on
+     */
+    public final int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Handle a scrape.
+     *
+     * @param exchange Exchange
+     * @throws IOException An error occurred while sending the response
+     */
+    private void handle(final HttpExchange exchange) throws IOException {
+        if (!ApiServer.checkGet(exchange) || !ApiServer.checkPath(exchange, METRICS_PATH)) {
+            return;
+        }
+        synchronized (writer) {
+            int length = writer.write(Metrics.getAll());
+            Exchanges.send(exchange, 200, CONTENT_TYPE, writer.getBuffer(), length);
+        }
+    }
+
+    /**
+     * Register the gauges read on each scrape.
+     */
+    private static void registerGauges() {
+        Metrics.gauge("db_size_bytes", "Size of the database files", ObjectBox::getSizeOnDisk);
+        Metrics.gauge("videos_unwatched", "Number of unwatched videos of subscribed channels",
+                Videos::countUnwatchedVideos);
+        Metrics.gauge("channels", "Number of channels", Channels::count);
+        Metrics.gauge("channels_quarantined", "Number of quarantined channels",
+                Channels::countQuarantined);
+
+        // The heap is read from the runtime, which does not allocate
+        Runtime runtime = Runtime.getRuntime();
+        String used = "jvm_memory_used_bytes";
+        String usedHelp = "Memory used by the JVM";
+        String committed = "jvm_memory_committed_bytes";
+        String committedHelp = "Memory committed by the JVM";
+        Metrics.gauge(used, usedHelp, () -> runtime.totalMemory() - runtime.freeMemory(),
+                "area", "heap");
+        Metrics.gauge(committed, committedHelp, runtime::totalMemory, "area", "heap");
+        Metrics.gauge("jvm_memory_max_bytes", "Maximum memory the JVM can use",
+                runtime::maxMemory, "area", "heap");
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        Metrics.gauge(used, usedHelp, () -> memory.getNonHeapMemoryUsage().getUsed(),
+                "area", "nonheap");
+        Metrics.gauge(committed, committedHelp,
+                () -> memory.getNonHeapMemoryUsage().getCommitted(), "area", "nonheap");
+        Metrics.gauge("jvm_threads", "Number of live threads",
+                () -> ManagementFactory.getThreadMXBean().getThreadCount());
+    }
+}
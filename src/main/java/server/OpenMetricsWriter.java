@@ -0,0 +1,253 @@
+package server;
+
+import metrics.Counter;
+import metrics.Gauge;
+import metrics.Histogram;
+import metrics.Metric;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writer rendering the metrics in the OpenMetrics text format. The text and byte buffers are
+ * reused from one scrape to the next, so rendering only allocates when the buffers need to
+ * grow. Not thread safe.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+final class OpenMetricsWriter {
+
+    /**
+     * Quantiles exposed for the histograms, rendered as summaries.
+     */
+    private static final double[] QUANTILES = {50, 90, 99};
+
+    /**
+     * Label values of the quantiles.
+     */
+    private static final String[] QUANTILE_LABELS = {"0.5", "0.9", "0.99"};
+
+    /**
+     * Suffix of the counter samples.
+     */
+    private static final String TOTAL = "_total";
+
+    /**
+     * Text being rendered.
+     */
+    private final StringBuilder text = new StringBuilder(16384);
+
+    /**
+     * Encoded text.
+     */
+    private byte[] buffer = new byte[16384];
+
+    /**
+     * Render the given metrics into the buffer.
+     *
+     * @param metrics Metrics sorted by name, so the families are contiguous
+     * @return Length of the rendered text in the buffer
+     */
+    int write(final List<Metric> metrics) {
+        text.setLength(0);
+        String family = null;
+        for (Metric metric : metrics) {
+            if (!metric.getName().equals(family)) {
+                family = metric.getName();
+                writeHeader(metric);
+            }
+            switch (metric.getType()) {
+                case COUNTER:
+                    writeCounter((Counter) metric);
+                    break;
+                case GAUGE:
+                    writeGauge((Gauge) metric);
+                    break;
+                default:
+                    writeHistogram((Histogram) metric);
+                    break;
+            }
+        }
+        text.append("# EOF\n");
+        return encode();
+    }
+
+    /**
+     * @return Buffer starting with the rendered text
+     */
+    byte[] getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Write the TYPE and HELP lines of a metric family.
+     *
+     * @param metric First metric of the family
+     */
+    private void writeHeader(final Metric metric) {
+        String type;
+        switch (metric.getType()) {
+            case COUNTER:
+                type = "counter";
+                break;
+            case GAUGE:
+                type = "gauge";
+                break;
+            default:
+                type = "summary";
+                break;
+        }
+        text.append("# TYPE ");
+        appendFamily(metric);
+        text.append(' ').append(type).append('\n');
+        if (metric.getHelp() != null) {
+            text.append("# HELP ");
+            appendFamily(metric);
+            text.append(' ');
+            appendEscaped(metric.getHelp());
+            text.append('\n');
+        }
+    }
+
+    /**
+     * Write the sample of a counter.
+     *
+     * @param counter Counter
+     */
+    private void writeCounter(final Counter counter) {
+        appendFamily(counter);
+        text.append(TOTAL);
+        appendLabels(counter, null, null);
+        text.append(' ').append(counter.get()).append('\n');
+    }
+
+    /**
+     * Write the sample of a gauge, nothing if its value cannot be read.
+     *
+     * @param gauge Gauge
+     */
+    private void writeGauge(final Gauge gauge) {
+        long value;
+        try {
+            value = gauge.get();
+        } catch (RuntimeException e) {
+            // e.g. the database is being closed, the sample is left out of this scrape
+            return;
+        }
+        text.append(gauge.getName());
+        appendLabels(gauge, null, null);
+        text.append(' ').append(value).append('\n');
+    }
+
+    /**
+     * Write the samples of a histogram, as a summary with its quantiles, sum and count.
+     *
+     * @param histogram Histogram
+     */
+    private void writeHistogram(final Histogram histogram) {
+        double unit = histogram.getUnit();
+        for (int i = 0; i < QUANTILES.length; i++) {
+            text.append(histogram.getName());
+            appendLabels(histogram, "quantile", QUANTILE_LABELS[i]);
+            text.append(' ').append(histogram.getValueAtPercentile(QUANTILES[i]) * unit)
+                    .append('\n');
+        }
+        text.append(histogram.getName()).append("_sum");
+        appendLabels(histogram, null, null);
+        text.append(' ').append(histogram.getSum() * unit).append('\n');
+        text.append(histogram.getName()).append("_count");
+        appendLabels(histogram, null, null);
+        text.append(' ').append(histogram.getCount()).append('\n');
+    }
+
+    /**
+     * Append the family name of the metric, the counter names lose their _total suffix.
+     *
+     * @param metric Metric
+     */
+    private void appendFamily(final Metric metric) {
+        String name = metric.getName();
+        if (metric.getType() == Metric.Type.COUNTER && name.endsWith(TOTAL)) {
+            text.append(name, 0, name.length() - TOTAL.length());
+        } else {
+            text.append(name);
+        }
+    }
+
+    /**
+     * Append the labels of the metric, followed by the given extra label.
+     *
+     * @param metric     Metric
+     * @param extraName  Name of the extra label, null for none
+     * @param extraValue Value of the extra label
+     */
+    private void appendLabels(final Metric metric, final String extraName,
+                              final String extraValue) {
+        int count = metric.getLabelCount();
+        if (count == 0 && extraName == null) {
+            return;
+        }
+        text.append('{');
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(',');
+            }
+            text.append(metric.getLabelName(i)).append("=\"");
+            appendEscaped(metric.getLabelValue(i));
+            text.append('"');
+        }
+        if (extraName != null) {
+            if (count > 0) {
+                text.append(',');
+            }
+            text.append(extraName).append("=\"").append(extraValue).append('"');
+        }
+        text.append('}');
+    }
+
+    /**
+     * Append the given label value or help text, escaping backslashes, quotes and new lines.
+     *
+     * @param value Value to append
+     */
+    private void appendEscaped(final String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                text.append('\\').append(c);
+            } else if (c == '\n') {
+                text.append("\\n");
+            } else {
+                text.append(c);
+            }
+        }
+    }
+
+    /**
+     * Encode the text into the buffer, growing it if needed.
+     *
+     * @return Length of the encoded text
+     */
+    private int encode() {
+        int length = text.length();
+        if (buffer.length < length) {
+            buffer = new byte[Math.max(length, buffer.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                // Label values are nearly always ASCII, fall back to a full encoding otherwise
+                byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+                if (buffer.length < bytes.length) {
+                    buffer = new byte[bytes.length];
+                }
+                System.arraycopy(bytes, 0, buffer, 0, bytes.length);
+                return bytes.length;
+            }
+            buffer[i] = (byte) c;
+        }
+        return length;
+    }
+}
@@ -0,0 +1,581 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import config.Config;
+import metrics.Metrics;
+import model.Channel;
+import model.Video;
+import service.FeedEntry;
+import service.FeedParser;
+import utils.Channels;
+import utils.Http;
+import utils.Logger;
+import utils.Videos;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WebSub (PubSubHubbub) subscriber receiving the new videos pushed by the hub, so they show up
+ * without waiting for the next refresh.
+ * Each channel topic is subscribed to at start up, the leases are renewed before they expire and
+ * the pushed entries are decoded with the same {@link FeedParser} as the polled feeds.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public class WebSubSubscriber {
+
+    /**
+     * Default local port receiving the notifications.
+     */
+    private static final int DEFAULT_PORT = 8643;
+
+    /**
+     * Lease requested to the hub, in seconds.
+     */
+    private static final long LEASE_SECONDS = TimeUnit.DAYS.toSeconds(5);
+
+    /**
+     * Part of the lease after which the subscription is renewed.
+     */
+    private static final double RENEWAL_FACTOR = 0.9;
+
+    /**
+     * Delay in minutes before retrying a subscription the hub refused or could not be reached
+     * for.
+     */
+    private static final long RETRY_DELAY = 30;
+
+    /**
+     * Period in minutes of the check subscribing the channels added since the start.
+     */
+    private static final long SYNC_PERIOD = 60;
+
+    /**
+     * Maximum size of a notification body in bytes.
+     */
+    private static final int MAX_BODY_SIZE = 1024 * 1024;
+
+    /**
+     * Length of the generated secret in bytes.
+     */
+    private static final int SECRET_LENGTH = 24;
+
+    /**
+     * HTTP server receiving the verifications and notifications from the hub.
+     */
+    private final HttpServer server;
+
+    /**
+     * Executor sending the subscriptions and processing the notifications, one at a time.
+     */
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * URL of the hub.
+     */
+    private final String hubUrl;
+
+    /**
+     * Public URL the hub sends the notifications to.
+     */
+    private final String callbackUrl;
+
+    /**
+     * Base URL of the topics, followed by the channel YT id.
+     */
+    private final String topicUrl;
+
+    /**
+     * Secret shared with the hub to sign the notifications.
+     */
+    private final String secret;
+
+    /**
+     * Listener notified when new videos are pushed. Can be null.
+     */
+    private final Listener listener;
+
+    /**
+     * Subscribed (or being subscribed) topics, mapped to their scheduled renewal.
+     */
+    private final Map<String, ScheduledFuture<?>> renewals = new ConcurrentHashMap<>();
+
+    /**
+     * Topics the hub has denied, not subscribed to again until the next start.
+     */
+    private final Set<String> deniedTopics = ConcurrentHashMap.newKeySet();
+
+    /**
+     * WebSubSubscriber constructor.
+     *
+     * @param port        Local port receiving the notifications
+     * @param hubUrl      URL of the hub
+     * @param callbackUrl Public URL the hub sends the notifications to
+     * @param topicUrl    Base URL of the topics, followed by the channel YT id
+     * @param secret      Secret shared with the hub to sign the notifications
+     * @param listener    Listener notified when new videos are pushed, can be null
+     * @throws IOException The server could not be bound to the port
+     */
+    public WebSubSubscriber(final int port, final String hubUrl, final String callbackUrl,
+                            final String topicUrl, final String secret, final Listener listener)
+            throws IOException {
+        this.hubUrl = hubUrl;
+        this.callbackUrl = callbackUrl;
+        this.topicUrl = topicUrl;
+        this.secret = secret;
+        this.listener = listener;
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/", ApiServer.guard(this::handle));
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "websub");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Metrics.monitor("websub", executor);
+        scheduler = executor;
+    }
+
+    /**
+     * Start the subscriber if a callback URL is set in the configuration file.
+     *
+     * @param listener Listener notified when new videos are pushed, can be null
+     * @return Started subscriber, null if WebSub is disabled or could not be started
+     */
+    public static WebSubSubscriber startIfEnabled(final Listener listener) {
+        try {
+            String callbackUrl = Config.getValue(Config.PROP_WEBSUB_CALLBACK_URL_KEY);
+            if (callbackUrl == null || callbackUrl.isBlank()) {
+                return null;
+            }
+            String hubUrl = Config.getValue(Config.PROP_WEBSUB_HUB_KEY);
+            String topicUrl = Config.getValue(Config.PROP_WEBSUB_TOPIC_KEY);
+            WebSubSubscriber subscriber = new WebSubSubscriber(
+                    Config.getIntValue(Config.PROP_WEBSUB_PORT_KEY, DEFAULT_PORT),
+                    hubUrl == null ? Config.PROP_WEBSUB_HUB_VALUE : hubUrl,
+                    callbackUrl,
+                    topicUrl == null ? Config.PROP_WEBSUB_TOPIC_VALUE : topicUrl,
+                    getSecret(), listener);
+            subscriber.start();
+            return subscriber;
+        } catch (IOException e) {
+            Logger.get(WebSubSubscriber.class).error("Cannot start WebSub subscriber", e);
+            return null;
+        }
+    }
+
+    /**
+     * Start receiving notifications and subscribe to the topic of each channel.
+     */
+    public final void start() {
+        server.start();
+        Logger.get(WebSubSubscriber.class).info("WebSub subscriber listening on "
+                + server.getAddress());
+        scheduler.scheduleWithFixedDelay(this::sync, 0, SYNC_PERIOD, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Stop receiving notifications. The subscriptions are left to expire.
+     */
+    public final void stop() {
+        server.stop(1);
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * @return Port the notifications are received on
+     */
+    public final int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Subscribe to the topics of the channels that are not subscribed yet, and unsubscribe from
+     * the topics of the channels deleted since.
+     */
+    private void sync() {
+        // An exception would cancel the periodic execution
+        try {
+            Set<String> topics = new HashSet<>();
+            for (Channel channel : Channels.getAll()) {
+                String topic = topicUrl + channel.getYtId();
+                topics.add(topic);
+                if (!renewals.containsKey(topic) && !deniedTopics.contains(topic)) {
+                    subscribe(topic);
+                }
+            }
+            for (String topic : new ArrayList<>(renewals.keySet())) {
+                if (!topics.contains(topic)) {
+                    unsubscribe(topic);
+                }
+            }
+        } catch (RuntimeException e) {
+            Logger.get(WebSubSubscriber.class).error("Cannot subscribe to the channels", e);
+        }
+    }
+
+    /**
+     * Send a subscription request for the given topic, retried later if it fails. The hub then
+     * verifies the intent through the callback. The topic of a deleted channel is unsubscribed
+     * from instead.
+     *
+     * @param topic Topic
+     */
+    private void subscribe(final String topic) {
+        if (!isKnown(topic)) {
+            unsubscribe(topic);
+            return;
+        }
+        Map<String, String> form = new HashMap<>();
+        form.put("hub.mode", "subscribe");
+        form.put("hub.topic", topic);
+        form.put("hub.callback", callbackUrl);
+        form.put("hub.verify", "async");
+        form.put("hub.secret", secret);
+        form.put("hub.lease_seconds", String.valueOf(LEASE_SECONDS));
+        // Retried unless the hub verifies the intent, which reschedules the request according to
+        // the lease given by the hub
+        schedule(topic, TimeUnit.MINUTES.toSeconds(RETRY_DELAY));
+        try {
+            Http.postForm(hubUrl, form);
+        } catch (IOException e) {
+            Logger.get(WebSubSubscriber.class).warn("Cannot subscribe to " + topic + ": " + e);
+        }
+    }
+
+    /**
+     * Cancel the renewal of the given topic and send an unsubscription request, not retried as
+     * the lease expires anyway.
+     *
+     * @param topic Topic
+     */
+    private void unsubscribe(final String topic) {
+        cancelRenewal(topic);
+        Map<String, String> form = new HashMap<>();
+        form.put("hub.mode", "unsubscribe");
+        form.put("hub.topic", topic);
+        form.put("hub.callback", callbackUrl);
+        form.put("hub.verify", "async");
+        try {
+            Http.postForm(hubUrl, form);
+        } catch (IOException e) {
+            Logger.get(WebSubSubscriber.class).warn("Cannot unsubscribe from " + topic + ": "
+                    + e);
+        }
+    }
+
+    /**
+     * Schedule a subscription request for the given topic, replacing the one scheduled.
+     *
+     * @param topic Topic
+     * @param delay Delay in seconds
+     */
+    private void schedule(final String topic, final long delay) {
+        if (scheduler.isShutdown()) {
+            return;
+        }
+        ScheduledFuture<?> previous = renewals.put(topic,
+                scheduler.schedule(() -> subscribe(topic), delay, TimeUnit.SECONDS));
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+
+    /**
+     * Cancel the subscription request scheduled for the given topic, if any.
+     *
+     * @param topic Topic
+     */
+    private void cancelRenewal(final String topic) {
+        ScheduledFuture<?> renewal = renewals.remove(topic);
+        if (renewal != null) {
+            renewal.cancel(false);
+        }
+    }
+
+    /**
+     * @param topic Topic
+     * @return true if the topic belongs to a saved channel, false otherwise
+     */
+    private boolean isKnown(final String topic) {
+        return topic.startsWith(topicUrl)
+                && Channels.getByYtId(topic.substring(topicUrl.length())) != null;
+    }
+
+    /**
+     * Handle the requests sent by the hub.
+     *
+     * @param exchange Exchange
+     * @throws IOException An error occurred while sending the response
+     */
+    private void handle(final HttpExchange exchange) throws IOException {
+        switch (exchange.getRequestMethod()) {
+            case "GET":
+                handleVerification(exchange);
+                break;
+            case "POST":
+                handleNotification(exchange);
+                break;
+            default:
+                exchange.getResponseHeaders().set("Allow", "GET, POST");
+                Exchanges.sendEmpty(exchange, 405);
+                break;
+        }
+    }
+
+    /**
+     * Handle the verification of intent sent by the hub after a subscription request, and
+     * schedule the renewal of the lease.
+     *
+     * @param exchange Exchange
+     * @throws IOException An error occurred while sending the response
+     */
+    private void handleVerification(final HttpExchange exchange) throws IOException {
+        Map<String, String> query = Exchanges.query(exchange);
+        String mode = query.get("hub.mode");
+        String topic = query.get("hub.topic");
+        String challenge = query.get("hub.challenge");
+        if (mode == null || topic == null || challenge == null) {
+            Exchanges.sendEmpty(exchange, 400);
+            return;
+        }
+        boolean known = isKnown(topic);
+
+        if ("subscribe".equals(mode) && known) {
+            long lease = LEASE_SECONDS;
+            try {
+                lease = Long.parseLong(query.getOrDefault("hub.lease_seconds",
+                        String.valueOf(LEASE_SECONDS)));
+            } catch (NumberFormatException e) {
+                Logger.get(WebSubSubscriber.class).warn("Invalid lease for " + topic);
+            }
+            schedule(topic, Math.max(60, (long) (lease * RENEWAL_FACTOR)));
+            Exchanges.sendText(exchange, 200, challenge);
+        } else if ("unsubscribe".equals(mode) && !known) {
+            Exchanges.sendText(exchange, 200, challenge);
+        } else if ("denied".equals(mode)) {
+            Logger.get(WebSubSubscriber.class).warn("Subscription to " + topic + " denied: "
+                    + query.get("hub.reason"));
+            deniedTopics.add(topic);
+            cancelRenewal(topic);
+            Exchanges.sendEmpty(exchange, 200);
+        } else {
+            Exchanges.sendEmpty(exchange, 404);
+        }
+    }
+
+    /**
+     * Handle a notification pushed by the hub. The notification is acknowledged at once and
+     * processed in the background.
+     *
+     * @param exchange Exchange
+     * @throws IOException An error occurred while sending the response
+     */
+    private void handleNotification(final HttpExchange exchange) throws IOException {
+        byte[] body = Exchanges.readBody(exchange, MAX_BODY_SIZE);
+        if (body == null) {
+            Exchanges.sendEmpty(exchange, 413);
+            return;
+        }
+        String signature = exchange.getRequestHeaders().getFirst("X-Hub-Signature");
+        // The notification must be acknowledged even if the signature does not match
+        Exchanges.sendEmpty(exchange, 202);
+        if (!isSignatureValid(signature, body)) {
+            Logger.get(WebSubSubscriber.class).warn("Ignoring notification with invalid "
+                    + "signature");
+            return;
+        }
+        scheduler.execute(() -> process(body));
+    }
+
+    /**
+     * Upsert the videos of the given notification. The unknown videos older than the feed of
+     * their channel are ignored, as they have been deleted.
+     *
+     * @param body Notification body, an Atom feed
+     */
+    private void process(final byte[] body) {
+        try {
+            Map<Channel, List<Video>> newVideos = new HashMap<>();
+            Map<Long, Long> feedStarts = new HashMap<>();
+            for (FeedEntry entry : FeedParser.parse(body)) {
+                Channel channel = entry.getChannelYtId() == null ? null
+                        : Channels.getByYtId(entry.getChannelYtId());
+                if (channel == null) {
+                    continue;
+                }
+                Video video = Videos.getByYtId(entry.getYtId());
+                if (video != null) {
+                    // Updated video, e.g. its title has changed
+                    video.setTitle(entry.getTitle());
+                    Videos.update(video);
+                    continue;
+                }
+                if (entry.getTime() < feedStarts.computeIfAbsent(channel.getId(),
+                        WebSubSubscriber::getFeedStart)) {
+                    // Old video pushed again when edited, deleted once out of the feed
+                    continue;
+                }
+                long duration = 0;
+                if (entry.getUrl() != null && Config.getValue(Config.PROP_API_KEY) != null) {
+                    try {
+                        duration = Videos.retrieveDuration(entry.getYtId());
+                    } catch (IOException e) {
+                        Logger.get(WebSubSubscriber.class).warn("Cannot read duration of "
+                                + entry.getYtId() + ": " + e);
+                    }
+                }
+                video = new Video(entry.getTitle(), entry.getTime(), entry.getThumbnailUrl(),
+                        duration, entry.getYtId(), channel);
+                Videos.create(video);
+                newVideos.computeIfAbsent(channel, c -> new ArrayList<>()).add(video);
+            }
+            if (listener != null) {
+                newVideos.forEach(listener::onVideosPushed);
+            }
+        } catch (Exception e) {
+            Logger.get(WebSubSubscriber.class).error("Cannot process notification", e);
+        }
+    }
+
+    /**
+     * @param channelId Id of the channel
+     * @return Published time of the oldest video in the feed of the channel, older videos
+     * having been deleted once watched, 0 if the channel has less videos than its feed
+     */
+    private static long getFeedStart(final long channelId) {
+        List<Video> videos = Videos.getNewestByChannelId(channelId, FeedParser.FEED_SIZE);
+        if (videos.size() < FeedParser.FEED_SIZE) {
+            return 0;
+        }
+        return videos.get(videos.size() - 1).getTime();
+    }
+
+    /**
+     * Check the signature of a notification, computed by the hub with the shared secret.
+     *
+     * @param signature X-Hub-Signature header, e.g. "sha1=...", can be null
+     * @param body      Notification body
+     * @return true if the signature is valid, false otherwise
+     */
+    private boolean isSignatureValid(final String signature, final byte[] body) {
+        if (signature == null || signature.indexOf('=') < 0) {
+            return false;
+        }
+        String method = signature.substring(0, signature.indexOf('='));
+        String algorithm;
+        switch (method) {
+            case "sha1":
+                algorithm = "HmacSHA1";
+                break;
+            case "sha256":
+                algorithm = "HmacSHA256";
+                break;
+            case "sha512":
+                algorithm = "HmacSHA512";
+                break;
+            default:
+                return false;
+        }
+        try {
+            byte[] expected = sign(algorithm, secret, body);
+            byte[] actual = parseHex(signature.substring(method.length() + 1));
+            return actual != null && MessageDigest.isEqual(expected, actual);
+        } catch (GeneralSecurityException e) {
+            Logger.get(WebSubSubscriber.class).error(e);
+            return false;
+        }
+    }
+
+    /**
+     * Compute the HMAC of the given data.
+     *
+     * @param algorithm HMAC algorithm
+     * @param key       Key
+     * @param data      Data
+     * @return HMAC
+     * @throws GeneralSecurityException The algorithm is not available
+     */
+    private static byte[] sign(final String algorithm, final String key, final byte[] data)
+            throws GeneralSecurityException {
+        Mac mac = Mac.getInstance(algorithm);
+        mac.init(new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), algorithm));
+        return mac.doFinal(data);
+    }
+
+    /**
+     * @param hex Hexadecimal string
+     * @return Decoded bytes, null if the string is not valid
+     */
+    private static byte[] parseHex(final String hex) {
+        if (hex.length() % 2 != 0) {
+            return null;
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(hex.charAt(2 * i), 16);
+            int low = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                return null;
+            }
+            bytes[i] = (byte) (high << 4 | low);
+        }
+        return bytes;
+    }
+
+    /**
+     * Get the secret shared with the hub, generated and saved in the configuration file the
+     * first time.
+     *
+     * @return Secret
+     * @throws IOException An error occurred while reading or writing the configuration file
+     */
+    private static String getSecret() throws IOException {
+        String secret = Config.getValue(Config.PROP_WEBSUB_SECRET_KEY);
+        if (secret == null || secret.isBlank()) {
+            byte[] bytes = new byte[SECRET_LENGTH];
+            new SecureRandom().nextBytes(bytes);
+            StringBuilder builder = new StringBuilder();
+            for (byte b : bytes) {
+                builder.append(String.format("%02x", b));
+            }
+            secret = builder.toString();
+            Config.setValue(Config.PROP_WEBSUB_SECRET_KEY, secret);
+        }
+        return secret;
+    }
+
+    /**
+     * Listener notified when new videos are pushed.
+     */
+    public interface Listener {
+
+        /**
+         * Called from the subscriber thread once the pushed videos have been committed.
+         *
+         * @param channel   Channel of the videos
+         * @param newVideos New videos
+         */
+        void onVideosPushed(Channel channel, List<Video> newVideos);
+    }
+}
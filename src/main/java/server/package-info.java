@@ -0,0 +1,8 @@
+/**
+ * Server package, serving the local HTTP endpoints.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+package server;
@@ -0,0 +1,103 @@
+package service;
+
+/**
+ * Video entry read from a channel Atom feed.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public class FeedEntry {
+
+    /**
+     * YT id of the video.
+     */
+    private final String ytId;
+
+    /**
+     * YT id of the channel, null if the entry does not give it.
+     */
+    private final String channelYtId;
+
+    /**
+     * Video title.
+     */
+    private final String title;
+
+    /**
+     * Video URL, null if the entry does not give it.
+     */
+    private final String url;
+
+    /**
+     * Video published time.
+     */
+    private final long time;
+
+    /**
+     * Thumbnail URL.
+     */
+    private final String thumbnailUrl;
+
+    /**
+     * FeedEntry constructor.
+     *
+     * @param ytId         YT id of the video
+     * @param channelYtId  YT id of the channel, null if the entry does not give it
+     * @param title        Video title
+     * @param url          Video URL, null if the entry does not give it
+     * @param time         Video published time
+     * @param thumbnailUrl Thumbnail URL
+     */
+    public FeedEntry(final String ytId, final String channelYtId, final String title,
+                     final String url, final long time, final String thumbnailUrl) {
+        this.ytId = ytId;
+        this.channelYtId = channelYtId;
+        this.title = title;
+        this.url = url;
+        this.time = time;
+        this.thumbnailUrl = thumbnailUrl;
+    }
+
+    /**
+     * @return YT id of the video
+     */
+    public final String getYtId() {
+        return ytId;
+    }
+
+    /**
+     * @return YT id of the channel, null if the entry does not give it
+     */
+    public final String getChannelYtId() {
+        return channelYtId;
+    }
+
+    /**
+     * @return Video title
+     */
+    public final String getTitle() {
+        return title;
+    }
+
+    /**
+     * @return Video URL, null if the entry does not give it
+     */
+    public final String getUrl() {
+        return url;
+    }
+
+    /**
+     * @return Video published time
+     */
+    public final long getTime() {
+        return time;
+    }
+
+    /**
+     * @return Thumbnail URL
+     */
+    public final String getThumbnailUrl() {
+        return thumbnailUrl;
+    }
+}
@@ -0,0 +1,162 @@
+package service;
+
+import metrics.Histogram;
+import metrics.Metrics;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Utility class decoding the video entries of a channel Atom feed. It is used both for the
+ * polled feeds and for the entries pushed by a WebSub hub.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public final class FeedParser {
+
+    /**
+     * Number of entries of a channel feed, its most recent videos.
+     */
+    public static final int FEED_SIZE = 15;
+
+    /**
+     * Format of the published date written in the feed.
+     */
+    private static final String PUBLISHED_FORMAT = "yyyy-MM-dd'T'hh:mm:ss'+00:00'";
+
+    /**
+     * Thumbnail URL used when the entry does not give one (pushed entries do not).
+     */
+    private static final String DEFAULT_THUMBNAIL_URL = "https://i.ytimg.com/vi/%s/hqdefault.jpg";
+
+    /**
+     * Time spent decoding the feeds.
+     */
+    private static final Histogram PARSE_TIME = Metrics.timer("feed_parse_seconds",
+            "Time spent decoding the feeds");
+
+    /**
+     * FeedParser constructor.
+     */
+    private FeedParser() {
+
+    }
+
+    /**
+     * Decode the video entries of the given feed.
+     *
+     * @param body Feed body
+     * @return Entries, in feed order
+     * @throws ParserConfigurationException The XML parser could not be created
+     * @throws SAXException                 The feed is not valid XML
+     * @throws IOException                  An error occurred while reading the feed
+     * @throws ParseException               An entry has an invalid published date
+     */
+    public static List<FeedEntry> parse(final byte[] body)
+            throws ParserConfigurationException, SAXException, IOException, ParseException {
+        long start = System.nanoTime();
+        DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
+        DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
+        Document doc = dBuilder.parse(new ByteArrayInputStream(body));
+
+        doc.getDocumentElement().normalize();
+
+        // The format is not thread safe, feeds can be decoded concurrently
+        SimpleDateFormat publishedFormat = new SimpleDateFormat(PUBLISHED_FORMAT);
+
+        List<FeedEntry> entries = new ArrayList<>();
+        NodeList nodeList = doc.getElementsByTagName("entry");
+
+        for (int i = 0; i < nodeList.getLength(); i++) {
+
+            Node nodeEntry = nodeList.item(i);
+
+            if (nodeEntry.getNodeType() == Node.ELEMENT_NODE) {
+
+                Element eltEntry = (Element) nodeEntry;
+
+                // YT ID
+                String ytId = getText(eltEntry, "yt:videoId");
+                if (ytId == null) {
+                    continue;
+                }
+
+                // Channel YT ID
+                String channelYtId = getText(eltEntry, "yt:channelId");
+
+                // Title
+                String title = getText(eltEntry, "title");
+
+                // URL
+                Node nodeUrl = getNode(eltEntry, "link");
+                String url = null;
+                if (nodeUrl != null && nodeUrl.getNodeType() == Node.ELEMENT_NODE) {
+                    Element eltUrl = (Element) nodeUrl;
+                    url = eltUrl.getAttribute("href");
+                }
+
+                // Date
+                String date = getText(eltEntry, "published");
+                long time = date == null ? System.currentTimeMillis()
+                        : publishedFormat.parse(date).getTime();
+
+                // Thumbnail
+                Node nodeMedia = getNode(eltEntry, "media:group");
+                String thumbnail = null;
+                if (nodeMedia != null && nodeMedia.getNodeType() == Node.ELEMENT_NODE) {
+                    Element eltMedia = (Element) nodeMedia;
+                    Node nodeThumbnail = getNode(eltMedia, "media:thumbnail");
+                    if (nodeThumbnail != null
+                            && nodeThumbnail.getNodeType() == Node.ELEMENT_NODE) {
+                        Element eltThumbnail = (Element) nodeThumbnail;
+                        thumbnail = eltThumbnail.getAttribute("url");
+                    }
+                }
+                if (thumbnail == null) {
+                    thumbnail = String.format(DEFAULT_THUMBNAIL_URL, ytId);
+                }
+
+                entries.add(new FeedEntry(ytId, channelYtId, title, url, time, thumbnail));
+            }
+        }
+        PARSE_TIME.recordSince(start);
+        return entries;
+    }
+
+    /**
+     * Get the first node found with the given tag name in the given element.
+     *
+     * @param element Element to search
+     * @param tagName Tag name to search
+     * @return Node found, null if there is none
+     */
+    private static Node getNode(final Element element, final String tagName) {
+        return element.getElementsByTagName(tagName).item(0);
+    }
+
+    /**
+     * Get the text of the first node found with the given tag name in the given element.
+     *
+     * @param element Element to search
+     * @param tagName Tag name to search
+     * @return Text found, null if there is no such node
+     */
+    private static String getText(final Element element, final String tagName) {
+        Node node = getNode(element, tagName);
+        return node == null ? null : node.getTextContent();
+    }
+}
@@ -0,0 +1,402 @@
+package service;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
+import model.Channel;
+import model.Tombstone;
+import model.Video;
+import utils.BackupWriter;
+import utils.Channels;
+import utils.Json;
+import utils.Tombstones;
+import utils.Videos;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Export the channels and videos to a file, in the binary backup format if the file has the
+ * backup extension, in JSON otherwise.
+ * The file is written one channel at a time and the videos are read by pages, so the memory
+ * used does not depend on the size of the library, only the ids of the videos of the channel
+ * being written are loaded at once.
+ * <p>
+ * A delta export only holds the channels and videos saved since a given time, read from their
+ * indexed save time, and the tombstones of the ones deleted since then, so a library can be
+ * restored from a full export followed by the deltas exported after it. A delta is written in
+ * JSON as an object holding the time range, the channels and the deleted channels and videos,
+ * instead of the array of channels of a full export.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public class LibraryExporter {
+
+    /**
+     * Number of videos read from the database at once.
+     */
+    private static final int PAGE_SIZE = 1000;
+
+    /**
+     * Time in milliseconds a delta export reads before the time it is given: a save stamped
+     * before the previous export started can be committed after the export read the database.
+     * The changes of this margin are exported twice, which the merge of the import makes
+     * harmless.
+     */
+    public static final long SAVE_MARGIN = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * File to export to.
+     */
+    private final File file;
+
+    /**
+     * Listener notified of the progress.
+     */
+    private final Listener listener;
+
+    /**
+     * Time of the oldest change to export, -1 to export the whole library.
+     */
+    private long since = -1;
+
+    /**
+     * Time the export started.
+     */
+    private long until;
+
+    /**
+     * Number of channels written.
+     */
+    private long channelCount;
+
+    /**
+     * Number of tombstones written.
+     */
+    private long deletedCount;
+
+    /**
+     * Number of videos written.
+     */
+    private long done;
+
+    /**
+     * Number of videos to write.
+     */
+    private long total;
+
+    /**
+     * The export has been cancelled.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * LibraryExporter constructor.
+     *
+     * @param file     File to export to
+     * @param listener Listener notified of the progress
+     */
+    public LibraryExporter(final File file, final Listener listener) {
+        this.file = file;
+        this.listener = listener;
+    }
+
+    /**
+     * @param file File to export to
+     * @return true if the file has the extension of the binary backup format, false otherwise
+     */
+    public static boolean isBackupFile(final File file) {
+        return file.getName().endsWith("." + BackupWriter.EXTENSION);
+    }
+
+    /**
+     * Export only the changes since the given time, usually the start time of a previous export,
+     * instead of the whole library.
+     *
+     * @param since Time of the oldest change to export, -1 to export the whole library
+     */
+    public final void setSince(final long since) {
+        this.since = since;
+    }
+
+    /**
+     * Export the channels and videos. The export is written to a temporary file next to the
+     * file, moved over the file once complete, so the file is left as it was if the export is
+     * cancelled or fails.
+     *
+     * @throws IOException An error occurred while writing the file
+     */
+    public final void run() throws IOException {
+        listener.onProgress(-1, -1, "Exporting to " + file.getAbsolutePath());
+        until = System.currentTimeMillis();
+        List<Channel> channels = getChannels();
+        total = isDelta() ? Videos.countUpdatedSince(getDeltaStart()) : Videos.count();
+        channelCount = 0;
+        deletedCount = 0;
+        done = 0;
+        Path path = file.getAbsoluteFile().toPath();
+        Path tempPath = Files.createTempFile(path.getParent(), file.getName(), ".tmp");
+        try {
+            if (isBackupFile(file)) {
+                exportBackup(channels, tempPath);
+            } else {
+                exportJson(channels, tempPath);
+            }
+            if (!cancelled) {
+                Files.move(tempPath, path, StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempPath);
+        }
+    }
+
+    /**
+     * Cancel the export, the channel being written is completed first.
+     */
+    public final void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * @return Time the export started, to give to the next delta export
+     */
+    public final long getUntil() {
+        return until;
+    }
+
+    /**
+     * @return Number of channels written
+     */
+    public final long getChannelCount() {
+        return channelCount;
+    }
+
+    /**
+     * @return Number of videos written
+     */
+    public final long getVideoCount() {
+        return done;
+    }
+
+    /**
+     * @return Number of deleted channels and videos written in the delta
+     */
+    public final long getDeletedCount() {
+        return deletedCount;
+    }
+
+    /**
+     * @return true if only the changes since a given time are exported, false otherwise
+     */
+    private boolean isDelta() {
+        return since >= 0;
+    }
+
+    /**
+     * @return Time of the oldest save read by a delta export
+     */
+    private long getDeltaStart() {
+        return Math.max(0, since - SAVE_MARGIN);
+    }
+
+    /**
+     * @return Channels to write: all of them, or in a delta the channels saved since the start of
+     * the delta and the ones having videos saved since then
+     */
+    private List<Channel> getChannels() {
+        List<Channel> channels = Channels.getAll();
+        if (!isDelta()) {
+            return channels;
+        }
+        Set<Long> updatedIds = new HashSet<>();
+        for (long id : Channels.getIdsWithVideosUpdatedSince(getDeltaStart())) {
+            updatedIds.add(id);
+        }
+        List<Channel> updated = new ArrayList<>();
+        for (Channel channel : channels) {
+            if (channel.getUpdatedAt() >= getDeltaStart()
+                    || updatedIds.contains(channel.getId())) {
+                updated.add(channel);
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Get the tombstones to write in a delta, leaving out the channels and videos that have been
+     * created again since their deletion, as they are written in the delta.
+     *
+     * @return Tombstones to write, none if the export has been cancelled
+     */
+    private List<Tombstone> getTombstones() {
+        List<Tombstone> tombstones = new ArrayList<>();
+        if (cancelled) {
+            return tombstones;
+        }
+        for (Tombstone tombstone : Tombstones.getSince(getDeltaStart())) {
+            // Videos deleted without their channel cannot be matched by the import
+            if (tombstone.getChannelYtId() == null) {
+                continue;
+            }
+            Channel channel = Channels.getByYtId(tombstone.getChannelYtId());
+            if (channel == null || tombstone.getVideoYtId() != null
+                    && Videos.getByChannelIdAndYtIds(channel.getId(),
+                    tombstone.getVideoYtId()).isEmpty()) {
+                tombstones.add(tombstone);
+            }
+        }
+        return tombstones;
+    }
+
+    /**
+     * Write the channels and their videos in the binary backup format.
+     *
+     * @param channels Channels to write
+     * @param path     Path of the file to write
+     * @throws IOException An error occurred while writing the file
+     */
+    private void exportBackup(final List<Channel> channels, final Path path)
+            throws IOException {
+        try (BackupWriter writer = new BackupWriter(Files.newOutputStream(path),
+                Runtime.getRuntime().availableProcessors())) {
+            if (isDelta()) {
+                writer.writeDelta(getDeltaStart(), until);
+            } else {
+                writer.writeFull(until);
+            }
+            for (Channel channel : channels) {
+                if (cancelled) {
+                    break;
+                }
+                writer.writeChannel(channel);
+                exportVideos(channel, writer::writeVideo);
+                channelCount++;
+            }
+            if (isDelta()) {
+                for (Tombstone tombstone : getTombstones()) {
+                    writer.writeTombstone(tombstone);
+                    deletedCount++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the channels and their videos in JSON.
+     *
+     * @param channels Channels to write
+     * @param path     Path of the file to write
+     * @throws IOException An error occurred while writing the file
+     */
+    private void exportJson(final List<Channel> channels, final Path path) throws IOException {
+        Gson gson = new GsonBuilder()
+                .setExclusionStrategies(Json.EXCLUSION_STRATEGY)
+                .create();
+
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+             JsonWriter jsonWriter = new JsonWriter(writer)) {
+            // Same layout as the pretty printing used by the previous versions
+            jsonWriter.setIndent("  ");
+            if (isDelta()) {
+                jsonWriter.beginObject();
+                jsonWriter.name("since").value(getDeltaStart());
+                jsonWriter.name("until").value(until);
+                jsonWriter.name("channels");
+            }
+            jsonWriter.beginArray();
+            for (Channel channel : channels) {
+                if (cancelled) {
+                    break;
+                }
+                jsonWriter.beginObject();
+                jsonWriter.name("name").value(channel.getName());
+                jsonWriter.name("subscribed").value(channel.isSubscribed());
+                jsonWriter.name("ytId").value(channel.getYtId());
+                jsonWriter.name("videos").beginArray();
+                exportVideos(channel, video -> gson.toJson(video, Video.class, jsonWriter));
+                jsonWriter.endArray();
+                jsonWriter.endObject();
+                channelCount++;
+            }
+            jsonWriter.endArray();
+            if (isDelta()) {
+                jsonWriter.name("deleted").beginArray();
+                for (Tombstone tombstone : getTombstones()) {
+                    jsonWriter.beginObject();
+                    jsonWriter.name("channelYtId").value(tombstone.getChannelYtId());
+                    jsonWriter.name("videoYtId").value(tombstone.getVideoYtId());
+                    jsonWriter.name("deletedAt").value(tombstone.getDeletedAt());
+                    jsonWriter.endObject();
+                    deletedCount++;
+                }
+                jsonWriter.endArray();
+                jsonWriter.endObject();
+            }
+        }
+    }
+
+    /**
+     * Read the videos of the channel by pages and write them.
+     *
+     * @param channel     Channel to write the videos of
+     * @param videoWriter Writer of the videos
+     * @throws IOException An error occurred while writing the file
+     */
+    private void exportVideos(final Channel channel, final VideoWriter videoWriter)
+            throws IOException {
+        listener.onProgress(done, total, "Exporting videos of " + channel.getName());
+        long[] ids = isDelta()
+                ? Videos.getIdsByChannelIdUpdatedSince(channel.getId(), getDeltaStart())
+                : Videos.getIdsByChannelId(channel.getId());
+        for (int i = 0; i < ids.length; i += PAGE_SIZE) {
+            List<Video> videos = Videos.get(
+                    Arrays.copyOfRange(ids, i, Math.min(ids.length, i + PAGE_SIZE)));
+            for (Video video : videos) {
+                videoWriter.write(video);
+            }
+            done += videos.size();
+            listener.onProgress(done, total, null);
+        }
+    }
+
+    /**
+     * Writer of a video in the format of the file.
+     */
+    private interface VideoWriter {
+
+        /**
+         * @param video Video to write
+         * @throws IOException An error occurred while writing the file
+         */
+        void write(Video video) throws IOException;
+    }
+
+    /**
+     * Listener notified of the progress of the export.
+     */
+    public interface Listener {
+
+        /**
+         * Called from the exporting thread as the videos are written.
+         *
+         * @param done    Number of videos written
+         * @param total   Number of videos to write, -1 if unknown
+         * @param message Progress message, null to keep the previous one
+         */
+        void onProgress(long done, long total, String message);
+    }
+}
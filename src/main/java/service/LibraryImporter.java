@@ -0,0 +1,679 @@
+package service;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import model.Channel;
+import model.Tombstone;
+import model.Video;
+import utils.BackupReader;
+import utils.Channels;
+import utils.Json;
+import utils.Logger;
+import utils.Videos;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Import the channels and videos from a file written by the {@link LibraryExporter}, in JSON or
+ * in the binary backup format, which is recognized by its content.
+ * The file is read one channel at a time and the videos are saved by batches, each in one
+ * transaction, so the memory used does not depend on the size of the file. The thumbnails are
+ * downloaded in background while the next videos are read.
+ * <p>
+ * By default the database is replaced by the content of the file. In merge mode, the channels
+ * and videos are matched by YT id instead: the existing ones are updated in place and keep their
+ * thumbnail, only the missing ones are created, and nothing is deleted.
+ * <p>
+ * A delta written by a delta export is always merged, and the channels and videos it records
+ * as deleted are deleted, so the import of a full export followed by the deltas exported after
+ * it restores the library.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public class LibraryImporter {
+
+    /**
+     * Number of videos saved in one transaction.
+     */
+    private static final int BATCH_SIZE = 1000;
+
+    /**
+     * File to import from.
+     */
+    private final File file;
+
+    /**
+     * Merge the file into the database instead of replacing the database, always set for a
+     * delta.
+     */
+    private boolean merge;
+
+    /**
+     * The first record has been read, and the database emptied if the file replaces it.
+     */
+    private boolean started;
+
+    /**
+     * Listener notified of the progress.
+     */
+    private final Listener listener;
+
+    /**
+     * Gson instance reading the videos.
+     */
+    private final Gson gson = new GsonBuilder()
+            .setExclusionStrategies(Json.EXCLUSION_STRATEGY)
+            .create();
+
+    /**
+     * Videos read and not saved yet.
+     */
+    private final List<Video> batch = new ArrayList<>(BATCH_SIZE);
+
+    /**
+     * Download the thumbnails of the imported videos.
+     */
+    private boolean downloadThumbnails = true;
+
+    /**
+     * Downloader the thumbnails of the saved videos are handed to, null if the thumbnails are
+     * not downloaded.
+     */
+    private ThumbnailDownloader downloader;
+
+    /**
+     * Channel the videos read belong to.
+     */
+    private Channel currentChannel;
+
+    /**
+     * Reader of the binary backup being imported, null otherwise.
+     */
+    private volatile BackupReader backupReader;
+
+    /**
+     * The import has been cancelled.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * LibraryImporter constructor.
+     *
+     * @param file     File to import from
+     * @param merge    Merge the file into the database, matching the channels and videos by YT
+     *                 id, instead of replacing the database
+     * @param listener Listener notified of the progress
+     */
+    public LibraryImporter(final File file, final boolean merge, final Listener listener) {
+        this.file = file;
+        this.merge = merge;
+        this.listener = listener;
+    }
+
+    /**
+     * @param downloadThumbnails Download the thumbnails of the imported videos, true by default
+     */
+    public final void setDownloadThumbnails(final boolean downloadThumbnails) {
+        this.downloadThumbnails = downloadThumbnails;
+    }
+
+    /**
+     * Import the channels and videos. The channels and videos already saved are kept if the
+     * import is cancelled.
+     *
+     * @throws IOException          An error occurred while reading the file
+     * @throws InterruptedException The thread has been interrupted
+     */
+    public final void run() throws IOException, InterruptedException {
+        listener.onProgress(-1, -1, "Importing " + file.getAbsolutePath());
+
+        downloader = downloadThumbnails ? new ThumbnailDownloader() : null;
+        try (FileInputStream inputStream = new FileInputStream(file)) {
+            // The position of the file is ahead of the reader by the buffered bytes only
+            FileChannel fileChannel = inputStream.getChannel();
+            if (BackupReader.isBackup(file)) {
+                importBackup(inputStream, fileChannel);
+            } else {
+                importJson(inputStream, fileChannel);
+            }
+            if (!cancelled) {
+                // The file may hold no channel
+                start(false);
+            }
+            if (cancelled || downloader == null) {
+                return;
+            }
+
+            // Wait for the thumbnails still queued
+            listener.onProgress(downloader.getDoneCount(), downloader.getSubmittedCount(),
+                    "Downloading thumbnails");
+            while (!downloader.awaitTermination(100, TimeUnit.MILLISECONDS)) {
+                if (cancelled) {
+                    return;
+                }
+                listener.onProgress(downloader.getDoneCount(), downloader.getSubmittedCount(),
+                        null);
+            }
+        } finally {
+            if (downloader != null) {
+                downloader.cancel();
+            }
+        }
+
+        if (downloader.getFailedCount() > 0) {
+            Logger.get(LibraryImporter.class).warn(downloader.getFailedCount() + " of "
+                    + downloader.getSubmittedCount() + " thumbnails could not be downloaded");
+        }
+    }
+
+    /**
+     * Read the time range recorded at the start of a file, without importing it.
+     *
+     * @param file File written by the {@link LibraryExporter}
+     * @return Time of the oldest change held by the file and time of its export, the first one
+     * being -1 for a full export and the second one -1 if the file does not record it, as a full
+     * export in JSON or in a backup written before the full backups recorded it
+     * @throws IOException An error occurred while reading the file
+     */
+    public static long[] readRange(final File file) throws IOException {
+        long[] range = {-1, -1};
+        if (BackupReader.isBackup(file)) {
+            try (BackupReader reader = new BackupReader(new FileInputStream(file), 1)) {
+                // The range is the first record, the rest of the first block is ignored
+                reader.read(new BackupReader.Listener() {
+                    @Override
+                    public void onChannel(final Channel channel) {
+                        reader.cancel();
+                    }
+
+                    @Override
+                    public void onVideo(final Video video) {
+                    }
+
+                    @Override
+                    public void onDelta(final long since, final long until) {
+                        range[0] = since;
+                        range[1] = until;
+                        reader.cancel();
+                    }
+
+                    @Override
+                    public void onFull(final long until) {
+                        range[1] = until;
+                        reader.cancel();
+                    }
+
+                    @Override
+                    public void onTombstone(final Tombstone tombstone) {
+                        reader.cancel();
+                    }
+                });
+            } catch (InterruptedException e) {
+                // Not thrown when decoding in the calling thread
+                Thread.currentThread().interrupt();
+            }
+            return range;
+        }
+        try (JsonReader jsonReader = new JsonReader(new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)))) {
+            if (jsonReader.peek() != JsonToken.BEGIN_OBJECT) {
+                return range;
+            }
+            // The range is written before the channels
+            jsonReader.beginObject();
+            range[0] = 0;
+            while (jsonReader.hasNext()) {
+                String name = jsonReader.nextName();
+                if ("since".equals(name)) {
+                    range[0] = jsonReader.nextLong();
+                } else if ("until".equals(name)) {
+                    range[1] = jsonReader.nextLong();
+                } else {
+                    break;
+                }
+            }
+        }
+        return range;
+    }
+
+    /**
+     * Cancel the import, the videos read are saved first.
+     */
+    public final void cancel() {
+        cancelled = true;
+        BackupReader reader = backupReader;
+        if (reader != null) {
+            reader.cancel();
+        }
+    }
+
+    /**
+     * Called before the first record of the file is imported: empty the database if the file
+     * replaces it, or switch to the merge mode if the file is a delta.
+     *
+     * @param delta The file is a delta
+     * @throws IOException An error occurred while deleting the video thumbnail files
+     */
+    private void start(final boolean delta) throws IOException {
+        if (started) {
+            return;
+        }
+        started = true;
+        if (delta) {
+            merge = true;
+            listener.onProgress(-1, -1, "Applying the changes of " + file.getAbsolutePath());
+        } else if (!merge) {
+            // Delete all existing channels and videos
+            Channels.deleteAll();
+        }
+    }
+
+    /**
+     * Import a file in the binary backup format.
+     *
+     * @param inputStream Stream of the file
+     * @param fileChannel Channel of the file, giving the progress
+     * @throws IOException          An error occurred while reading the file
+     * @throws InterruptedException The thread has been interrupted while waiting for a block
+     */
+    private void importBackup(final FileInputStream inputStream, final FileChannel fileChannel)
+            throws IOException, InterruptedException {
+        long size = fileChannel.size();
+        try (BackupReader reader = new BackupReader(inputStream,
+                Runtime.getRuntime().availableProcessors())) {
+            backupReader = reader;
+            if (cancelled) {
+                return;
+            }
+            reader.read(new BackupReader.Listener() {
+                @Override
+                public void onChannel(final Channel channel) {
+                    unchecked(() -> start(false));
+                    saveVideos();
+                    currentChannel = startChannel(channel);
+                    listener.onProgress(position(fileChannel), size, null);
+                }
+
+                @Override
+                public void onVideo(final Video video) {
+                    addVideo(video);
+                }
+
+                @Override
+                public void onDelta(final long since, final long until) {
+                    unchecked(() -> start(true));
+                }
+
+                @Override
+                public void onFull(final long until) {
+                    unchecked(() -> start(false));
+                }
+
+                @Override
+                public void onTombstone(final Tombstone tombstone) {
+                    unchecked(() -> {
+                        start(false);
+                        saveVideos();
+                        applyTombstone(tombstone);
+                    });
+                }
+            });
+            saveVideos();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            backupReader = null;
+        }
+    }
+
+    /**
+     * Import a file in JSON.
+     *
+     * @param inputStream Stream of the file
+     * @param fileChannel Channel of the file, giving the progress
+     * @throws IOException An error occurred while reading the file
+     */
+    private void importJson(final FileInputStream inputStream, final FileChannel fileChannel)
+            throws IOException {
+        long size = fileChannel.size();
+        try (JsonReader jsonReader = new JsonReader(new BufferedReader(
+                new InputStreamReader(inputStream, StandardCharsets.UTF_8)))) {
+            if (jsonReader.peek() != JsonToken.BEGIN_OBJECT) {
+                start(false);
+                importJsonChannels(jsonReader, fileChannel, size);
+                return;
+            }
+
+            start(true);
+            jsonReader.beginObject();
+            while (jsonReader.hasNext() && !cancelled) {
+                switch (jsonReader.nextName()) {
+                    case "channels":
+                        importJsonChannels(jsonReader, fileChannel, size);
+                        break;
+                    case "deleted":
+                        jsonReader.beginArray();
+                        while (jsonReader.hasNext()) {
+                            applyTombstone(readJsonTombstone(jsonReader));
+                        }
+                        jsonReader.endArray();
+                        break;
+                    default:
+                        jsonReader.skipValue();
+                        break;
+                }
+            }
+            if (!cancelled) {
+                jsonReader.endObject();
+            }
+        }
+    }
+
+    /**
+     * Read the array of channels of the JSON file and save them with their videos.
+     *
+     * @param jsonReader  JSON reader positioned before the array
+     * @param fileChannel Channel of the file, giving the progress
+     * @param size        Size of the file
+     * @throws IOException An error occurred while reading the file
+     */
+    private void importJsonChannels(final JsonReader jsonReader, final FileChannel fileChannel,
+                                    final long size) throws IOException {
+        jsonReader.beginArray();
+        while (jsonReader.hasNext() && !cancelled) {
+            importJsonChannel(jsonReader);
+            listener.onProgress(position(fileChannel), size, null);
+        }
+        if (!cancelled) {
+            jsonReader.endArray();
+        }
+    }
+
+    /**
+     * Read the next tombstone of the JSON file.
+     *
+     * @param jsonReader JSON reader positioned before the tombstone
+     * @return Tombstone read, not saved
+     * @throws IOException An error occurred while reading the file
+     */
+    private static Tombstone readJsonTombstone(final JsonReader jsonReader) throws IOException {
+        Tombstone tombstone = new Tombstone();
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            String name = jsonReader.nextName();
+            if (jsonReader.peek() == JsonToken.NULL) {
+                jsonReader.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "channelYtId":
+                    tombstone.setChannelYtId(jsonReader.nextString());
+                    break;
+                case "videoYtId":
+                    tombstone.setVideoYtId(jsonReader.nextString());
+                    break;
+                case "deletedAt":
+                    tombstone.setDeletedAt(jsonReader.nextLong());
+                    break;
+                default:
+                    jsonReader.skipValue();
+                    break;
+            }
+        }
+        jsonReader.endObject();
+        return tombstone;
+    }
+
+    /**
+     * Delete the channel or the video recorded as deleted by the tombstone, if it exists.
+     *
+     * @param tombstone Tombstone read from the file
+     * @throws IOException An error occurred while deleting the video thumbnail files
+     */
+    private void applyTombstone(final Tombstone tombstone) throws IOException {
+        if (tombstone.getChannelYtId() == null) {
+            return;
+        }
+        Channel channel = Channels.getByYtId(tombstone.getChannelYtId());
+        if (channel == null) {
+            return;
+        }
+        if (tombstone.getVideoYtId() == null) {
+            Channels.delete(channel);
+        } else {
+            Videos.delete(Videos.getByChannelIdAndYtIds(channel.getId(),
+                    tombstone.getVideoYtId()).toArray(new Video[0]));
+        }
+    }
+
+    /**
+     * Read the next channel of the JSON file and save it with its videos.
+     *
+     * @param jsonReader JSON reader positioned before the channel
+     * @throws IOException An error occurred while reading the file
+     */
+    private void importJsonChannel(final JsonReader jsonReader) throws IOException {
+        Channel channel = new Channel();
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            switch (jsonReader.nextName()) {
+                case "name":
+                    channel.setName(jsonReader.nextString());
+                    break;
+                case "subscribed":
+                    channel.setSubscribed(jsonReader.nextBoolean());
+                    break;
+                case "ytId":
+                    channel.setYtId(jsonReader.nextString());
+                    break;
+                case "videos":
+                    currentChannel = startChannel(channel);
+                    channel = currentChannel;
+                    jsonReader.beginArray();
+                    while (jsonReader.hasNext()) {
+                        addVideo(gson.fromJson(jsonReader, Video.class));
+                    }
+                    jsonReader.endArray();
+                    saveVideos();
+                    break;
+                default:
+                    jsonReader.skipValue();
+                    break;
+            }
+        }
+        jsonReader.endObject();
+        Channels.save(getExisting(channel));
+    }
+
+    /**
+     * Save the channel read before its videos.
+     *
+     * @param channel Channel read from the file
+     * @return Saved channel, the given one or the existing one it has been merged into
+     */
+    private Channel startChannel(final Channel channel) {
+        Channel saved = getExisting(channel);
+        listener.onProgress(-1, -1, "Importing videos of " + saved.getName());
+        // The channel needs an id for the videos to be attached to it
+        Channels.save(saved);
+        return saved;
+    }
+
+    /**
+     * In merge mode, get the saved channel with the YT id of the given channel read from the
+     * file, updated with the fields read so far. The fields read afterwards are set on the
+     * returned channel.
+     *
+     * @param channel Channel read from the file
+     * @return Saved channel with the same YT id, the given channel if there is none or if the
+     * file replaces the database
+     */
+    private Channel getExisting(final Channel channel) {
+        if (!merge || channel.getId() != 0 || channel.getYtId() == null) {
+            return channel;
+        }
+        Channel existing = Channels.getByYtId(channel.getYtId());
+        if (existing == null) {
+            return channel;
+        }
+        existing.setName(channel.getName());
+        existing.setSubscribed(channel.isSubscribed());
+        return existing;
+    }
+
+    /**
+     * Attach the video to the current channel and save the batch if it is full.
+     *
+     * @param video Video read from the file
+     */
+    private void addVideo(final Video video) {
+        // Gson sets the fields directly, the JSON exports of the previous versions hold empty
+        // start times
+        video.setStartTime(video.getStartTime());
+        video.getChannel().setTarget(currentChannel);
+        batch.add(video);
+        if (batch.size() == BATCH_SIZE) {
+            saveVideos();
+        }
+    }
+
+    /**
+     * Save the batch of videos in one transaction, queue their thumbnail and clear the batch.
+     * In merge mode, the videos already saved are updated instead, and their thumbnail is only
+     * downloaded if its file is missing.
+     */
+    private void saveVideos() {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (merge) {
+            mergeVideos();
+        }
+        List<Video> toSave = new ArrayList<>(batch.size());
+        List<Video> toDownload = new ArrayList<>(batch.size());
+        for (Video video : batch) {
+            // Unchanged videos are set to null by the merge
+            if (video == null) {
+                continue;
+            }
+            toSave.add(video);
+            if (video.getId() == 0 || !video.getThumbnailFile().exists()) {
+                toDownload.add(video);
+            }
+        }
+        if (!toSave.isEmpty()) {
+            Videos.update(toSave.toArray(new Video[0]));
+        }
+        if (downloader != null) {
+            downloader.submit(toDownload.toArray(new Video[0]));
+        }
+        batch.clear();
+    }
+
+    /**
+     * Replace the videos of the batch that are already saved by the saved ones, updated with the
+     * fields read from the file, or by null if none of these fields changed.
+     */
+    private void mergeVideos() {
+        long channelId = currentChannel.getId();
+        String[] ytIds = new String[batch.size()];
+        for (int i = 0; i < ytIds.length; i++) {
+            ytIds[i] = batch.get(i).getYtId();
+        }
+        Map<String, Video> existingVideos = new HashMap<>();
+        for (Video existing : Videos.getByChannelIdAndYtIds(channelId, ytIds)) {
+            existingVideos.put(existing.getYtId(), existing);
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            Video video = batch.get(i);
+            Video existing = existingVideos.get(video.getYtId());
+            if (existing == null) {
+                continue;
+            }
+            boolean changed = existing.isWatched() != video.isWatched()
+                    || existing.getDuration() != video.getDuration()
+                    || !Objects.equals(existing.getStartTime(), video.getStartTime())
+                    || !Objects.equals(existing.getTitle(), video.getTitle());
+            existing.setWatched(video.isWatched());
+            existing.setDuration(video.getDuration());
+            existing.setStartTime(video.getStartTime());
+            existing.setTitle(video.getTitle());
+            if (changed || !existing.getThumbnailFile().exists()) {
+                batch.set(i, existing);
+            } else {
+                batch.set(i, null);
+            }
+        }
+    }
+
+    /**
+     * Run an action from the listener of the backup reader, which cannot throw the checked
+     * exceptions.
+     *
+     * @param action Action to run
+     * @throws UncheckedIOException The action threw an IOException
+     */
+    private static void unchecked(final IoAction action) {
+        try {
+            action.run();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param fileChannel Channel of the file being read
+     * @return Position in the file, 0 if it cannot be read
+     */
+    private static long position(final FileChannel fileChannel) {
+        try {
+            return fileChannel.position();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Action that can throw an IOException.
+     */
+    private interface IoAction {
+
+        /**
+         * @throws IOException An error occurred while running the action
+         */
+        void run() throws IOException;
+    }
+
+    /**
+     * Listener notified of the progress of the import.
+     */
+    public interface Listener {
+
+        /**
+         * Called from the importing thread as the file is read.
+         *
+         * @param done    Number of bytes read, or of thumbnails downloaded once the file is read
+         * @param total   Size of the file, or number of thumbnails to download once the file is
+         *                read, -1 if unknown
+         * @param message Progress message, null to keep the previous one
+         */
+        void onProgress(long done, long total, String message);
+    }
+}
@@ -0,0 +1,151 @@
+package service;
+
+import utils.Channels;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Export the channels to an OPML subscription list, as exported by YouTube, so they can be
+ * imported by other feed readers.
+ * The channels are streamed from the database to a StAX writer one at a time, so the memory used
+ * does not depend on the number of channels.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public class OpmlExporter {
+
+    /**
+     * Number of channels written between two progress notifications.
+     */
+    private static final int PROGRESS_STEP = 1000;
+
+    /**
+     * Title of the folder outline holding the channels.
+     */
+    private static final String FOLDER_TITLE = "YouTube Subscriptions";
+
+    /**
+     * Factory of the stream writers.
+     */
+    private static final XMLOutputFactory FACTORY = XMLOutputFactory.newInstance();
+
+    /**
+     * File to export to.
+     */
+    private final File file;
+
+    /**
+     * Listener notified of the progress.
+     */
+    private final Listener listener;
+
+    /**
+     * Number of channels written.
+     */
+    private long count;
+
+    /**
+     * OpmlExporter constructor.
+     *
+     * @param file     File to export to
+     * @param listener Listener notified of the progress
+     */
+    public OpmlExporter(final File file, final Listener listener) {
+        this.file = file;
+        this.listener = listener;
+    }
+
+    /**
+     * Export the channels, order by name.
+     *
+     * @throws IOException An error occurred while writing the file
+     */
+    public final void run() throws IOException {
+        listener.onProgress(-1, -1, "Exporting to " + file.getAbsolutePath());
+        // Read once, the URL of each channel would read the configuration file again
+        String baseUrl = Channels.getBaseUrl();
+        long total = Channels.count();
+        count = 0;
+
+        try (OutputStream outputStream = new BufferedOutputStream(
+                Files.newOutputStream(file.toPath()), 64 * 1024)) {
+            XMLStreamWriter writer = FACTORY.createXMLStreamWriter(outputStream,
+                    StandardCharsets.UTF_8.name());
+            try {
+                writer.writeStartDocument(StandardCharsets.UTF_8.name(), "1.0");
+                writer.writeCharacters("\n");
+                writer.writeStartElement("opml");
+                writer.writeAttribute("version", "1.1");
+                writer.writeCharacters("\n");
+                writer.writeStartElement("body");
+                writer.writeCharacters("\n");
+                writer.writeStartElement("outline");
+                writer.writeAttribute("text", FOLDER_TITLE);
+                writer.writeAttribute("title", FOLDER_TITLE);
+                writer.writeCharacters("\n");
+                Channels.forEachOrderByName(channel -> {
+                    String name = channel.getName() == null ? "" : channel.getName();
+                    try {
+                        writer.writeEmptyElement("outline");
+                        writer.writeAttribute("text", name);
+                        writer.writeAttribute("title", name);
+                        writer.writeAttribute("type", "rss");
+                        writer.writeAttribute("xmlUrl", baseUrl + channel.getYtId());
+                        writer.writeCharacters("\n");
+                    } catch (XMLStreamException e) {
+                        throw new UncheckedIOException(new IOException(e));
+                    }
+                    if (++count % PROGRESS_STEP == 0) {
+                        listener.onProgress(count, total, null);
+                    }
+                });
+                writer.writeEndElement();
+                writer.writeCharacters("\n");
+                writer.writeEndElement();
+                writer.writeCharacters("\n");
+                writer.writeEndElement();
+                writer.writeCharacters("\n");
+                writer.writeEndDocument();
+            } finally {
+                writer.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * @return Number of channels written
+     */
+    public final long getCount() {
+        return count;
+    }
+
+    /**
+     * Listener notified of the progress of the export.
+     */
+    public interface Listener {
+
+        /**
+         * Called from the exporting thread as the channels are written.
+         *
+         * @param done    Number of channels written
+         * @param total   Number of channels to write, -1 if unknown
+         * @param message Progress message, null to keep the previous one
+         */
+        void onProgress(long done, long total, String message);
+    }
+}
@@ -0,0 +1,220 @@
+package service;
+
+import model.Channel;
+import utils.Channels;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Import the channels of an OPML subscription list.
+ * The file is read as a stream, so only the channels read are kept in memory, not the document.
+ * The channels already saved, matched by YT id through the index, and the channels listed twice
+ * are skipped, and the new channels are saved in one transaction once the file is read.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public class OpmlImporter {
+
+    /**
+     * Number of outlines read between two progress notifications.
+     */
+    private static final int PROGRESS_STEP = 1000;
+
+    /**
+     * Factory of the stream readers, the DTD and the external entities are not resolved.
+     */
+    private static final XMLInputFactory FACTORY = createFactory();
+
+    /**
+     * File to import from.
+     */
+    private final File file;
+
+    /**
+     * Listener notified of the progress.
+     */
+    private final Listener listener;
+
+    /**
+     * Number of channels added.
+     */
+    private int addedCount;
+
+    /**
+     * Number of channels skipped, already saved or listed twice.
+     */
+    private int skippedCount;
+
+    /**
+     * Number of outlines skipped as their feed URL is invalid.
+     */
+    private int invalidCount;
+
+    /**
+     * OpmlImporter constructor.
+     *
+     * @param file     File to import from
+     * @param listener Listener notified of the progress
+     */
+    public OpmlImporter(final File file, final Listener listener) {
+        this.file = file;
+        this.listener = listener;
+    }
+
+    /**
+     * @return Factory of the stream readers
+     */
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    /**
+     * Read the file and save the new channels.
+     *
+     * @throws IOException An error occurred while reading the file or the file is not valid XML
+     */
+    public final void run() throws IOException {
+        listener.onProgress(-1, -1, "Importing " + file.getAbsolutePath());
+        addedCount = 0;
+        skippedCount = 0;
+        invalidCount = 0;
+
+        // Channels by YT id, in file order
+        Map<String, Channel> channels = new LinkedHashMap<>();
+        try (FileInputStream inputStream = new FileInputStream(file)) {
+            FileChannel fileChannel = inputStream.getChannel();
+            long size = fileChannel.size();
+            XMLStreamReader reader = FACTORY.createXMLStreamReader(
+                    new BufferedInputStream(inputStream, 64 * 1024));
+            try {
+                int outlineCount = 0;
+                while (reader.hasNext()) {
+                    if (reader.next() != XMLStreamConstants.START_ELEMENT
+                            || !"outline".equals(reader.getLocalName())) {
+                        continue;
+                    }
+                    String url = reader.getAttributeValue(null, "xmlUrl");
+                    // Outlines without feed are folders
+                    if (url == null) {
+                        continue;
+                    }
+                    String ytId = getYtId(url);
+                    if (ytId == null) {
+                        invalidCount++;
+                    } else if (channels.containsKey(ytId)) {
+                        skippedCount++;
+                    } else {
+                        channels.put(ytId, new Channel(getName(reader), ytId));
+                    }
+                    if (++outlineCount % PROGRESS_STEP == 0) {
+                        listener.onProgress(fileChannel.position(), size, null);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Invalid OPML file: " + e.getMessage(), e);
+        }
+
+        Set<String> existing = Channels.getExistingYtIds(channels.keySet());
+        List<Channel> added = new ArrayList<>(channels.size());
+        for (Channel channel : channels.values()) {
+            if (existing.contains(channel.getYtId())) {
+                skippedCount++;
+            } else {
+                added.add(channel);
+            }
+        }
+        listener.onProgress(-1, -1, "Saving " + added.size() + " channels");
+        Channels.save(added.toArray(new Channel[0]));
+        addedCount = added.size();
+    }
+
+    /**
+     * @return Number of channels added
+     */
+    public final int getAddedCount() {
+        return addedCount;
+    }
+
+    /**
+     * @return Number of channels skipped, already saved or listed twice in the file
+     */
+    public final int getSkippedCount() {
+        return skippedCount;
+    }
+
+    /**
+     * @return Number of outlines skipped as their feed URL is invalid
+     */
+    public final int getInvalidCount() {
+        return invalidCount;
+    }
+
+    /**
+     * @param url Feed URL of an outline
+     * @return YT id of the channel, the last parameter value of the URL, null if the URL is
+     * invalid
+     */
+    private static String getYtId(final String url) {
+        try {
+            new URL(url).toURI();
+        } catch (MalformedURLException | URISyntaxException e) {
+            return null;
+        }
+        int index = url.lastIndexOf('=');
+        if (index < 0 || index == url.length() - 1) {
+            return null;
+        }
+        return url.substring(index + 1);
+    }
+
+    /**
+     * @param reader Reader positioned on an outline
+     * @return Title of the outline, its text if it has no title
+     */
+    private static String getName(final XMLStreamReader reader) {
+        String name = reader.getAttributeValue(null, "title");
+        if (name == null || name.isEmpty()) {
+            name = reader.getAttributeValue(null, "text");
+        }
+        return name;
+    }
+
+    /**
+     * Listener notified of the progress of the import.
+     */
+    public interface Listener {
+
+        /**
+         * Called from the importing thread as the file is read.
+         *
+         * @param done    Number of bytes read
+         * @param total   Size of the file, -1 if unknown
+         * @param message Progress message, null to keep the previous one
+         */
+        void onProgress(long done, long total, String message);
+    }
+}
@@ -0,0 +1,231 @@
+package service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Summary of a refresh.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public class RefreshSummary {
+
+    /**
+     * Time spent in each stage of the refresh, in nanoseconds.
+     */
+    private final Map<Stage, Long> stageTimes = new EnumMap<>(Stage.class);
+
+    /**
+     * Number of channels to refresh.
+     */
+    private int channelCount;
+
+    /**
+     * Number of channels whose feed has been read.
+     */
+    private int readChannelCount;
+
+    /**
+     * Number of channels whose feed has not changed since the last refresh.
+     */
+    private int skippedChannelCount;
+
+    /**
+     * Number of quarantined channels that have not been probed.
+     */
+    private int quarantinedChannelCount;
+
+    /**
+     * Number of channels whose feed could not be read.
+     */
+    private int failedChannelCount;
+
+    /**
+     * Number of new videos.
+     */
+    private int newVideoCount;
+
+    /**
+     * Refresh duration in milliseconds.
+     */
+    private long duration;
+
+    /**
+     * @return Number of channels to refresh
+     */
+    public final int getChannelCount() {
+        return channelCount;
+    }
+
+    /**
+     * @param channelCount Number of channels to refresh
+     */
+    final synchronized void setChannelCount(final int channelCount) {
+        this.channelCount = channelCount;
+    }
+
+    /**
+     * @return Number of channels whose feed has been read
+     */
+    public final int getReadChannelCount() {
+        return readChannelCount;
+    }
+
+    /**
+     * Increment the number of channels whose feed has been read.
+     */
+    final synchronized void incrementReadChannelCount() {
+        readChannelCount++;
+    }
+
+    /**
+     * @return Number of channels whose feed has not changed since the last refresh
+     */
+    public final int getSkippedChannelCount() {
+        return skippedChannelCount;
+    }
+
+    /**
+     * Increment the number of channels whose feed has not changed since the last refresh.
+     */
+    final synchronized void incrementSkippedChannelCount() {
+        skippedChannelCount++;
+    }
+
+    /**
+     * @return Number of quarantined channels that have not been probed
+     */
+    public final int getQuarantinedChannelCount() {
+        return quarantinedChannelCount;
+    }
+
+    /**
+     * Increment the number of quarantined channels that have not been probed.
+     */
+    final synchronized void incrementQuarantinedChannelCount() {
+        quarantinedChannelCount++;
+    }
+
+    /**
+     * @return Number of channels whose feed could not be read
+     */
+    public final int getFailedChannelCount() {
+        return failedChannelCount;
+    }
+
+    /**
+     * Increment the number of channels whose feed could not be read.
+     */
+    final synchronized void incrementFailedChannelCount() {
+        failedChannelCount++;
+    }
+
+    /**
+     * @return Number of new videos
+     */
+    public final int getNewVideoCount() {
+        return newVideoCount;
+    }
+
+    /**
+     * Add to the number of new videos.
+     *
+     * @param count Number of new videos to add
+     */
+    final synchronized void addNewVideoCount(final int count) {
+        newVideoCount += count;
+    }
+
+    /**
+     * @return Refresh duration in milliseconds
+     */
+    public final long getDuration() {
+        return duration;
+    }
+
+    /**
+     * @param duration Refresh duration in milliseconds
+     */
+    final synchronized void setDuration(final long duration) {
+        this.duration = duration;
+    }
+
+    /**
+     * @param stage Stage of the refresh
+     * @return Time spent in the given stage, in milliseconds
+     */
+    public final long getStageTime(final Stage stage) {
+        return TimeUnit.NANOSECONDS.toMillis(getStageNanos(stage));
+    }
+
+    /**
+     * @param stage Stage of the refresh
+     * @return Time spent in the given stage, in nanoseconds
+     */
+    final synchronized long getStageNanos(final Stage stage) {
+        return stageTimes.getOrDefault(stage, 0L);
+    }
+
+    /**
+     * Add to the time spent in the given stage.
+     *
+     * @param stage Stage of the refresh
+     * @param nanos Time to add, in nanoseconds
+     */
+    final synchronized void addStageTime(final Stage stage, final long nanos) {
+        stageTimes.merge(stage, nanos, Long::sum);
+    }
+
+    @Override
+    public final String toString() {
+        return newVideoCount + " new videos, "
+                + readChannelCount + "/" + channelCount + " channels read, "
+                + skippedChannelCount + " channels skipped (unchanged), "
+                + quarantinedChannelCount + " channels skipped (quarantined), "
+                + failedChannelCount + " channels failed, in " + duration + " ms";
+    }
+
+    /**
+     * Stages of the refresh.
+     */
+    public enum Stage {
+
+        /**
+         * Feed download.
+         */
+        FETCH,
+
+        /**
+         * Feed parsing.
+         */
+        PARSE,
+
+        /**
+         * Check whether the videos read in the feed already exist.
+         */
+        EXISTENCE_CHECK,
+
+        /**
+         * Video duration lookup.
+         */
+        DURATION,
+
+        /**
+         * Transaction saving the new videos.
+         */
+        PERSIST,
+
+        /**
+         * Thumbnail download.
+         */
+        THUMBNAIL,
+
+        /**
+         * Channel clean up from old watched videos.
+         */
+        CLEAN
+    }
+}
@@ -0,0 +1,690 @@
+package service;
+
+import config.Config;
+import database.ObjectBox;
+import jfr.DurationLookupEvent;
+import jfr.ExistenceCheckEvent;
+import jfr.FeedFetchEvent;
+import jfr.FeedParseEvent;
+import jfr.PersistEvent;
+import jfr.RefreshRecorder;
+import metrics.Counter;
+import metrics.Histogram;
+import metrics.Metrics;
+import model.Channel;
+import model.Video;
+import service.RefreshSummary.Stage;
+import utils.Channels;
+import utils.Hashes;
+import utils.Http;
+import utils.HttpStatusException;
+import utils.Logger;
+import utils.Videos;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Engine reading the RSS feeds of the channels and saving their new videos.
+ * It does not depend on JavaFX, so it can be run from the GUI as well as from the command line.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public class Refresher {
+
+    /**
+     * Duration of the refreshes.
+     */
+    private static final Histogram REFRESH_TIME = Metrics.timer("refresh_duration_seconds",
+            "Duration of the refreshes");
+
+    /**
+     * Time spent in each stage by the refreshes.
+     */
+    private static final Map<Stage, Histogram> STAGE_TIMES = new EnumMap<>(Stage.class);
+
+    /**
+     * Number of channels that could not be read.
+     */
+    private static final Counter CHANNEL_FAILURES = Metrics.counter(
+            "refresh_channel_failures_total", "Number of channel feeds that could not be read");
+
+    /**
+     * Number of channels read.
+     */
+    private static final Counter CHANNEL_READS = Metrics.counter(
+            "refresh_channel_reads_total", "Number of channel feeds read");
+
+    /**
+     * Number of new videos found.
+     */
+    private static final Counter NEW_VIDEOS = Metrics.counter("refresh_new_videos_total",
+            "Number of new videos found by the refreshes");
+
+    static {
+        for (Stage stage : Stage.values()) {
+            STAGE_TIMES.put(stage, Metrics.timer("refresh_stage_seconds",
+                    "Time spent in each stage by the refreshes", "stage",
+                    stage.name().toLowerCase(Locale.ROOT)));
+        }
+    }
+
+    /**
+     * List of channels to read.
+     */
+    private final List<Channel> channels;
+
+    /**
+     * Listener notified of the refresh progress. Can be null.
+     */
+    private final Listener listener;
+
+    /**
+     * List of not found channels.
+     */
+    private final List<Channel> notFoundChannels =
+            Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * List of channels that could not be read because of a network or server error.
+     */
+    private final List<Channel> failedChannels =
+            Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * Summary of the refresh.
+     */
+    private final RefreshSummary summary = new RefreshSummary();
+
+    /**
+     * Channels that could not be read during this refresh.
+     */
+    private final List<Channel> unreadChannels =
+            Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * Threads reading the channels.
+     */
+    private final Set<Thread> workers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Number of channel feeds read in parallel.
+     */
+    private int threadCount = Config.getIntValue(Config.PROP_REFRESH_THREADS_KEY, 1);
+
+    /**
+     * The refresh resumes the channels left by a cancelled refresh and saves its own checkpoint.
+     */
+    private boolean resumable = true;
+
+    /**
+     * At least one channel has been read during this refresh, used to tell a dead feed from a
+     * network outage.
+     */
+    private volatile boolean channelRead;
+
+    /**
+     * An error occurred while reading the duration of a video.
+     */
+    private volatile boolean durationError;
+
+    /**
+     * The refresh has been cancelled.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * Refresher constructor.
+     *
+     * @param channels List of channels
+     * @param listener Listener notified of the refresh progress, can be null
+     */
+    public Refresher(final List<Channel> channels, final Listener listener) {
+        this.channels = channels;
+        this.listener = listener;
+    }
+
+    /**
+     * Set the number of channel feeds read in parallel, read from the configuration file by
+     * default.
+     *
+     * @param threadCount Number of channel feeds read in parallel
+     */
+    public final void setThreadCount(final int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Set whether the refresh resumes the channels left by a cancelled refresh and saves its own
+     * checkpoint when cancelled, true by default. Only a refresh of all the channels should, a
+     * refresh of some of them would drop the channels of the checkpoint it does not read.
+     *
+     * @param resumable true if the refresh uses the checkpoint, false otherwise
+     */
+    public final void setResumable(final boolean resumable) {
+        this.resumable = resumable;
+    }
+
+    /**
+     * Read the feeds and save the new videos. If the previous refresh has been cancelled and
+     * this refresh is resumable, only the channels it did not read are refreshed.
+     *
+     * @return Summary of the refresh
+     * @throws Exception An error occurred while reading a feed or saving the videos
+     */
+    public final RefreshSummary run() throws Exception {
+        notifyProgress(0, 0, "Initializing...");
+
+        long time = System.currentTimeMillis();
+        List<Channel> channelsToRead = resumable ? resume(channels) : channels;
+        summary.setChannelCount(channelsToRead.size());
+
+        List<Channel> remainingChannels;
+        if (threadCount > 1 && channelsToRead.size() > 1) {
+            remainingChannels = readInParallel(channelsToRead, time);
+        } else {
+            remainingChannels = readInSequence(channelsToRead, time);
+        }
+
+        // Do not count the failures against the channels when none could be read, the network
+        // is most probably down
+        if (channelRead) {
+            Channels.recordFailure(time, unreadChannels.toArray(new Channel[0]));
+        }
+
+        // The checkpoint belongs to the refreshes of all the channels
+        if (resumable && cancelled) {
+            saveCheckpoint(remainingChannels);
+        } else if (resumable) {
+            Config.removeValue(Config.PROP_REFRESH_CHECKPOINT_KEY);
+        }
+
+        summary.setDuration(System.currentTimeMillis() - time);
+        record(summary);
+        RefreshRecorder.onRefreshFinished(summary.getDuration());
+        Logger.get(Refresher.class).info("Refresh " + (cancelled ? "cancelled" : "finished")
+                + ": " + summary);
+        return summary;
+    }
+
+    /**
+     * Cancel the refresh, aborting the HTTP call in progress. The channels already read are
+     * kept and the remaining ones are read by the next refresh.
+     */
+    public final void cancel() {
+        cancelled = true;
+        for (Thread thread : workers) {
+            Http.cancel(thread);
+        }
+    }
+
+    /**
+     * Read the channels one after the other, from the thread running the refresh.
+     *
+     * @param channelsToRead Channels to read
+     * @param time           Time of the refresh
+     * @return Channels left to read because the refresh has been cancelled
+     * @throws Exception An error occurred while reading a feed or saving the videos
+     */
+    private List<Channel> readInSequence(final List<Channel> channelsToRead, final long time)
+            throws Exception {
+        workers.add(Thread.currentThread());
+        try {
+            int c = 0;
+            for (; c < channelsToRead.size() && !cancelled; c++) {
+                try {
+                    readChannel(channelsToRead.get(c), c + 1, channelsToRead.size(), time);
+                } catch (IOException e) {
+                    if (cancelled) {
+                        // The channel being read is left for the next refresh
+                        break;
+                    }
+                    throw e;
+                }
+            }
+            return channelsToRead.subList(c, channelsToRead.size());
+        } finally {
+            workers.remove(Thread.currentThread());
+        }
+    }
+
+    /**
+     * Read the channels on a pool of threads. The first error aborts the channels not started
+     * yet and is thrown once the channels being read are done.
+     *
+     * @param channelsToRead Channels to read
+     * @param time           Time of the refresh
+     * @return Channels left to read because the refresh has been cancelled
+     * @throws Exception An error occurred while reading a feed or saving the videos
+     */
+    private List<Channel> readInParallel(final List<Channel> channelsToRead, final long time)
+            throws Exception {
+        AtomicInteger started = new AtomicInteger();
+        boolean[] read = new boolean[channelsToRead.size()];
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount, runnable -> {
+            // Release the database resources cached by the thread before it terminates
+            Thread thread = new Thread(() -> {
+                try {
+                    runnable.run();
+                } finally {
+                    ObjectBox.close();
+                }
+            }, "refresh-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<?>> futures = new ArrayList<>();
+        for (int c = 0; c < channelsToRead.size(); c++) {
+            int index = c;
+            futures.add(executor.submit(() -> {
+                if (cancelled) {
+                    return null;
+                }
+                workers.add(Thread.currentThread());
+                try {
+                    readChannel(channelsToRead.get(index), started.incrementAndGet(),
+                            channelsToRead.size(), time);
+                    read[index] = true;
+                } catch (IOException e) {
+                    // The channel being read is left for the next refresh
+                    if (!cancelled) {
+                        throw e;
+                    }
+                } finally {
+                    workers.remove(Thread.currentThread());
+                }
+                return null;
+            }));
+        }
+        executor.shutdown();
+        Exception error = null;
+        // The task running the refresh may be interrupted before the refresh is cancelled, the
+        // refresh is then cancelled and the channels being read are waited for, so the
+        // checkpoint can be saved
+        boolean interrupted = false;
+        for (Future<?> future : futures) {
+            boolean done = false;
+            while (!done) {
+                try {
+                    future.get();
+                    done = true;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    cancel();
+                } catch (ExecutionException e) {
+                    done = true;
+                    if (error == null) {
+                        error = e.getCause() instanceof Exception ? (Exception) e.getCause()
+                                : new IOException(e.getCause());
+                        for (Future<?> pending : futures) {
+                            pending.cancel(false);
+                        }
+                    }
+                } catch (CancellationException e) {
+                    // Aborted by a previous error
+                    done = true;
+                }
+            }
+        }
+        while (!executor.isTerminated()) {
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+                cancel();
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (error != null) {
+            throw error;
+        }
+        // The future results happen before, so the read flags are visible
+        List<Channel> remainingChannels = new ArrayList<>();
+        for (int c = 0; c < read.length; c++) {
+            if (!read[c]) {
+                remainingChannels.add(channelsToRead.get(c));
+            }
+        }
+        return remainingChannels;
+    }
+
+    /**
+     * Read the feed of the given channel and commit its new videos, unless it is quarantined.
+     *
+     * @param channel Channel to read
+     * @param done    Number of channels processed, this one included
+     * @param total   Number of channels to process
+     * @param time    Time of the refresh
+     * @throws Exception An error occurred while reading the feed or saving the videos
+     */
+    private void readChannel(final Channel channel, final int done, final int total,
+                             final long time) throws Exception {
+        // Quarantined channels are only probed once in a while
+        if (!Channels.shouldRead(channel, time)) {
+            summary.incrementQuarantinedChannelCount();
+            notifyProgress(done, total, null);
+            return;
+        }
+
+        notifyProgress(done, total, "Reading " + channel.getName() + " feed...");
+
+        long start = System.nanoTime();
+        FeedFetchEvent fetchEvent = new FeedFetchEvent(channel.getYtId());
+        fetchEvent.begin();
+        byte[] body;
+        try {
+            body = Http.get(channel.getUrl());
+            fetchEvent.setBytes(body.length);
+            fetchEvent.setSuccess(true);
+        } catch (HttpStatusException e) {
+            // Already quarantined channels are not reported again
+            if (!Channels.isQuarantined(channel)) {
+                if (e.isNotFound()) {
+                    notFoundChannels.add(channel);
+                } else {
+                    failedChannels.add(channel);
+                }
+            }
+            unreadChannels.add(channel);
+            summary.incrementFailedChannelCount();
+            return;
+        } catch (IOException e) {
+            if (cancelled) {
+                throw e;
+            }
+            if (!Channels.isQuarantined(channel)) {
+                failedChannels.add(channel);
+            }
+            unreadChannels.add(channel);
+            summary.incrementFailedChannelCount();
+            return;
+        } finally {
+            fetchEvent.commit();
+            start = lap(Stage.FETCH, start);
+        }
+        channelRead = true;
+        summary.incrementReadChannelCount();
+        Channels.recordSuccess(channel);
+
+        // Skip the feed if its content has not changed since the last refresh
+        long feedHash = Hashes.xxHash64(body);
+        if (feedHash == channel.getFeedHash()) {
+            summary.incrementSkippedChannelCount();
+            return;
+        }
+
+        // Create a YT ID list to check whether there are videos in the database that have been
+        // watched and not in the feed anymore
+        List<String> ytIds = new ArrayList<>();
+
+        // New videos found in the feed, committed together once the feed has been read
+        List<Video> newVideos = new ArrayList<>();
+
+        // Videos of the feed without thumbnail, left by a refresh cancelled while downloading
+        List<Video> missingThumbnails = new ArrayList<>();
+
+        FeedParseEvent parseEvent = new FeedParseEvent(channel.getYtId());
+        parseEvent.begin();
+        List<FeedEntry> entries = FeedParser.parse(body);
+        parseEvent.setBytes(body.length);
+        parseEvent.setEntryCount(entries.size());
+        parseEvent.commit();
+        start = lap(Stage.PARSE, start);
+
+        for (FeedEntry entry : entries) {
+            ExistenceCheckEvent existenceEvent = new ExistenceCheckEvent(channel.getYtId(),
+                    entry.getYtId());
+            existenceEvent.begin();
+            Video existing = Videos.getByYtId(entry.getYtId());
+            boolean exists = existing != null;
+            existenceEvent.setExists(exists);
+            existenceEvent.commit();
+            start = lap(Stage.EXISTENCE_CHECK, start);
+
+            if (exists && !existing.getThumbnailFile().exists()) {
+                missingThumbnails.add(existing);
+            }
+
+            if (!exists) {
+                // Duration
+                long duration = 0;
+                if (entry.getUrl() != null && Config.getValue(Config.PROP_API_KEY) != null) {
+                    DurationLookupEvent durationEvent = new DurationLookupEvent(
+                            channel.getYtId(), entry.getYtId());
+                    durationEvent.begin();
+                    try {
+                        duration = Videos.retrieveDuration(entry.getYtId());
+                        durationEvent.setSuccess(true);
+                    } catch (IOException e) {
+                        if (cancelled) {
+                            throw e;
+                        }
+                        durationError = true;
+                    } finally {
+                        durationEvent.commit();
+                    }
+                }
+                start = lap(Stage.DURATION, start);
+
+                newVideos.add(new Video(entry.getTitle(), entry.getTime(),
+                        entry.getThumbnailUrl(), duration, entry.getYtId(), channel));
+            }
+
+            ytIds.add(entry.getYtId());
+        }
+
+        // Save videos
+        Video[] videos = newVideos.toArray(new Video[0]);
+        PersistEvent persistEvent = new PersistEvent(channel.getYtId());
+        persistEvent.begin();
+        Videos.update(videos);
+        persistEvent.setVideoCount(videos.length);
+        persistEvent.commit();
+        start = lap(Stage.PERSIST, start);
+        Videos.downloadThumbnails(videos);
+        downloadMissingThumbnails(missingThumbnails);
+        start = lap(Stage.THUMBNAIL, start);
+        summary.addNewVideoCount(newVideos.size());
+
+        Channels.clean(channel, ytIds);
+
+        // Store the fingerprint once the feed has been fully processed
+        channel.setFeedHash(feedHash);
+        Channels.save(channel);
+        lap(Stage.CLEAN, start);
+
+        if (listener != null) {
+            listener.onChannelRefreshed(channel, newVideos);
+        }
+    }
+
+    /**
+     * Download the thumbnails missing from videos saved by a previous refresh. A thumbnail that
+     * cannot be downloaded is tried again the next time the feed changes.
+     *
+     * @param videos Videos without thumbnail file
+     * @throws IOException The refresh has been cancelled during a download
+     */
+    private void downloadMissingThumbnails(final List<Video> videos) throws IOException {
+        for (Video video : videos) {
+            try {
+                Videos.downloadThumbnails(video);
+            } catch (IOException e) {
+                if (cancelled) {
+                    throw e;
+                }
+                Logger.get(Refresher.class).warn("Cannot download thumbnail of "
+                        + video.getYtId() + ": " + e);
+            }
+        }
+    }
+
+    /**
+     * Record the summary of a refresh in the metrics.
+     *
+     * @param refreshSummary Summary of the refresh
+     */
+    private static void record(final RefreshSummary refreshSummary) {
+        REFRESH_TIME.record(TimeUnit.MILLISECONDS.toNanos(refreshSummary.getDuration()));
+        for (Stage stage : Stage.values()) {
+            STAGE_TIMES.get(stage).record(refreshSummary.getStageNanos(stage));
+        }
+        CHANNEL_FAILURES.add(refreshSummary.getFailedChannelCount());
+        CHANNEL_READS.add(refreshSummary.getReadChannelCount());
+        NEW_VIDEOS.add(refreshSummary.getNewVideoCount());
+    }
+
+    /**
+     * Add the time elapsed since the given start to the given stage.
+     *
+     * @param stage Stage the time has been spent in
+     * @param start Start time in nanoseconds
+     * @return Current time in nanoseconds, start of the next stage
+     */
+    private long lap(final Stage stage, final long start) {
+        long now = System.nanoTime();
+        summary.addStageTime(stage, now - start);
+        return now;
+    }
+
+    /**
+     * Notify the listener of the refresh progress.
+     *
+     * @param done    Number of channels processed
+     * @param total   Number of channels to process
+     * @param message Progress message, null to keep the previous one
+     */
+    private void notifyProgress(final int done, final int total, final String message) {
+        if (listener != null) {
+            listener.onProgress(done, total, message);
+        }
+    }
+
+    /**
+     * Keep only the channels left to read by a cancelled refresh, if any.
+     *
+     * @param allChannels All the channels to refresh
+     * @return Channels to read
+     * @throws IOException An error occurred while reading the checkpoint
+     */
+    private static List<Channel> resume(final List<Channel> allChannels) throws IOException {
+        String checkpoint = Config.getValue(Config.PROP_REFRESH_CHECKPOINT_KEY);
+        if (checkpoint == null || checkpoint.isBlank()) {
+            return allChannels;
+        }
+        Set<Long> ids = new HashSet<>();
+        for (String id : checkpoint.split(",")) {
+            try {
+                ids.add(Long.parseLong(id.trim()));
+            } catch (NumberFormatException e) {
+                Logger.get(Refresher.class).error(e);
+            }
+        }
+        List<Channel> remainingChannels = allChannels.stream()
+                .filter(channel -> ids.contains(channel.getId()))
+                .collect(Collectors.toList());
+        if (remainingChannels.isEmpty()) {
+            return allChannels;
+        }
+        Logger.get(Refresher.class).info("Resuming refresh with " + remainingChannels.size()
+                + " channels left");
+        return remainingChannels;
+    }
+
+    /**
+     * Save the channels left to read, so the next refresh resumes with them.
+     *
+     * @param remainingChannels Channels left to read
+     * @throws IOException An error occurred while writing the checkpoint
+     */
+    private static void saveCheckpoint(final List<Channel> remainingChannels)
+            throws IOException {
+        if (remainingChannels.isEmpty()) {
+            Config.removeValue(Config.PROP_REFRESH_CHECKPOINT_KEY);
+            return;
+        }
+        Config.setValue(Config.PROP_REFRESH_CHECKPOINT_KEY, remainingChannels.stream()
+                .map(channel -> String.valueOf(channel.getId()))
+                .collect(Collectors.joining(",")));
+    }
+
+    /**
+     * @return true if the refresh has been cancelled, false otherwise
+     */
+    public final boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return true if an error occurred while reading the duration of a video, false otherwise
+     */
+    public final boolean hasDurationError() {
+        return durationError;
+    }
+
+    /**
+     * @return Channels not found while reading the feeds
+     */
+    public final List<Channel> getNotFoundChannels() {
+        return notFoundChannels;
+    }
+
+    /**
+     * @return Channels that could not be read because of a network or server error
+     */
+    public final List<Channel> getFailedChannels() {
+        return failedChannels;
+    }
+
+    /**
+     * @return Summary of the refresh
+     */
+    public final RefreshSummary getSummary() {
+        return summary;
+    }
+
+    /**
+     * Listener notified of the refresh progress, called from the thread reading the channel,
+     * which is not the thread running the refresh when the channels are read in parallel.
+     */
+    public interface Listener {
+
+        /**
+         * Called before a channel is read.
+         *
+         * @param done    Number of channels processed
+         * @param total   Number of channels to process
+         * @param message Progress message, null to keep the previous one
+         */
+        void onProgress(int done, int total, String message);
+
+        /**
+         * Called once the videos of a channel have been committed.
+         *
+         * @param channel   Refreshed channel
+         * @param newVideos New videos of the channel, in feed order
+         */
+        void onChannelRefreshed(Channel channel, List<Video> newVideos);
+    }
+}
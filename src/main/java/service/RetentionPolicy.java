@@ -0,0 +1,289 @@
+package service;
+
+import config.Config;
+import metrics.Counter;
+import metrics.Metrics;
+import model.Channel;
+import model.Video;
+import utils.Channels;
+import utils.Logger;
+import utils.Videos;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delete the watched videos that are not worth keeping anymore, as the refreshes only delete
+ * the watched videos that have dropped out of the feed of their channel.
+ * Two rules can be set in the configuration file: delete the watched videos published more
+ * than a number of days ago, and keep at most a number of watched videos per channel, the most
+ * recent ones. The unwatched videos are never deleted, nor are the videos still in the feed of
+ * their channel, as the next refresh would find them missing and create them again as unwatched.
+ * <p>
+ * The rules are applied periodically on a low priority thread. The videos to delete are looked
+ * up by a query, then deleted in chunks, each in its own transaction followed by the deletion of
+ * the thumbnails of the chunk, so the database is never locked for long.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public class RetentionPolicy {
+
+    /**
+     * Maximum number of videos deleted in one transaction.
+     */
+    private static final int CHUNK_SIZE = 500;
+
+    /**
+     * Default number of hours between two applications of the rules.
+     */
+    private static final int DEFAULT_INTERVAL_HOURS = 24;
+
+    /**
+     * Minutes to wait after the start up before applying the rules the first time.
+     */
+    private static final int START_DELAY_MINUTES = 5;
+
+    /**
+     * Maximum time in milliseconds to wait for the chunk being deleted when stopping.
+     */
+    private static final long STOP_TIMEOUT = 5000;
+
+    /**
+     * Number of videos deleted by the retention policy.
+     */
+    private static final Counter DELETED_VIDEOS = Metrics.counter(
+            "retention_deleted_videos_total", "Number of videos deleted by the retention policy");
+
+    /**
+     * Number of thumbnail bytes freed by the retention policy.
+     */
+    private static final Counter FREED_BYTES = Metrics.counter(
+            "retention_freed_bytes_total",
+            "Number of thumbnail bytes freed by the retention policy");
+
+    /**
+     * Number of days after which a watched video is deleted, 0 to keep them.
+     */
+    private final int watchedDays;
+
+    /**
+     * Maximum number of watched videos kept per channel, 0 for no limit.
+     */
+    private final int watchedPerChannel;
+
+    /**
+     * Listener notified when videos are deleted. Can be null.
+     */
+    private final Listener listener;
+
+    /**
+     * Scheduler applying the rules periodically.
+     */
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "retention");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+
+    /**
+     * Ids of the videos in the feed of each channel read by the current application of the
+     * rules, by channel id.
+     */
+    private final Map<Long, Set<Long>> feedIds = new HashMap<>();
+
+    /**
+     * The policy has been stopped.
+     */
+    private volatile boolean stopped;
+
+    /**
+     * Number of videos deleted by the last application of the rules.
+     */
+    private long deletedCount;
+
+    /**
+     * Number of thumbnail bytes freed by the last application of the rules.
+     */
+    private long freedBytes;
+
+    /**
+     * RetentionPolicy constructor.
+     *
+     * @param watchedDays       Number of days after which a watched video is deleted, 0 to keep
+     *                          them
+     * @param watchedPerChannel Maximum number of watched videos kept per channel, 0 for no limit
+     * @param listener          Listener notified when videos are deleted, can be null
+     */
+    public RetentionPolicy(final int watchedDays, final int watchedPerChannel,
+                           final Listener listener) {
+        this.watchedDays = watchedDays;
+        this.watchedPerChannel = watchedPerChannel;
+        this.listener = listener;
+    }
+
+    /**
+     * Start applying the rules periodically if at least one of them is set in the configuration
+     * file.
+     *
+     * @param listener Listener notified when videos are deleted, can be null
+     * @return Started policy, null if no rule is set
+     */
+    public static RetentionPolicy startIfEnabled(final Listener listener) {
+        int watchedDays = Config.getIntValue(Config.PROP_RETENTION_WATCHED_DAYS_KEY, 0);
+        int watchedPerChannel = Config.getIntValue(
+                Config.PROP_RETENTION_WATCHED_PER_CHANNEL_KEY, 0);
+        if (watchedDays <= 0 && watchedPerChannel <= 0) {
+            return null;
+        }
+        int hours = Math.max(1, Config.getIntValue(Config.PROP_RETENTION_INTERVAL_HOURS_KEY,
+                DEFAULT_INTERVAL_HOURS));
+        RetentionPolicy policy = new RetentionPolicy(Math.max(0, watchedDays),
+                Math.max(0, watchedPerChannel), listener);
+        policy.scheduler.scheduleWithFixedDelay(() -> {
+            // A periodic task stops for good when it throws
+            try {
+                policy.run();
+            } catch (IOException | RuntimeException e) {
+                Logger.get(RetentionPolicy.class).error(e);
+            }
+        }, TimeUnit.MINUTES.toSeconds(START_DELAY_MINUTES), TimeUnit.HOURS.toSeconds(hours),
+                TimeUnit.SECONDS);
+        return policy;
+    }
+
+    /**
+     * Stop applying the rules once the chunk being deleted is committed.
+     */
+    public final void stop() {
+        stopped = true;
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(STOP_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Apply the rules once.
+     *
+     * @throws IOException An error occurred while deleting a thumbnail, the videos of the
+     *                     chunks already committed stay deleted
+     */
+    public final void run() throws IOException {
+        long start = System.nanoTime();
+        deletedCount = 0;
+        freedBytes = 0;
+        feedIds.clear();
+        if (watchedDays > 0) {
+            long cutoff = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(watchedDays);
+            delete(Videos.getWatchedIdsPublishedBefore(cutoff), cutoff);
+        }
+        if (watchedPerChannel > 0) {
+            // Channel by channel, so only the ids of one channel are loaded at once
+            for (Channel channel : Channels.getAll()) {
+                if (stopped) {
+                    break;
+                }
+                delete(Videos.getWatchedIdsByChannelId(channel.getId(), watchedPerChannel),
+                        Long.MAX_VALUE);
+            }
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Logger.get(RetentionPolicy.class).info(String.format(
+                "Retention policy deleted %d videos and freed %d bytes of thumbnails in %d ms",
+                deletedCount, freedBytes, elapsed));
+        if (deletedCount > 0 && listener != null) {
+            listener.onVideosDeleted(deletedCount, freedBytes);
+        }
+    }
+
+    /**
+     * Delete the given videos in chunks. The videos are read again before being deleted, so the
+     * ones set to unwatched since the lookup are kept, and the ones in the feed of their channel
+     * are kept as well.
+     *
+     * @param ids    Ids of the videos to delete
+     * @param cutoff Published time of the oldest video to keep
+     * @throws IOException An error occurred while deleting a thumbnail
+     */
+    private void delete(final long[] ids, final long cutoff) throws IOException {
+        for (int from = 0; from < ids.length && !stopped; from += CHUNK_SIZE) {
+            long[] chunk = Arrays.copyOfRange(ids, from, Math.min(ids.length, from + CHUNK_SIZE));
+            List<Video> videos = new ArrayList<>(chunk.length);
+            long bytes = 0;
+            for (Video video : Videos.get(chunk)) {
+                if (video != null && video.isWatched() && video.getTime() < cutoff
+                        && !isInFeed(video)) {
+                    videos.add(video);
+                    bytes += video.getThumbnailFile().length();
+                }
+            }
+            if (videos.isEmpty()) {
+                continue;
+            }
+            Videos.delete(videos.toArray(new Video[0]));
+            deletedCount += videos.size();
+            freedBytes += bytes;
+            DELETED_VIDEOS.add(videos.size());
+            FREED_BYTES.add(bytes);
+        }
+    }
+
+    /**
+     * @param video Video to check
+     * @return true if the video is one of the most recent videos of its channel, which are in
+     * the feed read by the refreshes, false otherwise
+     */
+    private boolean isInFeed(final Video video) {
+        return feedIds.computeIfAbsent(video.getChannel().getTargetId(), channelId -> {
+            Set<Long> ids = new HashSet<>();
+            for (Video newest : Videos.getNewestByChannelId(channelId,
+                    FeedParser.FEED_SIZE)) {
+                ids.add(newest.getId());
+            }
+            return ids;
+        }).contains(video.getId());
+    }
+
+    /**
+     * @return Number of videos deleted by the last application of the rules
+     */
+    public final long getDeletedCount() {
+        return deletedCount;
+    }
+
+    /**
+     * @return Number of thumbnail bytes freed by the last application of the rules
+     */
+    public final long getFreedBytes() {
+        return freedBytes;
+    }
+
+    /**
+     * Listener notified when the retention policy deletes videos.
+     */
+    public interface Listener {
+
+        /**
+         * Called from the retention thread once the videos have been deleted.
+         *
+         * @param deletedCount Number of videos deleted
+         * @param freedBytes   Number of thumbnail bytes freed
+         */
+        void onVideosDeleted(long deletedCount, long freedBytes);
+    }
+}
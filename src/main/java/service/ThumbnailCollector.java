@@ -0,0 +1,288 @@
+package service;
+
+import config.Config;
+import metrics.Counter;
+import metrics.Metrics;
+import model.Video;
+import utils.Logger;
+import utils.Tombstones;
+import utils.Videos;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delete the thumbnails whose video does not exist anymore, left behind by failed deletions,
+ * interrupted channel deletions or imports replacing the database.
+ * The thumbnail directory is walked as a stream and the id in the name of each thumbnail is
+ * looked up in a sorted array of the video ids, read from the database in one query. The
+ * orphans are deleted in batches, each batch being checked against the database once more.
+ * <p>
+ * The tombstones that no delta backup will read anymore, the ones older than the checkpoint of
+ * the next delta, or all of them if no backup has been made, are deleted as well.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public class ThumbnailCollector {
+
+    /**
+     * Maximum number of thumbnails deleted in one batch.
+     */
+    private static final int BATCH_SIZE = 1000;
+
+    /**
+     * Default number of hours between two collections.
+     */
+    private static final int DEFAULT_INTERVAL_HOURS = 24;
+
+    /**
+     * Minutes to wait after the start up before collecting the first time.
+     */
+    private static final int START_DELAY_MINUTES = 10;
+
+    /**
+     * Maximum time in milliseconds to wait for the batch being deleted when stopping.
+     */
+    private static final long STOP_TIMEOUT = 5000;
+
+    /**
+     * Number of orphan thumbnails deleted.
+     */
+    private static final Counter DELETED_FILES = Metrics.counter(
+            "thumbnail_gc_deleted_files_total", "Number of orphan thumbnails deleted");
+
+    /**
+     * Number of bytes freed by deleting the orphan thumbnails.
+     */
+    private static final Counter FREED_BYTES = Metrics.counter(
+            "thumbnail_gc_freed_bytes_total",
+            "Number of bytes freed by deleting the orphan thumbnails");
+
+    /**
+     * Scheduler collecting the thumbnails periodically.
+     */
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "thumbnail-gc");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+
+    /**
+     * The collector has been stopped.
+     */
+    private volatile boolean stopped;
+
+    /**
+     * Number of thumbnails deleted by the last collection.
+     */
+    private long deletedCount;
+
+    /**
+     * Number of bytes freed by the last collection.
+     */
+    private long freedBytes;
+
+    /**
+     * Start collecting the thumbnails periodically, every thumbnailGcHours hours set in the
+     * configuration file (0 disables it).
+     *
+     * @return Started collector, null if the collection is disabled
+     */
+    public static ThumbnailCollector startIfEnabled() {
+        int hours = Config.getIntValue(Config.PROP_THUMBNAIL_GC_HOURS_KEY,
+                DEFAULT_INTERVAL_HOURS);
+        if (hours <= 0) {
+            return null;
+        }
+        ThumbnailCollector collector = new ThumbnailCollector();
+        collector.scheduler.scheduleWithFixedDelay(() -> {
+            // A periodic task stops for good when it throws
+            try {
+                collector.run();
+            } catch (IOException | RuntimeException e) {
+                Logger.get(ThumbnailCollector.class).error(e);
+            }
+        }, TimeUnit.MINUTES.toSeconds(START_DELAY_MINUTES), TimeUnit.HOURS.toSeconds(hours),
+                TimeUnit.SECONDS);
+        return collector;
+    }
+
+    /**
+     * Stop collecting once the batch being deleted is done.
+     */
+    public final void stop() {
+        stopped = true;
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(STOP_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Collect the orphan thumbnails and the tombstones once.
+     *
+     * @throws IOException An error occurred while listing the thumbnail directory or reading the
+     *                     configuration file
+     */
+    public final void run() throws IOException {
+        long start = System.nanoTime();
+        deletedCount = 0;
+        freedBytes = 0;
+        Path directory = Paths.get(Videos.THUMBNAIL_PATH);
+        if (Files.isDirectory(directory)) {
+            collect(directory);
+        }
+        long tombstoneCount = stopped ? 0 : pruneTombstones();
+
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Logger.get(ThumbnailCollector.class).info(String.format(
+                "Thumbnail collector deleted %d orphan thumbnails, freed %d bytes and deleted %d"
+                        + " tombstones in %d ms", deletedCount, freedBytes, tombstoneCount,
+                elapsed));
+    }
+
+    /**
+     * Delete the orphan thumbnails of the directory.
+     *
+     * @param directory Thumbnail directory
+     * @throws IOException An error occurred while listing the directory
+     */
+    private void collect(final Path directory) throws IOException {
+        // The thumbnails written from now on may belong to videos saved after the ids are read
+        long startTime = System.currentTimeMillis();
+        long[] ids = Videos.getAllIds();
+        Arrays.sort(ids);
+
+        List<Path> paths = new ArrayList<>(BATCH_SIZE);
+        long[] batchIds = new long[BATCH_SIZE];
+        long[] sizes = new long[BATCH_SIZE];
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                "*" + Videos.THUMBNAIL_EXT)) {
+            for (Path path : stream) {
+                if (stopped) {
+                    break;
+                }
+                long id = getId(path);
+                if (id <= 0 || Arrays.binarySearch(ids, id) >= 0) {
+                    continue;
+                }
+                BasicFileAttributes attributes = Files.readAttributes(path,
+                        BasicFileAttributes.class);
+                if (!attributes.isRegularFile()
+                        || attributes.lastModifiedTime().toMillis() >= startTime) {
+                    continue;
+                }
+                batchIds[paths.size()] = id;
+                sizes[paths.size()] = attributes.size();
+                paths.add(path);
+                if (paths.size() == BATCH_SIZE) {
+                    delete(paths, batchIds, sizes);
+                    paths.clear();
+                }
+            }
+        }
+        if (!stopped) {
+            delete(paths, batchIds, sizes);
+        }
+    }
+
+    /**
+     * Delete the tombstones older than the ones read by the next delta backup.
+     *
+     * @return Number of tombstones deleted
+     * @throws IOException An error occurred while reading the configuration file
+     */
+    private static long pruneTombstones() throws IOException {
+        String checkpoint = Config.getValue(Config.PROP_BACKUP_CHECKPOINT_KEY);
+        if (checkpoint == null) {
+            // Left by the deletions made before the tombstones depended on the backups
+            return Tombstones.deleteBefore(Long.MAX_VALUE);
+        }
+        return Tombstones.deleteBefore(Long.parseLong(checkpoint) - LibraryExporter.SAVE_MARGIN);
+    }
+
+    /**
+     * Delete a batch of orphan thumbnails, except the ones whose video has been saved since the
+     * video ids were read.
+     *
+     * @param paths Paths of the thumbnails
+     * @param ids   Video ids of the thumbnails, in the same order as the paths
+     * @param sizes Sizes of the thumbnails, in the same order as the paths
+     */
+    private void delete(final List<Path> paths, final long[] ids, final long[] sizes) {
+        if (paths.isEmpty()) {
+            return;
+        }
+        Set<Long> saved = new HashSet<>();
+        for (Video video : Videos.get(Arrays.copyOf(ids, paths.size()))) {
+            if (video != null) {
+                saved.add(video.getId());
+            }
+        }
+        long count = 0;
+        long bytes = 0;
+        for (int i = 0; i < paths.size(); i++) {
+            if (saved.contains(ids[i])) {
+                continue;
+            }
+            try {
+                if (Files.deleteIfExists(paths.get(i))) {
+                    count++;
+                    bytes += sizes[i];
+                }
+            } catch (IOException e) {
+                Logger.get(ThumbnailCollector.class).warn("Cannot delete " + paths.get(i), e);
+            }
+        }
+        deletedCount += count;
+        freedBytes += bytes;
+        DELETED_FILES.add(count);
+        FREED_BYTES.add(bytes);
+    }
+
+    /**
+     * @param path Path of a thumbnail
+     * @return Id of the video the thumbnail belongs to, -1 if the name is not a video id
+     */
+    private static long getId(final Path path) {
+        String name = path.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(0, name.length()
+                    - Videos.THUMBNAIL_EXT.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return Number of thumbnails deleted by the last collection
+     */
+    public final long getDeletedCount() {
+        return deletedCount;
+    }
+
+    /**
+     * @return Number of bytes freed by the last collection
+     */
+    public final long getFreedBytes() {
+        return freedBytes;
+    }
+}
@@ -0,0 +1,150 @@
+package service;
+
+import database.ObjectBox;
+import model.Video;
+import utils.Logger;
+import utils.Videos;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service downloading the thumbnails of saved videos in background threads, so the caller can
+ * keep saving videos while the previous ones are downloaded. The queue is bounded: once it is
+ * full, the thread submitting the videos downloads them itself, which keeps the memory used by
+ * pending videos bounded and slows the caller down to the download rate.
+ * <p>
+ * A failed download is logged and does not stop the others, the default thumbnail is shown for
+ * the video.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public class ThumbnailDownloader {
+
+    /**
+     * Number of thumbnails downloaded in parallel.
+     */
+    private static final int THREAD_COUNT = 4;
+
+    /**
+     * Maximum number of thumbnails waiting to be downloaded.
+     */
+    private static final int QUEUE_CAPACITY = 1000;
+
+    /**
+     * Executor downloading the thumbnails.
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Number of thumbnails submitted.
+     */
+    private final AtomicInteger submittedCount = new AtomicInteger();
+
+    /**
+     * Number of thumbnails whose download is over, failed or not.
+     */
+    private final AtomicInteger doneCount = new AtomicInteger();
+
+    /**
+     * Number of thumbnails that could not be downloaded.
+     */
+    private final AtomicInteger failedCount = new AtomicInteger();
+
+    /**
+     * ThumbnailDownloader constructor.
+     */
+    public ThumbnailDownloader() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(THREAD_COUNT, THREAD_COUNT, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+            // Release the database resources cached by the thread before it terminates
+            Thread thread = new Thread(() -> {
+                try {
+                    runnable.run();
+                } finally {
+                    ObjectBox.close();
+                }
+            }, "thumbnail-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Queue the thumbnails of the given videos, which must have been saved beforehand.
+     *
+     * @param videos Videos to download the thumbnail for
+     */
+    public final void submit(final Video... videos) {
+        for (Video video : videos) {
+            submittedCount.incrementAndGet();
+            executor.execute(() -> download(video));
+        }
+    }
+
+    /**
+     * Download the thumbnail of the given video.
+     *
+     * @param video Video to download the thumbnail for
+     */
+    private void download(final Video video) {
+        try {
+            Videos.downloadThumbnails(video);
+        } catch (IOException e) {
+            failedCount.incrementAndGet();
+            Logger.get(ThumbnailDownloader.class).warn("Cannot download the thumbnail of "
+                    + video.getYtId() + ": " + e.getMessage());
+        } finally {
+            doneCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Stop accepting thumbnails and wait for the queued ones to be downloaded.
+     *
+     * @param timeout Maximum time to wait
+     * @param unit    Unit of the timeout
+     * @return true if all the thumbnails have been downloaded, false if the timeout elapsed
+     * before
+     * @throws InterruptedException The thread has been interrupted while waiting
+     */
+    public final boolean awaitTermination(final long timeout, final TimeUnit unit)
+            throws InterruptedException {
+        executor.shutdown();
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * Drop the queued thumbnails and interrupt the running downloads.
+     */
+    public final void cancel() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return Number of thumbnails submitted
+     */
+    public final int getSubmittedCount() {
+        return submittedCount.get();
+    }
+
+    /**
+     * @return Number of thumbnails whose download is over, failed or not
+     */
+    public final int getDoneCount() {
+        return doneCount.get();
+    }
+
+    /**
+     * @return Number of thumbnails that could not be downloaded
+     */
+    public final int getFailedCount() {
+        return failedCount.get();
+    }
+}
@@ -0,0 +1,8 @@
+/**
+ * Service package, running the application processes without depending on JavaFX.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+package service;
@@ -1,28 +1,27 @@
 package task;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import javafx.concurrent.Task;
-import utils.Channels;
-import utils.Json;
+import service.LibraryExporter;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 
 /**
- * Task exporting channels and videos to JSON.
+ * Task exporting channels and videos to JSON, or to the binary backup format if the file has
+ * the backup extension.
+ * The file is written by a {@link LibraryExporter}, this task only reports its progress to the
+ * GUI.
  *
  * @author Alkisum
- * @version 4.1
+ * @version 4.6
  * @since 4.1
  */
-public class JsonExporter extends Task<Void> {
+public class JsonExporter extends Task<Void> implements LibraryExporter.Listener {
 
     /**
-     * File to export to.
+     * Engine writing the file.
      */
-    private final File file;
+    private final LibraryExporter exporter;
 
     /**
      * JsonExporter constructor.
@@ -30,22 +29,38 @@ public class JsonExporter extends Task<Void> {
      * @param file File to export to
      */
     public JsonExporter(final File file) {
-        this.file = file;
+        this.exporter = new LibraryExporter(file, this);
     }
 
     @Override
     protected final Void call() throws IOException {
         updateProgress(-1, -1);
-        updateMessage("Exporting to " + file.getAbsolutePath());
+        exporter.run();
+        return null;
+    }
 
-        Gson gson = new GsonBuilder()
-                .setExclusionStrategies(Json.EXCLUSION_STRATEGY)
-                .setPrettyPrinting()
-                .create();
+    /**
+     * Cancel the export once the channel being written is completed.
+     *
+     * @param mayInterruptIfRunning Interrupt the thread executing the task
+     * @return false if the task could not be cancelled, true otherwise
+     */
+    @Override
+    public final boolean cancel(final boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (cancelled) {
+            exporter.cancel();
+        }
+        return cancelled;
+    }
 
-        try (FileWriter fileWriter = new FileWriter(file)) {
-            gson.toJson(Channels.getAll(), fileWriter);
+    @Override
+    public final void onProgress(final long done, final long total, final String message) {
+        if (total > 0) {
+            updateProgress(done, total);
+        }
+        if (message != null) {
+            updateMessage(message);
         }
-        return null;
     }
 }
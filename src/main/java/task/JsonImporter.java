@@ -1,33 +1,26 @@
 package task;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.stream.JsonReader;
 import javafx.concurrent.Task;
-import model.Channel;
-import model.Video;
-import utils.ChannelDeserializer;
-import utils.Channels;
-import utils.Json;
-import utils.Thumbnails;
+import service.LibraryImporter;
 
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 
 /**
- * Task importing channels and videos from JSON.
+ * Task importing channels and videos from JSON or from the binary backup format.
+ * The file is read by a {@link LibraryImporter}, this task only reports its progress to the
+ * GUI.
  *
  * @author Alkisum
- * @version 4.1
+ * @version 4.6
  * @since 4.1
  */
-public class JsonImporter extends Task<Void> {
+public class JsonImporter extends Task<Void> implements LibraryImporter.Listener {
 
     /**
-     * File to import from.
+     * Engine reading the file.
      */
-    private final File file;
+    private final LibraryImporter importer;
 
     /**
      * JsonImporter constructor.
@@ -35,33 +28,49 @@ public class JsonImporter extends Task<Void> {
      * @param file File to import from
      */
     public JsonImporter(final File file) {
-        this.file = file;
+        this(file, false);
     }
 
-    @Override
-    protected final Void call() throws IOException {
-        // Read JSON file
-        Gson gson = new GsonBuilder()
-                .setExclusionStrategies(Json.EXCLUSION_STRATEGY)
-                .registerTypeAdapter(Channel.class, new ChannelDeserializer())
-                .create();
-        JsonReader jsonReader = new JsonReader(new FileReader(file));
-        Channel[] channels = gson.fromJson(jsonReader, Channel[].class);
+    /**
+     * JsonImporter constructor.
+     *
+     * @param file  File to import from
+     * @param merge Merge the file into the database, matching the channels and videos by YT id,
+     *              instead of replacing the database
+     */
+    public JsonImporter(final File file, final boolean merge) {
+        this.importer = new LibraryImporter(file, merge, this);
+    }
 
-        // Delete all existing channels and videos
-        Channels.deleteAll();
+    @Override
+    protected final Void call() throws IOException, InterruptedException {
+        updateProgress(-1, -1);
+        importer.run();
+        return null;
+    }
 
-        // Import channels and videos read from JSON file
-        for (int i = 0; i < channels.length; i++) {
-            Channel channel = channels[i];
-            updateProgress(i + 1, channels.length);
-            updateMessage("Importing videos of " + channel.getName());
-            Channels.save(channel);
-            for (Video video : channel.getVideos()) {
-                Thumbnails.downloadThumbnail(video.getThumbnailUrl(), video.getThumbnailFile());
-            }
+    /**
+     * Cancel the import once the videos read are saved.
+     *
+     * @param mayInterruptIfRunning Interrupt the thread executing the task
+     * @return false if the task could not be cancelled, true otherwise
+     */
+    @Override
+    public final boolean cancel(final boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (cancelled) {
+            importer.cancel();
         }
+        return cancelled;
+    }
 
-        return null;
+    @Override
+    public final void onProgress(final long done, final long total, final String message) {
+        if (total > 0) {
+            updateProgress(done, total);
+        }
+        if (message != null) {
+            updateMessage(message);
+        }
     }
 }
@@ -1,35 +1,25 @@
 package task;
 
 import javafx.concurrent.Task;
-import model.Channel;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import utils.Channels;
+import service.OpmlImporter;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.File;
-import java.net.MalformedURLException;
-import java.net.URISyntaxException;
-import java.net.URL;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
 
 /**
  * Task reading the OPML file to import a list of channels to subscribe.
+ * The file is read by an {@link OpmlImporter}, this task only reports its progress to the GUI.
  *
  * @author Alkisum
- * @version 4.1
+ * @version 4.6
  * @since 1.0
  */
-public class OpmlReader extends Task<List<Channel>> {
+public class OpmlReader extends Task<String> implements OpmlImporter.Listener {
 
     /**
-     * File to read.
+     * Engine reading the file.
      */
-    private final File file;
+    private final OpmlImporter importer;
 
     /**
      * OpmlReader constructor.
@@ -37,42 +27,28 @@ public class OpmlReader extends Task<List<Channel>> {
      * @param file File to read
      */
     public OpmlReader(final File file) {
-        this.file = file;
+        this.importer = new OpmlImporter(file, this);
     }
 
+    /**
+     * @return Summary of the import: the number of channels added, skipped and invalid
+     * @throws IOException An error occurred while reading the file
+     */
     @Override
-    protected final List<Channel> call() throws Exception {
-        List<Channel> channels = new ArrayList<>();
-
-        DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-        Document doc = dBuilder.parse(file);
-
-        doc.getDocumentElement().normalize();
-
-        NodeList nodeList = doc.getElementsByTagName("outline");
-
-        for (int i = 0; i < nodeList.getLength(); i++) {
-
-            Node node = nodeList.item(i);
-
-            if (node.getNodeType() == Node.ELEMENT_NODE) {
-
-                Element element = (Element) node;
+    protected final String call() throws IOException {
+        updateProgress(-1, -1);
+        importer.run();
+        return importer.getAddedCount() + " channels added, " + importer.getSkippedCount()
+                + " already subscribed, " + importer.getInvalidCount() + " invalid";
+    }
 
-                String name = element.getAttribute("title");
-                String url = element.getAttribute("xmlUrl");
-                try {
-                    new URL(url).toURI();
-                    updateProgress(i + 1, nodeList.getLength());
-                    updateMessage("Importing " + name + "...");
-                    String ytId = url.substring(url.lastIndexOf("=") + 1);
-                    Channels.save(new Channel(name, ytId));
-                } catch (MalformedURLException | URISyntaxException e) {
-                    // Nothing to do here, just don't add the channel
-                }
-            }
+    @Override
+    public final void onProgress(final long done, final long total, final String message) {
+        if (total > 0) {
+            updateProgress(done, total);
+        }
+        if (message != null) {
+            updateMessage(message);
         }
-        return channels;
     }
 }
@@ -0,0 +1,50 @@
+package task;
+
+import javafx.concurrent.Task;
+import service.OpmlExporter;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Task writing the channels to an OPML file.
+ * The file is written by an {@link OpmlExporter}, this task only reports its progress to the
+ * GUI.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public class OpmlWriter extends Task<Void> implements OpmlExporter.Listener {
+
+    /**
+     * Engine writing the file.
+     */
+    private final OpmlExporter exporter;
+
+    /**
+     * OpmlWriter constructor.
+     *
+     * @param file File to write
+     */
+    public OpmlWriter(final File file) {
+        this.exporter = new OpmlExporter(file, this);
+    }
+
+    @Override
+    protected final Void call() throws IOException {
+        updateProgress(-1, -1);
+        exporter.run();
+        return null;
+    }
+
+    @Override
+    public final void onProgress(final long done, final long total, final String message) {
+        if (total > 0) {
+            updateProgress(done, total);
+        }
+        if (message != null) {
+            updateMessage(message);
+        }
+    }
+}
@@ -1,191 +1,122 @@
 package task;
 
-import config.Config;
-import javafx.application.Platform;
 import javafx.concurrent.Task;
 import model.Channel;
 import model.Video;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import utils.Channels;
-import utils.Videos;
-import view.dialog.ErrorDialog;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import java.io.IOException;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Date;
+import service.RefreshSummary;
+import service.Refresher;
+
 import java.util.List;
 
 /**
  * Class to retrieve and read RSS Feeds.
+ * The feeds are read by a {@link Refresher}, this task only reports its progress to the GUI.
  *
  * @author Alkisum
- * @version 4.1
+ * @version 4.6
  * @since 1.0
  */
-public class RssReader extends Task<Void> {
-
-    /**
-     * Format of the published date written in the feed.
-     */
-    private static final SimpleDateFormat PUBLISHED_FORMAT =
-            new SimpleDateFormat("yyyy-MM-dd'T'hh:mm:ss'+00:00'");
+public class RssReader extends Task<Void> implements Refresher.Listener {
 
     /**
-     * List of channels to read.
+     * Listener notified each time a channel has been refreshed. Can be null.
      */
-    private final List<Channel> channels;
+    private final Listener listener;
 
     /**
-     * List of not found channels.
+     * Engine reading the feeds.
      */
-    private final List<Channel> notFoundChannels = new ArrayList<>();
+    private final Refresher refresher;
 
     /**
      * RssReader constructor.
      *
      * @param channels List of channels
+     * @param listener Listener notified each time a channel has been refreshed, can be null
      */
-    public RssReader(final List<Channel> channels) {
-        this.channels = channels;
+    public RssReader(final List<Channel> channels, final Listener listener) {
+        this.listener = listener;
+        this.refresher = new Refresher(channels, this);
     }
 
     @Override
     protected final Void call() throws Exception {
-        boolean durationError = false;
-
-        updateMessage("Initializing...");
-
-        for (int c = 0; c < channels.size(); c++) {
-
-            Channel channel = channels.get(c);
-
-            // Create a YT ID list to check whether there are videos in the database that have been
-            // watched and not in the feed anymore
-            List<String> ytIds = new ArrayList<>();
-
-            DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-
-            Document doc;
-            try {
-                doc = dBuilder.parse(channel.getUrl());
-            } catch (IOException e) {
-                notFoundChannels.add(channel);
-                // Jump to next channel
-                continue;
-            }
-
-            doc.getDocumentElement().normalize();
-
-            NodeList nodeList = doc.getElementsByTagName("entry");
-
-            updateProgress(c + 1, channels.size());
-            updateMessage("Reading " + channel.getName() + " feed...");
-
-            for (int i = 0; i < nodeList.getLength(); i++) {
-
-                Node nodeEntry = nodeList.item(i);
-
-                if (nodeEntry.getNodeType() == Node.ELEMENT_NODE) {
-
-                    Element eltEntry = (Element) nodeEntry;
-
-                    // YT ID
-                    String ytId = getText(eltEntry, "yt:videoId");
-                    if (ytId == null) {
-                        continue;
-                    }
-
-                    // Title
-                    String title = getText(eltEntry, "title");
-
-                    // URL
-                    Node nodeUrl = getNode(eltEntry, "link");
-                    String url = null;
-                    if (nodeUrl.getNodeType() == Node.ELEMENT_NODE) {
-                        Element eltUrl = (Element) nodeUrl;
-                        url = eltUrl.getAttribute("href");
-                    }
-
-                    // Date
-                    String date = getText(eltEntry, "published");
-                    Date parsedDate = PUBLISHED_FORMAT.parse(date);
-
-                    // Thumbnail
-                    Node nodeMedia = getNode(eltEntry, "media:group");
-                    String thumbnail = null;
-                    if (nodeMedia.getNodeType() == Node.ELEMENT_NODE) {
-                        Element eltMedia = (Element) nodeMedia;
-                        Node nodeThumbnail = getNode(eltMedia, "media:thumbnail");
-                        if (nodeThumbnail.getNodeType() == Node.ELEMENT_NODE) {
-                            Element eltThumbnail = (Element) nodeThumbnail;
-                            thumbnail = eltThumbnail.getAttribute("url");
-                        }
-                    }
-
-                    if (!Videos.exists(ytId)) {
-                        // Duration
-                        long duration = 0;
-                        if (url != null && Config.getValue(Config.PROP_API_KEY) != null) {
-                            try {
-                                duration = Videos.retrieveDuration(ytId);
-                            } catch (IOException e) {
-                                durationError = true;
-                            }
-                        }
-
-                        // Save video
-                        Videos.create(new Video(title, parsedDate.getTime(), thumbnail, duration,
-                                ytId, channel));
-                    }
-
-                    ytIds.add(ytId);
-                }
-            }
-            Channels.clean(channel, ytIds);
+        refresher.run();
+        return null;
+    }
+
+    /**
+     * Cancel the refresh, aborting the HTTP call in progress. The channels already read are
+     * kept and the remaining ones are read by the next refresh.
+     *
+     * @param mayInterruptIfRunning Interrupt the thread executing the task
+     * @return false if the task could not be cancelled, true otherwise
+     */
+    @Override
+    public final boolean cancel(final boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (cancelled) {
+            refresher.cancel();
         }
+        return cancelled;
+    }
 
-        // Errors occurred when reading durations
-        if (durationError) {
-            Platform.runLater(() -> ErrorDialog.show("Duration error",
-                    "An error occurred while reading the duration from videos.")
-            );
+    @Override
+    public final void onProgress(final int done, final int total, final String message) {
+        if (total > 0) {
+            updateProgress(done, total);
+        }
+        if (message != null) {
+            updateMessage(message);
+        }
+    }
+
+    @Override
+    public final void onChannelRefreshed(final Channel channel, final List<Video> newVideos) {
+        if (listener != null) {
+            listener.onChannelRefreshed(channel, newVideos);
         }
-        return null;
     }
 
     /**
      * @return Channels not found while reading the feeds
      */
     public final List<Channel> getNotFoundChannels() {
-        return notFoundChannels;
+        return refresher.getNotFoundChannels();
     }
 
     /**
-     * Get the first node found with the given tag name in the given element.
-     *
-     * @param element Element to search
-     * @param tagName Tag name to search
-     * @return Node found
+     * @return Channels that could not be read because of a network or server error
      */
-    private Node getNode(final Element element, final String tagName) {
-        return element.getElementsByTagName(tagName).item(0);
+    public final List<Channel> getFailedChannels() {
+        return refresher.getFailedChannels();
     }
 
     /**
-     * Get the text of the first node found with the given tag name in the given element.
-     *
-     * @param element Element to search
-     * @param tagName Tag name to search
-     * @return Text found
+     * @return true if an error occurred while reading the duration of a video, false otherwise
+     */
+    public final boolean hasDurationError() {
+        return refresher.hasDurationError();
+    }
+
+    /**
+     * @return Summary of the refresh
+     */
+    public final RefreshSummary getSummary() {
+        return refresher.getSummary();
+    }
+
+    /**
+     * Listener notified each time a channel has been refreshed.
      */
-    private String getText(final Element element, final String tagName) {
-        return element.getElementsByTagName(tagName).item(0).getTextContent();
+    public interface Listener {
+
+        /**
+         * Called from the task thread once the videos of a channel have been committed.
+         *
+         * @param channel   Refreshed channel
+         * @param newVideos New videos of the channel, in feed order
+         */
+        void onChannelRefreshed(Channel channel, List<Video> newVideos);
     }
 }
@@ -0,0 +1,436 @@
+package utils;
+
+import model.Channel;
+import model.Tombstone;
+import model.Video;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reader of the binary backup format written by {@link BackupWriter}.
+ * The blocks are read in sequence and decoded in parallel, a bounded number of blocks ahead of
+ * the listener, and the records are handed to the listener in the order they were written.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public class BackupReader implements Closeable {
+
+    /**
+     * Stream to read the blocks from.
+     */
+    private final DataInputStream input;
+
+    /**
+     * Number of threads decoding the blocks.
+     */
+    private final int threadCount;
+
+    /**
+     * Reading has been cancelled.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * BackupReader constructor.
+     *
+     * @param inputStream Stream to read the backup from, closed by the reader
+     * @param threadCount Number of threads decoding the blocks, 1 to decode them in the calling
+     *                    thread
+     * @throws IOException The stream is not a backup or an error occurred while reading it
+     */
+    public BackupReader(final InputStream inputStream, final int threadCount)
+            throws IOException {
+        this.input = new DataInputStream(new BufferedInputStream(inputStream, 64 * 1024));
+        this.threadCount = Math.max(1, threadCount);
+        if (input.readInt() != BackupWriter.MAGIC) {
+            throw new IOException("Not a backup file");
+        }
+        int version = input.readInt();
+        if (version != BackupWriter.VERSION) {
+            throw new IOException("Unsupported backup version: " + version);
+        }
+    }
+
+    /**
+     * Check whether the given file is a backup by reading its magic number.
+     *
+     * @param file File to check
+     * @return true if the file is a backup, false otherwise
+     * @throws IOException An error occurred while reading the file
+     */
+    public static boolean isBackup(final File file) throws IOException {
+        try (DataInputStream dataInput = new DataInputStream(new FileInputStream(file))) {
+            return dataInput.readInt() == BackupWriter.MAGIC;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Read the records and hand them to the listener, in the order they were written.
+     *
+     * @param listener Listener to hand the records to
+     * @throws IOException          The backup is corrupted or an error occurred while reading it
+     * @throws InterruptedException The thread has been interrupted while waiting for a block
+     */
+    public final void read(final Listener listener) throws IOException, InterruptedException {
+        if (threadCount == 1) {
+            byte[] block;
+            int index = 0;
+            while (!cancelled && (block = readBlock()) != null) {
+                deliver(decode(block, index++), listener);
+            }
+            return;
+        }
+
+        // The ObjectBox metadata of the entities reference each other, initializing them from
+        // several decoders at once would deadlock
+        new Channel();
+        new Video();
+        new Tombstone();
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount, runnable -> {
+            Thread thread = new Thread(runnable,
+                    "backup-decoder-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            // Keep a few blocks ahead of the listener, so the decoders do not wait for it
+            Deque<Future<List<Object>>> pending = new ArrayDeque<>();
+            byte[] block;
+            int index = 0;
+            while (!cancelled && (block = readBlock()) != null) {
+                byte[] compressed = block;
+                int blockIndex = index++;
+                pending.add(executor.submit(() -> decode(compressed, blockIndex)));
+                if (pending.size() >= 2 * threadCount) {
+                    deliver(await(pending.poll()), listener);
+                }
+            }
+            while (!cancelled && !pending.isEmpty()) {
+                deliver(await(pending.poll()), listener);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Stop reading, the records of the block being handed to the listener are still handed.
+     */
+    public final void cancel() {
+        cancelled = true;
+    }
+
+    @Override
+    public final void close() throws IOException {
+        input.close();
+    }
+
+    /**
+     * Read the next block as it is stored: its sizes, its checksum and its compressed content.
+     *
+     * @return Block, null at the end of the file
+     * @throws IOException The file is truncated or an error occurred while reading it
+     */
+    private byte[] readBlock() throws IOException {
+        try {
+            int size = input.readInt();
+            if (size == 0) {
+                return null;
+            }
+            int compressedSize = input.readInt();
+            // Checked before allocating the block and its decompressed content
+            if (size < 0 || size > BackupWriter.MAX_BLOCK_SIZE || compressedSize < 0
+                    || compressedSize > BackupWriter.MAX_BLOCK_SIZE) {
+                throw new IOException("Corrupted backup: invalid block size");
+            }
+            byte[] block = new byte[12 + compressedSize];
+            writeInt(block, 0, size);
+            writeInt(block, 4, compressedSize);
+            writeInt(block, 8, input.readInt());
+            input.readFully(block, 12, compressedSize);
+            return block;
+        } catch (EOFException e) {
+            throw new IOException("Corrupted backup: truncated file", e);
+        }
+    }
+
+    /**
+     * Decompress the block, check its content and decode its records.
+     *
+     * @param block Block as read by {@link #readBlock()}
+     * @param index Index of the block in the file, for the error messages
+     * @return Records of the block
+     * @throws IOException The block is corrupted
+     */
+    private static List<Object> decode(final byte[] block, final int index) throws IOException {
+        int size = readInt(block, 0);
+        int compressedSize = readInt(block, 4);
+        byte[] content = new byte[size];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(block, 12, compressedSize);
+            if (inflater.inflate(content) != size || !inflater.finished()) {
+                throw new IOException("Corrupted backup: invalid size of block " + index);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted backup: cannot decompress block " + index, e);
+        } finally {
+            inflater.end();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(content, 0, size);
+        if ((int) crc.getValue() != readInt(block, 8)) {
+            throw new IOException("Corrupted backup: invalid checksum of block " + index);
+        }
+
+        try {
+            return new Decoder(content).decode();
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Corrupted backup: invalid record in block " + index, e);
+        }
+    }
+
+    /**
+     * Hand the records of a block to the listener.
+     *
+     * @param records  Records of the block
+     * @param listener Listener to hand the records to
+     */
+    private static void deliver(final List<Object> records, final Listener listener) {
+        for (Object record : records) {
+            if (record instanceof Channel) {
+                listener.onChannel((Channel) record);
+            } else if (record instanceof Video) {
+                listener.onVideo((Video) record);
+            } else if (record instanceof Tombstone) {
+                listener.onTombstone((Tombstone) record);
+            } else {
+                long[] range = (long[]) record;
+                if (range[0] < 0) {
+                    listener.onFull(range[1]);
+                } else {
+                    listener.onDelta(range[0], range[1]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Wait for a block to be decoded.
+     *
+     * @param future Future of the decoded block
+     * @return Records of the block
+     * @throws IOException          The block is corrupted
+     * @throws InterruptedException The thread has been interrupted while waiting for the block
+     */
+    private static List<Object> await(final Future<List<Object>> future)
+            throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * @param bytes  Array to read from
+     * @param offset Offset of the integer
+     * @return Big-endian integer read at the offset
+     */
+    private static int readInt(final byte[] bytes, final int offset) {
+        return (bytes[offset] & 0xFF) << 24 | (bytes[offset + 1] & 0xFF) << 16
+                | (bytes[offset + 2] & 0xFF) << 8 | (bytes[offset + 3] & 0xFF);
+    }
+
+    /**
+     * @param bytes  Array to write to
+     * @param offset Offset of the integer
+     * @param value  Integer to write in big-endian order
+     */
+    private static void writeInt(final byte[] bytes, final int offset, final int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    /**
+     * Decoder of the records of a block.
+     */
+    private static final class Decoder {
+
+        /**
+         * Content of the block.
+         */
+        private final byte[] content;
+
+        /**
+         * Strings of the block, in the order they were written.
+         */
+        private final List<String> strings = new ArrayList<>();
+
+        /**
+         * Position in the content.
+         */
+        private int position;
+
+        /**
+         * Decoder constructor.
+         *
+         * @param content Content of the block
+         */
+        private Decoder(final byte[] content) {
+            this.content = content;
+        }
+
+        /**
+         * @return Records of the block, the time range of the delta record or of the full backup
+         * record being decoded as an array of two longs, starting at -1 for a full backup, the
+         * records of unknown types are skipped
+         * @throws IOException A record is invalid
+         */
+        private List<Object> decode() throws IOException {
+            List<Object> records = new ArrayList<>();
+            while (position < content.length) {
+                int end = (int) readVarLong();
+                end += position;
+                int type = (int) readVarLong();
+                if (type == BackupWriter.CHANNEL_RECORD) {
+                    Channel channel = new Channel(readString(), null);
+                    channel.setSubscribed(content[position++] != 0);
+                    channel.setYtId(readString());
+                    records.add(channel);
+                } else if (type == BackupWriter.VIDEO_RECORD) {
+                    String title = readString();
+                    long time = readVarLong();
+                    String thumbnailUrl = readString();
+                    boolean watched = content[position++] != 0;
+                    long duration = readVarLong();
+                    Video video = new Video(title, time, thumbnailUrl, duration, readString(),
+                            null);
+                    video.setWatched(watched);
+                    video.setStartTime(readString());
+                    records.add(video);
+                } else if (type == BackupWriter.DELTA_RECORD) {
+                    records.add(new long[]{readVarLong(), readVarLong()});
+                } else if (type == BackupWriter.FULL_RECORD) {
+                    records.add(new long[]{-1, readVarLong()});
+                } else if (type == BackupWriter.TOMBSTONE_RECORD) {
+                    String channelYtId = readString();
+                    String videoYtId = readString();
+                    records.add(new Tombstone(channelYtId, videoYtId, readVarLong()));
+                }
+                if (position > end) {
+                    throw new IOException("Record overflow");
+                }
+                // Skip the fields added by later versions
+                position = end;
+            }
+            return records;
+        }
+
+        /**
+         * @return String read at the position, or referenced there
+         */
+        private String readString() {
+            int reference = (int) readVarLong();
+            if (reference == BackupWriter.NULL_STRING) {
+                return null;
+            }
+            if (reference != BackupWriter.NEW_STRING) {
+                return strings.get(reference - BackupWriter.FIRST_STRING);
+            }
+            int length = (int) readVarLong();
+            String string = new String(content, position, length, StandardCharsets.UTF_8);
+            position += length;
+            strings.add(string);
+            return string;
+        }
+
+        /**
+         * @return Variable-length quantity read at the position
+         */
+        private long readVarLong() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = content[position++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+
+    /**
+     * Listener the records are handed to.
+     */
+    public interface Listener {
+
+        /**
+         * Called for each channel, before its videos.
+         *
+         * @param channel Channel read, not saved
+         */
+        void onChannel(Channel channel);
+
+        /**
+         * Called for each video of the last channel handed.
+         *
+         * @param video Video read, not saved and not attached to a channel
+         */
+        void onVideo(Video video);
+
+        /**
+         * Called first if the backup is a delta.
+         *
+         * @param since Time of the oldest change held by the delta
+         * @param until Time of the export of the delta
+         */
+        void onDelta(long since, long until);
+
+        /**
+         * Called first if the backup is a full backup recording the time of its export, which the
+         * backups written before this record do not.
+         *
+         * @param until Time of the export of the backup
+         */
+        void onFull(long until);
+
+        /**
+         * Called for each channel or video deleted, after the channels and videos of a delta.
+         *
+         * @param tombstone Tombstone read, not saved
+         */
+        void onTombstone(Tombstone tombstone);
+    }
+}
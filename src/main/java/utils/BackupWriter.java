@@ -0,0 +1,480 @@
+package utils;
+
+import model.Channel;
+import model.Tombstone;
+import model.Video;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writer of the binary backup format, a compact alternative to the JSON export that is faster
+ * to write and to read.
+ * <p>
+ * The file starts with a magic number and the version of the format, followed by blocks and by
+ * an empty block marking the end of the file. A block is made of the size of its content, the
+ * size of its compressed content and the CRC32 of its content, followed by its content
+ * compressed with Deflate. The content is a sequence of records, each made of its size, its type
+ * and its fields. Each channel record is followed by the records of its videos.
+ * <p>
+ * A delta backup starts with a delta record giving the time range of the changes it holds, and
+ * ends with the tombstone records of the channels and videos deleted in that range. A full
+ * backup starts with a full backup record giving the time of its export, so the deltas exported
+ * after it can be checked to follow it.
+ * <p>
+ * Integers are written as variable-length quantities. Strings are written once per block and
+ * referenced by their index afterwards, so each block can be decoded on its own and the blocks
+ * can be compressed in parallel by the writer and decoded in parallel by the {@link BackupReader}.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public class BackupWriter implements Closeable {
+
+    /**
+     * Extension of the backup files.
+     */
+    public static final String EXTENSION = "ytsb";
+
+    /**
+     * Magic number starting the backup files, "YTSB" in ASCII.
+     */
+    static final int MAGIC = 0x59545342;
+
+    /**
+     * Version of the format.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Type of the channel records.
+     */
+    static final int CHANNEL_RECORD = 1;
+
+    /**
+     * Type of the video records.
+     */
+    static final int VIDEO_RECORD = 2;
+
+    /**
+     * Type of the delta record.
+     */
+    static final int DELTA_RECORD = 3;
+
+    /**
+     * Type of the tombstone records.
+     */
+    static final int TOMBSTONE_RECORD = 4;
+
+    /**
+     * Type of the full backup record, skipped by the readers of the backups written before it.
+     */
+    static final int FULL_RECORD = 5;
+
+    /**
+     * Reference written for a null string.
+     */
+    static final int NULL_STRING = 0;
+
+    /**
+     * Reference written before a string that is not in the block yet.
+     */
+    static final int NEW_STRING = 1;
+
+    /**
+     * Reference of the first string of the block, the following ones are incremented.
+     */
+    static final int FIRST_STRING = 2;
+
+    /**
+     * Size of the block content above which the block is written.
+     */
+    private static final int BLOCK_SIZE = 1 << 20;
+
+    /**
+     * Maximum size of the content of a block, compressed or not, accepted by the reader. A block
+     * is written as soon as its content reaches {@link #BLOCK_SIZE}, so it only exceeds it by its
+     * last record.
+     */
+    static final int MAX_BLOCK_SIZE = 4 * BLOCK_SIZE;
+
+    /**
+     * Stream to write the blocks to.
+     */
+    private final DataOutputStream output;
+
+    /**
+     * Content of the block being filled.
+     */
+    private final Buffer block = new Buffer();
+
+    /**
+     * Fields of the record being written.
+     */
+    private final Buffer record = new Buffer();
+
+    /**
+     * Strings already written in the block, with their index.
+     */
+    private final Map<String, Integer> strings = new HashMap<>();
+
+    /**
+     * Executor compressing the blocks.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Number of threads compressing the blocks.
+     */
+    private final int threadCount;
+
+    /**
+     * Blocks being compressed, in the order they are written.
+     */
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+
+    /**
+     * BackupWriter constructor.
+     *
+     * @param outputStream Stream to write the backup to, closed by the writer
+     * @param threadCount  Number of threads compressing the blocks
+     * @throws IOException An error occurred while writing the header
+     */
+    public BackupWriter(final OutputStream outputStream, final int threadCount)
+            throws IOException {
+        this.threadCount = Math.max(1, threadCount);
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(this.threadCount, runnable -> {
+            Thread thread = new Thread(runnable,
+                    "backup-encoder-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        output = new DataOutputStream(new BufferedOutputStream(outputStream, 64 * 1024));
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+    }
+
+    /**
+     * Write a channel, followed by its videos.
+     *
+     * @param channel Channel to write
+     * @throws IOException An error occurred while writing the block
+     */
+    public final void writeChannel(final Channel channel) throws IOException {
+        record.reset();
+        writeVarLong(record, CHANNEL_RECORD);
+        writeString(channel.getName());
+        record.write(channel.isSubscribed() ? 1 : 0);
+        writeString(channel.getYtId());
+        appendRecord();
+    }
+
+    /**
+     * Write a video of the last channel written.
+     *
+     * @param video Video to write
+     * @throws IOException An error occurred while writing the block
+     */
+    public final void writeVideo(final Video video) throws IOException {
+        record.reset();
+        writeVarLong(record, VIDEO_RECORD);
+        writeString(video.getTitle());
+        writeVarLong(record, video.getTime());
+        writeString(video.getThumbnailUrl());
+        record.write(video.isWatched() ? 1 : 0);
+        writeVarLong(record, video.getDuration());
+        writeString(video.getYtId());
+        writeString(video.getStartTime());
+        appendRecord();
+    }
+
+    /**
+     * Mark the backup as a delta, before any other record.
+     *
+     * @param since Time of the oldest change held by the delta
+     * @param until Time of the export of the delta
+     * @throws IOException An error occurred while writing the block
+     */
+    public final void writeDelta(final long since, final long until) throws IOException {
+        record.reset();
+        writeVarLong(record, DELTA_RECORD);
+        writeVarLong(record, since);
+        writeVarLong(record, until);
+        appendRecord();
+    }
+
+    /**
+     * Mark the backup as a full backup, before any other record.
+     *
+     * @param until Time of the export of the backup
+     * @throws IOException An error occurred while writing the block
+     */
+    public final void writeFull(final long until) throws IOException {
+        record.reset();
+        writeVarLong(record, FULL_RECORD);
+        writeVarLong(record, until);
+        appendRecord();
+    }
+
+    /**
+     * Write the tombstone of a deleted channel or video, after the channels and videos.
+     *
+     * @param tombstone Tombstone to write
+     * @throws IOException An error occurred while writing the block
+     */
+    public final void writeTombstone(final Tombstone tombstone) throws IOException {
+        record.reset();
+        writeVarLong(record, TOMBSTONE_RECORD);
+        writeString(tombstone.getChannelYtId());
+        writeString(tombstone.getVideoYtId());
+        writeVarLong(record, tombstone.getDeletedAt());
+        appendRecord();
+    }
+
+    /**
+     * Write the last block and the end of the file, and close the stream.
+     *
+     * @throws IOException An error occurred while writing the block
+     */
+    @Override
+    public final void close() throws IOException {
+        try {
+            writeBlock();
+            while (!pending.isEmpty()) {
+                output.write(await(pending.poll()));
+            }
+            output.writeInt(0);
+        } finally {
+            executor.shutdownNow();
+            output.close();
+        }
+    }
+
+    /**
+     * Append the record to the block and write the block if it is full.
+     *
+     * @throws IOException An error occurred while writing the block
+     */
+    private void appendRecord() throws IOException {
+        writeVarLong(block, record.size());
+        record.writeTo(block);
+        if (block.size() >= BLOCK_SIZE) {
+            writeBlock();
+        }
+    }
+
+    /**
+     * Hand the block to the compressors and start a new one. The oldest block is written once
+     * enough blocks are being compressed.
+     *
+     * @throws IOException An error occurred while writing the block
+     */
+    private void writeBlock() throws IOException {
+        if (block.size() == 0) {
+            return;
+        }
+        byte[] content = Arrays.copyOf(block.array(), block.size());
+        pending.add(executor.submit(() -> compress(content)));
+        block.reset();
+        strings.clear();
+        if (pending.size() >= 2 * threadCount) {
+            output.write(await(pending.poll()));
+        }
+    }
+
+    /**
+     * Compress a block.
+     *
+     * @param content Content of the block
+     * @return Block as it is stored: the sizes, the checksum and the compressed content
+     */
+    private static byte[] compress(final byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content, 0, content.length);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        Buffer compressed = new Buffer();
+        try {
+            deflater.setInput(content);
+            deflater.finish();
+            byte[] deflateBuffer = new byte[64 * 1024];
+            writeInt(compressed, content.length);
+            // Placeholder for the compressed size, set once known
+            writeInt(compressed, 0);
+            writeInt(compressed, (int) crc.getValue());
+            while (!deflater.finished()) {
+                int length = deflater.deflate(deflateBuffer);
+                compressed.write(deflateBuffer, 0, length);
+            }
+        } finally {
+            deflater.end();
+        }
+        byte[] bytes = Arrays.copyOf(compressed.array(), compressed.size());
+        int compressedSize = bytes.length - 12;
+        bytes[4] = (byte) (compressedSize >>> 24);
+        bytes[5] = (byte) (compressedSize >>> 16);
+        bytes[6] = (byte) (compressedSize >>> 8);
+        bytes[7] = (byte) compressedSize;
+        return bytes;
+    }
+
+    /**
+     * Wait for a block to be compressed.
+     *
+     * @param future Future of the compressed block
+     * @return Block as it is stored
+     * @throws IOException The thread has been interrupted or the compression failed
+     */
+    private static byte[] await(final Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing a block");
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * @param buffer Buffer to write to
+     * @param value  Integer to write in big-endian order
+     */
+    private static void writeInt(final Buffer buffer, final int value) {
+        buffer.write(value >>> 24);
+        buffer.write(value >>> 16);
+        buffer.write(value >>> 8);
+        buffer.write(value);
+    }
+
+    /**
+     * Write a string in the record, or its reference if it is already in the block.
+     *
+     * @param string String to write, can be null
+     */
+    private void writeString(final String string) {
+        if (string == null) {
+            writeVarLong(record, NULL_STRING);
+            return;
+        }
+        Integer index = strings.get(string);
+        if (index != null) {
+            writeVarLong(record, FIRST_STRING + index);
+            return;
+        }
+        strings.put(string, strings.size());
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(record, NEW_STRING);
+        writeVarLong(record, bytes.length);
+        record.write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Write a number as a variable-length quantity, 7 bits per byte starting with the lowest
+     * ones, the highest bit of each byte telling whether another byte follows.
+     *
+     * @param buffer Buffer to write to
+     * @param value  Number to write, negative numbers take 10 bytes
+     */
+    private static void writeVarLong(final Buffer buffer, final long value) {
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0) {
+            buffer.write((int) ((remaining & 0x7F) | 0x80));
+            remaining >>>= 7;
+        }
+        buffer.write((int) remaining);
+    }
+
+    /**
+     * Growable byte array. Unlike the ByteArrayOutputStream, its methods are not synchronized,
+     * which would make writing each byte of a record several times slower.
+     */
+    private static final class Buffer {
+
+        /**
+         * Bytes written, up to the size.
+         */
+        private byte[] bytes = new byte[64 * 1024];
+
+        /**
+         * Number of bytes written.
+         */
+        private int size;
+
+        /**
+         * @param b Byte to write
+         */
+        private void write(final int b) {
+            ensureCapacity(1);
+            bytes[size++] = (byte) b;
+        }
+
+        /**
+         * @param source Array holding the bytes to write
+         * @param offset Offset of the first byte
+         * @param length Number of bytes to write
+         */
+        private void write(final byte[] source, final int offset, final int length) {
+            ensureCapacity(length);
+            System.arraycopy(source, offset, bytes, size, length);
+            size += length;
+        }
+
+        /**
+         * @param buffer Buffer to append the bytes written to
+         */
+        private void writeTo(final Buffer buffer) {
+            buffer.write(bytes, 0, size);
+        }
+
+        /**
+         * Discard the bytes written, keeping the array.
+         */
+        private void reset() {
+            size = 0;
+        }
+
+        /**
+         * @return Number of bytes written
+         */
+        private int size() {
+            return size;
+        }
+
+        /**
+         * @return Array holding the bytes written, valid up to the size of the buffer
+         */
+        private byte[] array() {
+            return bytes;
+        }
+
+        /**
+         * Grow the array if it cannot hold the given number of bytes more.
+         *
+         * @param length Number of bytes to write
+         */
+        private void ensureCapacity(final int length) {
+            if (size + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(2 * bytes.length, size + length));
+            }
+        }
+    }
+}
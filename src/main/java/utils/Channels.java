@@ -3,19 +3,29 @@ package utils;
 import config.Config;
 import database.ObjectBox;
 import io.objectbox.Box;
+import io.objectbox.query.QueryBuilder;
+import io.objectbox.query.QueryConsumer;
+import metrics.Histogram;
 import model.Channel;
 import model.Channel_;
+import model.Tombstone;
 import model.Video;
 import model.Video_;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Utility class for channels.
  *
  * @author Alkisum
- * @version 4.1
+ * @version 4.6
  * @since 4.0
  */
 public final class Channels {
@@ -25,6 +35,29 @@ public final class Channels {
      */
     public static final String BASE_URL = "https://www.youtube.com/feeds/videos.xml?channel_id=";
 
+    /**
+     * Default number of consecutive failures after which a channel is quarantined.
+     */
+    private static final int DEFAULT_QUARANTINE_THRESHOLD = 5;
+
+    /**
+     * Default number of hours between two probes of a quarantined channel.
+     */
+    private static final int DEFAULT_QUARANTINE_PROBE_HOURS = 24;
+
+    /**
+     * Number of consecutive failures after which a channel is quarantined.
+     */
+    private static final int QUARANTINE_THRESHOLD = Math.max(1, Config.getIntValue(
+            Config.PROP_QUARANTINE_THRESHOLD_KEY, DEFAULT_QUARANTINE_THRESHOLD));
+
+    /**
+     * Time in milliseconds between two probes of a quarantined channel.
+     */
+    private static final long QUARANTINE_PROBE_INTERVAL = TimeUnit.HOURS.toMillis(
+            Config.getIntValue(Config.PROP_QUARANTINE_PROBE_HOURS_KEY,
+                    DEFAULT_QUARANTINE_PROBE_HOURS));
+
     /**
      * Box storing channels.
      */
@@ -35,6 +68,38 @@ public final class Channels {
      */
     private static final Box<Video> VIDEO_BOX = ObjectBox.get().boxFor(Video.class);
 
+    /**
+     * Latency of the channel list queries.
+     */
+    private static final Histogram ALL_QUERY = ObjectBox.queryTimer("channel", "getAll");
+
+    /**
+     * Latency of the lookups by YT id.
+     */
+    private static final Histogram YT_ID_QUERY = ObjectBox.queryTimer("channel", "getByYtId");
+
+    /**
+     * Latency of the unwatched videos counts of a channel.
+     */
+    private static final Histogram UNWATCHED_COUNT = ObjectBox.queryTimer("channel",
+            "countUnwatched");
+
+    /**
+     * Latency of the lookups of the channels having videos saved since a given time.
+     */
+    private static final Histogram UPDATED_QUERY = ObjectBox.queryTimer("channel",
+            "getUpdatedSince");
+
+    /**
+     * Latency of the channel puts.
+     */
+    private static final Histogram PUT_TX = ObjectBox.txTimer("channel", "put");
+
+    /**
+     * Latency of the channel removals.
+     */
+    private static final Histogram REMOVE_TX = ObjectBox.txTimer("channel", "remove");
+
     /**
      * Channels constructor.
      */
@@ -46,45 +111,116 @@ public final class Channels {
      * @return All channels.
      */
     public static List<Channel> getAll() {
-        return CHANNEL_BOX.getAll();
+        return ALL_QUERY.time(CHANNEL_BOX::getAll);
     }
 
     /**
      * @return All channels order by name.
      */
     public static List<Channel> getAllOrderByName() {
-        return CHANNEL_BOX.query().order(Channel_.name).build().find();
+        return ALL_QUERY.time(() -> CHANNEL_BOX.query().order(Channel_.name).build().find());
+    }
+
+    /**
+     * Hand the channels to the given consumer one by one, order by name, without loading them
+     * all at once.
+     *
+     * @param consumer Consumer of the channels, called in a read transaction
+     */
+    public static void forEachOrderByName(final QueryConsumer<Channel> consumer) {
+        ALL_QUERY.time(() -> CHANNEL_BOX.query().order(Channel_.name).build().forEach(consumer));
+    }
+
+    /**
+     * Get the channel identified by the given YT id.
+     *
+     * @param ytId YT id
+     * @return Channel, null if there is none
+     */
+    public static Channel getByYtId(final String ytId) {
+        return YT_ID_QUERY.time(() ->
+                CHANNEL_BOX.query().equal(Channel_.ytId, ytId).build().findFirst());
+    }
+
+    /**
+     * Get the YT ids, among the given ones, of the channels already saved.
+     *
+     * @param ytIds YT ids to look up
+     * @return YT ids of the saved channels
+     */
+    public static Set<String> getExistingYtIds(final Collection<String> ytIds) {
+        if (ytIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        return YT_ID_QUERY.time(() -> new HashSet<>(Arrays.asList(CHANNEL_BOX.query()
+                .in(Channel_.ytId, ytIds.toArray(new String[0])).build()
+                .property(Channel_.ytId).findStrings())));
     }
 
     /**
-     * Save channels.
+     * Get the ids of the channels having videos saved since the given time.
+     *
+     * @param time Time of the oldest video save to consider
+     * @return Channel ids
+     */
+    public static long[] getIdsWithVideosUpdatedSince(final long time) {
+        return UPDATED_QUERY.time(() -> {
+            QueryBuilder<Channel> builder = CHANNEL_BOX.query();
+            builder.link(Channel_.videos).greaterOrEqual(Video_.updatedAt, time);
+            return builder.build().findIds();
+        });
+    }
+
+    /**
+     * Save channels, setting the time they are saved, read by the delta exports.
      *
      * @param channels Channels to save
      */
     public static void save(final Channel... channels) {
-        CHANNEL_BOX.put(channels);
+        long time = System.currentTimeMillis();
+        for (Channel channel : channels) {
+            channel.setUpdatedAt(time);
+        }
+        PUT_TX.time(() -> CHANNEL_BOX.put(channels));
     }
 
     /**
-     * Delete channels.
+     * Delete channels, leaving a tombstone for each channel if the tombstones are recorded. The
+     * tombstone of a channel stands for its videos as well.
      *
      * @param channels Channels to delete
      * @throws IOException An error occurred while deleting the video thumbnail file
      */
     public static void delete(final Channel... channels) throws IOException {
-        for (Channel channel : channels) {
-            Videos.delete(channel.getVideos().toArray(new Video[0]));
-            CHANNEL_BOX.remove(channel);
-        }
+        delete(true, channels);
     }
 
     /**
-     * Delete all channels.
+     * Delete all channels, without tombstones, to replace the database by an import.
      *
      * @throws IOException An error occurred while deleting the video thumbnail file
      */
     public static void deleteAll() throws IOException {
-        delete(getAll().toArray(new Channel[0]));
+        delete(false, getAll().toArray(new Channel[0]));
+    }
+
+    /**
+     * Delete channels and their videos.
+     *
+     * @param tombstone Leave a tombstone for each channel, if the tombstones are recorded
+     * @param channels  Channels to delete
+     * @throws IOException An error occurred while deleting the video thumbnail file
+     */
+    private static void delete(final boolean tombstone, final Channel... channels)
+            throws IOException {
+        for (Channel channel : channels) {
+            List<Tombstone> tombstones = tombstone
+                    ? Collections.singletonList(new Tombstone(channel.getYtId(), null,
+                    System.currentTimeMillis()))
+                    : Collections.emptyList();
+            Videos.delete(tombstones, channel.getVideos().toArray(new Video[0]));
+            REMOVE_TX.time(() -> CHANNEL_BOX.remove(channel));
+        }
     }
 
     /**
@@ -94,12 +230,78 @@ public final class Channels {
      * @return Number of unwatched videos
      */
     public static long countUnwatchedVideos(final long channelId) {
-        return VIDEO_BOX.query()
+        return UNWATCHED_COUNT.time(() -> VIDEO_BOX.query()
                 .equal(Video_.channelId, channelId)
                 .equal(Video_.watched, false)
+                .build().count());
+    }
+
+    /**
+     * @return Number of quarantined channels
+     */
+    public static long countQuarantined() {
+        return CHANNEL_BOX.query()
+                .greater(Channel_.failureCount, QUARANTINE_THRESHOLD - 1)
                 .build().count();
     }
 
+    /**
+     * @return Number of channels
+     */
+    public static long count() {
+        return CHANNEL_BOX.count();
+    }
+
+    /**
+     * Check whether the channel is quarantined, i.e. its feed failed to be read too many times
+     * in a row.
+     *
+     * @param channel Channel to check
+     * @return true if the channel is quarantined, false otherwise
+     */
+    public static boolean isQuarantined(final Channel channel) {
+        return channel.getFailureCount() >= QUARANTINE_THRESHOLD;
+    }
+
+    /**
+     * Check whether the channel feed should be read. Quarantined channels are only probed once
+     * per probe interval.
+     *
+     * @param channel Channel to check
+     * @param time    Time of the refresh
+     * @return true if the channel feed should be read, false otherwise
+     */
+    public static boolean shouldRead(final Channel channel, final long time) {
+        return !isQuarantined(channel)
+                || time - channel.getLastFailureTime() >= QUARANTINE_PROBE_INTERVAL;
+    }
+
+    /**
+     * Record a failure to read the feed of the given channels.
+     *
+     * @param time     Time of the failure
+     * @param channels Channels that could not be read
+     */
+    public static void recordFailure(final long time, final Channel... channels) {
+        for (Channel channel : channels) {
+            channel.setFailureCount(channel.getFailureCount() + 1);
+            channel.setLastFailureTime(time);
+        }
+        PUT_TX.time(() -> CHANNEL_BOX.put(channels));
+    }
+
+    /**
+     * Record a success to read the feed of the given channel, resetting its failure count.
+     *
+     * @param channel Channel that has been read
+     */
+    public static void recordSuccess(final Channel channel) {
+        if (channel.getFailureCount() > 0) {
+            channel.setFailureCount(0);
+            PUT_TX.time(() -> CHANNEL_BOX.put(channel));
+        }
+    }
+
     /**
      * Clean the channel from the videos watched and not existing anymore in the RSS Feeds.
      *
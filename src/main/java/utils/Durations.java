@@ -0,0 +1,42 @@
+package utils;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import java.time.Duration;
+
+/**
+ * Utility class decoding the video durations returned by the YouTube API.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public final class Durations {
+
+    /**
+     * Durations constructor.
+     */
+    private Durations() {
+
+    }
+
+    /**
+     * Read the duration from a YouTube API videos response.
+     *
+     * @param body Response body of a videos request with the contentDetails part
+     * @return Video duration in seconds
+     */
+    public static long parseApiResponse(final String body) {
+        // Read duration from response body
+        Gson gson = new Gson();
+        JsonObject jsonObject = gson.fromJson(body, JsonObject.class);
+        String durationString = jsonObject.getAsJsonArray("items")
+                .get(0).getAsJsonObject()
+                .get("contentDetails").getAsJsonObject()
+                .get("duration").getAsString();
+
+        // Parse duration and return it in seconds
+        return Duration.parse(durationString).toSeconds();
+    }
+}
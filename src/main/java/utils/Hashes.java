@@ -0,0 +1,157 @@
+package utils;
+
+/**
+ * Utility class computing hashes.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public final class Hashes {
+
+    /**
+     * First xxHash64 prime.
+     */
+    private static final long PRIME_1 = 0x9E3779B185EBCA87L;
+
+    /**
+     * Second xxHash64 prime.
+     */
+    private static final long PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+
+    /**
+     * Third xxHash64 prime.
+     */
+    private static final long PRIME_3 = 0x165667B19E3779F9L;
+
+    /**
+     * Fourth xxHash64 prime.
+     */
+    private static final long PRIME_4 = 0x85EBCA77C2B2AE63L;
+
+    /**
+     * Fifth xxHash64 prime.
+     */
+    private static final long PRIME_5 = 0x27D4EB2F165667C5L;
+
+    /**
+     * Hashes constructor.
+     */
+    private Hashes() {
+
+    }
+
+    /**
+     * Compute the 64-bit xxHash of the given data with a seed of 0.
+     *
+     * @param data Data to hash
+     * @return Hash
+     */
+    public static long xxHash64(final byte[] data) {
+        int length = data.length;
+        int i = 0;
+        long hash;
+
+        if (length >= 32) {
+            long v1 = PRIME_1 + PRIME_2;
+            long v2 = PRIME_2;
+            long v3 = 0;
+            long v4 = -PRIME_1;
+            int limit = length - 32;
+            do {
+                v1 = round(v1, readLong(data, i));
+                v2 = round(v2, readLong(data, i + 8));
+                v3 = round(v3, readLong(data, i + 16));
+                v4 = round(v4, readLong(data, i + 24));
+                i += 32;
+            } while (i <= limit);
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7)
+                    + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = mergeRound(hash, v1);
+            hash = mergeRound(hash, v2);
+            hash = mergeRound(hash, v3);
+            hash = mergeRound(hash, v4);
+        } else {
+            hash = PRIME_5;
+        }
+
+        hash += length;
+
+        while (i + 8 <= length) {
+            hash ^= round(0, readLong(data, i));
+            hash = Long.rotateLeft(hash, 27) * PRIME_1 + PRIME_4;
+            i += 8;
+        }
+        if (i + 4 <= length) {
+            hash ^= (readInt(data, i) & 0xFFFFFFFFL) * PRIME_1;
+            hash = Long.rotateLeft(hash, 23) * PRIME_2 + PRIME_3;
+            i += 4;
+        }
+        while (i < length) {
+            hash ^= (data[i] & 0xFFL) * PRIME_5;
+            hash = Long.rotateLeft(hash, 11) * PRIME_1;
+            i++;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME_2;
+        hash ^= hash >>> 29;
+        hash *= PRIME_3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    /**
+     * xxHash64 accumulator round.
+     *
+     * @param acc   Accumulator
+     * @param input Input lane
+     * @return Updated accumulator
+     */
+    private static long round(final long acc, final long input) {
+        return Long.rotateLeft(acc + input * PRIME_2, 31) * PRIME_1;
+    }
+
+    /**
+     * xxHash64 accumulator merge.
+     *
+     * @param hash Hash
+     * @param acc  Accumulator to merge
+     * @return Updated hash
+     */
+    private static long mergeRound(final long hash, final long acc) {
+        return (hash ^ round(0, acc)) * PRIME_1 + PRIME_4;
+    }
+
+    /**
+     * Read a little-endian long.
+     *
+     * @param data   Data
+     * @param offset Offset
+     * @return Long value
+     */
+    private static long readLong(final byte[] data, final int offset) {
+        return (data[offset] & 0xFFL)
+                | (data[offset + 1] & 0xFFL) << 8
+                | (data[offset + 2] & 0xFFL) << 16
+                | (data[offset + 3] & 0xFFL) << 24
+                | (data[offset + 4] & 0xFFL) << 32
+                | (data[offset + 5] & 0xFFL) << 40
+                | (data[offset + 6] & 0xFFL) << 48
+                | (data[offset + 7] & 0xFFL) << 56;
+    }
+
+    /**
+     * Read a little-endian int.
+     *
+     * @param data   Data
+     * @param offset Offset
+     * @return Int value
+     */
+    private static int readInt(final byte[] data, final int offset) {
+        return (data[offset] & 0xFF)
+                | (data[offset + 1] & 0xFF) << 8
+                | (data[offset + 2] & 0xFF) << 16
+                | (data[offset + 3] & 0xFF) << 24;
+    }
+}
@@ -0,0 +1,372 @@
+package utils;
+
+import config.Config;
+import metrics.Metrics;
+import okhttp3.Call;
+import okhttp3.FormBody;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.MalformedURLException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Utility class sending HTTP requests.
+ * All requests go through a per-host {@link RateLimiter} and failed requests are retried with
+ * a jittered exponential backoff, honouring the Retry-After header sent by the server.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public final class Http {
+
+    /**
+     * Default number of times a failed request is retried.
+     */
+    private static final int DEFAULT_MAX_RETRIES = 4;
+
+    /**
+     * Base delay in milliseconds of the exponential backoff.
+     */
+    private static final long BASE_DELAY = 500;
+
+    /**
+     * Maximum delay in milliseconds to wait before retrying a request.
+     */
+    private static final long MAX_DELAY = TimeUnit.SECONDS.toMillis(60);
+
+    /**
+     * OkHttpClient instance shared by all the requests.
+     */
+    private static final OkHttpClient CLIENT = new OkHttpClient.Builder()
+            .addInterceptor(new RetryInterceptor(
+                    Config.getIntValue(Config.PROP_MAX_RETRIES_KEY, DEFAULT_MAX_RETRIES)))
+            .build();
+
+    /**
+     * Calls being executed, mapped by the thread executing them.
+     */
+    private static final Map<Thread, Call> CALLS = new ConcurrentHashMap<>();
+
+    /**
+     * Http constructor.
+     */
+    private Http() {
+
+    }
+
+    /**
+     * @return OkHttpClient instance shared by all the requests
+     */
+    public static OkHttpClient getClient() {
+        return CLIENT;
+    }
+
+    /**
+     * Build a GET request for the given URL.
+     *
+     * @param url URL
+     * @return Request
+     * @throws MalformedURLException The URL is not a valid HTTP or HTTPS URL
+     */
+    public static Request request(final String url) throws MalformedURLException {
+        HttpUrl httpUrl = url == null ? null : HttpUrl.parse(url);
+        if (httpUrl == null) {
+            throw new MalformedURLException("Invalid URL: " + url);
+        }
+        return new Request.Builder().url(httpUrl).build();
+    }
+
+    /**
+     * Get the content at the given URL.
+     *
+     * @param url URL
+     * @return Response body
+     * @throws IOException An error occurred while sending the request, or the server answered
+     *                     with an unsuccessful status code
+     */
+    public static byte[] get(final String url) throws IOException {
+        try (Response response = execute(url)) {
+            ResponseBody body = checkedBody(url, response);
+            if (body == null) {
+                return new byte[0];
+            }
+            byte[] bytes = body.bytes();
+            Metrics.histogram("http_response_bytes", "Size of the HTTP response bodies",
+                    "host", response.request().url().host()).record(bytes.length);
+            return bytes;
+        } finally {
+            CALLS.remove(Thread.currentThread());
+        }
+    }
+
+    /**
+     * Download the content at the given URL to the given file, which is only replaced once the
+     * content has been fully read.
+     *
+     * @param url  URL
+     * @param path File to write to
+     * @throws IOException An error occurred while sending the request or writing the file, or
+     *                     the server answered with an unsuccessful status code
+     */
+    public static void download(final String url, final Path path) throws IOException {
+        try (Response response = execute(url)) {
+            ResponseBody body = checkedBody(url, response);
+            if (body == null) {
+                return;
+            }
+            // Written next to the file first, so an interrupted download leaves no partial file
+            Path tempPath = Files.createTempFile(path.getParent(),
+                    path.getFileName().toString(), ".part");
+            try {
+                try (InputStream in = body.byteStream()) {
+                    Files.copy(in, tempPath, StandardCopyOption.REPLACE_EXISTING);
+                }
+                Files.move(tempPath, path, StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tempPath);
+            }
+        } finally {
+            CALLS.remove(Thread.currentThread());
+        }
+    }
+
+    /**
+     * Post the given form to the given URL.
+     *
+     * @param url  URL
+     * @param form Form fields
+     * @return Status code of the response
+     * @throws IOException An error occurred while sending the request, or the server answered
+     *                     with an unsuccessful status code
+     */
+    public static int postForm(final String url, final Map<String, String> form)
+            throws IOException {
+        FormBody.Builder body = new FormBody.Builder();
+        form.forEach(body::add);
+        Request request = request(url).newBuilder().post(body.build()).build();
+        try (Response response = CLIENT.newCall(request).execute()) {
+            checkedBody(url, response);
+            return response.code();
+        }
+    }
+
+    /**
+     * Cancel the call being executed by the given thread, if any.
+     *
+     * @param thread Thread executing the call
+     */
+    public static void cancel(final Thread thread) {
+        Call call = CALLS.get(thread);
+        if (call != null) {
+            call.cancel();
+        }
+    }
+
+    /**
+     * Execute a GET request for the given URL, the call can be cancelled from another thread with
+     * {@link #cancel(Thread)}. The call stays registered while the body is read, the caller must
+     * remove it from {@link #CALLS} once the response is closed, or if this method throws.
+     *
+     * @param url URL
+     * @return Response
+     * @throws IOException An error occurred while sending the request
+     */
+    private static Response execute(final String url) throws IOException {
+        Thread thread = Thread.currentThread();
+        Request request = request(url);
+        Call call = CLIENT.newCall(request);
+        CALLS.put(thread, call);
+        long start = System.nanoTime();
+        try {
+            // The thread might have been interrupted before the call could be cancelled
+            if (thread.isInterrupted()) {
+                throw new InterruptedIOException("Interrupted before sending " + url);
+            }
+            return call.execute();
+        } finally {
+            Metrics.timer("http_request_seconds", "Latency of the HTTP GET requests until the "
+                    + "response headers, retries included", "host", request.url().host())
+                    .recordSince(start);
+        }
+    }
+
+    /**
+     * Check the response status code and return its body.
+     *
+     * @param url      Requested URL
+     * @param response Response
+     * @return Response body
+     * @throws HttpStatusException The server answered with an unsuccessful status code
+     */
+    private static ResponseBody checkedBody(final String url, final Response response)
+            throws HttpStatusException {
+        if (!response.isSuccessful()) {
+            throw new HttpStatusException(url, response.code());
+        }
+        return response.body();
+    }
+
+    /**
+     * Interceptor applying the rate limit and retrying failed requests.
+     */
+    private static final class RetryInterceptor implements Interceptor {
+
+        /**
+         * Number of times a failed request is retried.
+         */
+        private final int maxRetries;
+
+        /**
+         * RetryInterceptor constructor.
+         *
+         * @param maxRetries Number of times a failed request is retried
+         */
+        private RetryInterceptor(final int maxRetries) {
+            this.maxRetries = Math.max(0, maxRetries);
+        }
+
+        @Override
+        public Response intercept(final Chain chain) throws IOException {
+            Request request = chain.request();
+            RateLimiter rateLimiter = RateLimiter.forHost(request.url().host());
+            for (int attempt = 0; ; attempt++) {
+                acquire(rateLimiter);
+                Response response;
+                try {
+                    response = chain.proceed(request);
+                } catch (IOException e) {
+                    if (attempt >= maxRetries || chain.call().isCanceled()
+                            || Thread.currentThread().isInterrupted()) {
+                        throw e;
+                    }
+                    Logger.get(Http.class).warn("Retrying " + request.url() + ": " + e);
+                    countRetry(request);
+                    sleep(backoff(attempt));
+                    continue;
+                }
+
+                int code = response.code();
+                if (!isRetryable(code)) {
+                    rateLimiter.onSuccess();
+                    return response;
+                }
+                long retryAfter = parseRetryAfter(response.header("Retry-After"));
+                if (code == 429 || code == 503) {
+                    rateLimiter.onThrottled(retryAfter);
+                }
+                if (attempt >= maxRetries || retryAfter > MAX_DELAY) {
+                    return response;
+                }
+                response.close();
+                Logger.get(Http.class).warn("Retrying " + request.url() + ": HTTP " + code);
+                countRetry(request);
+                sleep(Math.max(retryAfter, backoff(attempt)));
+            }
+        }
+
+        /**
+         * Count a retry of the given request.
+         *
+         * @param request Request being retried
+         */
+        private static void countRetry(final Request request) {
+            Metrics.counter("http_retries_total", "Number of HTTP requests retried", "host",
+                    request.url().host()).increment();
+        }
+
+        /**
+         * Wait for the rate limiter.
+         *
+         * @param rateLimiter Rate limiter
+         * @throws InterruptedIOException The thread has been interrupted while waiting
+         */
+        private static void acquire(final RateLimiter rateLimiter) throws InterruptedIOException {
+            try {
+                rateLimiter.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for rate limiter");
+            }
+        }
+
+        /**
+         * Sleep before retrying a request.
+         *
+         * @param delay Delay in milliseconds
+         * @throws InterruptedIOException The thread has been interrupted while sleeping
+         */
+        private static void sleep(final long delay) throws InterruptedIOException {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to retry");
+            }
+        }
+
+        /**
+         * Compute the exponential backoff delay with full jitter.
+         *
+         * @param attempt Attempt number, starting from 0
+         * @return Delay in milliseconds
+         */
+        private static long backoff(final int attempt) {
+            long ceiling = Math.min(MAX_DELAY, BASE_DELAY << Math.min(attempt, 16));
+            return ThreadLocalRandom.current().nextLong(BASE_DELAY / 2, ceiling + 1);
+        }
+
+        /**
+         * Check whether a request answered with the given status code should be retried.
+         *
+         * @param code HTTP status code
+         * @return true if the request should be retried, false otherwise
+         */
+        private static boolean isRetryable(final int code) {
+            return code == 408 || code == 429 || code == 500 || code == 502 || code == 503
+                    || code == 504;
+        }
+
+        /**
+         * Parse the Retry-After header, given either in seconds or as an HTTP date.
+         *
+         * @param value Header value, can be null
+         * @return Delay in milliseconds, 0 if the header is missing or invalid
+         */
+        private static long parseRetryAfter(final String value) {
+            if (value == null || value.isBlank()) {
+                return 0;
+            }
+            try {
+                return TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(value.trim())));
+            } catch (NumberFormatException e) {
+                try {
+                    ZonedDateTime date = ZonedDateTime.parse(value.trim(),
+                            DateTimeFormatter.RFC_1123_DATE_TIME);
+                    return Math.max(0, Duration.between(ZonedDateTime.now(), date).toMillis());
+                } catch (DateTimeParseException e1) {
+                    return 0;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package utils;
+
+import java.io.IOException;
+
+/**
+ * Exception thrown when a server answers a request with an unsuccessful status code.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public class HttpStatusException extends IOException {
+
+    /**
+     * Serial version UID.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * HTTP status code.
+     */
+    private final int code;
+
+    /**
+     * HttpStatusException constructor.
+     *
+     * @param url  Requested URL
+     * @param code HTTP status code
+     */
+    public HttpStatusException(final String url, final int code) {
+        super("HTTP " + code + " for " + url);
+        this.code = code;
+    }
+
+    /**
+     * @return HTTP status code
+     */
+    public final int getCode() {
+        return code;
+    }
+
+    /**
+     * @return true if the requested resource does not exist (anymore), false otherwise
+     */
+    public final boolean isNotFound() {
+        return code == 404 || code == 410;
+    }
+}
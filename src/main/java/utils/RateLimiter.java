@@ -0,0 +1,163 @@
+package utils;
+
+import config.Config;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket limiting the rate of requests sent to a host.
+ * The rate adapts to the server: it is decreased each time the server throttles a request and
+ * slowly increased again on success, so the throughput settles just under the server's limit.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public final class RateLimiter {
+
+    /**
+     * Default maximum number of requests per second.
+     */
+    private static final int DEFAULT_REQUESTS_PER_SECOND = 5;
+
+    /**
+     * Factor applied to the rate when the server throttles a request.
+     */
+    private static final double DECREASE_FACTOR = 0.7;
+
+    /**
+     * Part of the maximum rate added to the rate after each successful request.
+     */
+    private static final double INCREASE_STEP = 0.02;
+
+    /**
+     * Lowest rate the limiter can go down to, as a part of the maximum rate.
+     */
+    private static final double MIN_RATE_FACTOR = 0.05;
+
+    /**
+     * Rate limiters mapped by host.
+     */
+    private static final Map<String, RateLimiter> LIMITERS = new ConcurrentHashMap<>();
+
+    /**
+     * Maximum rate in requests per second.
+     */
+    private final double maxRate;
+
+    /**
+     * Current rate in requests per second.
+     */
+    private double rate;
+
+    /**
+     * Number of tokens available.
+     */
+    private double tokens;
+
+    /**
+     * Time in nanoseconds the tokens were last refilled.
+     */
+    private long lastRefill;
+
+    /**
+     * Time in nanoseconds until no request can be sent (set by Retry-After).
+     */
+    private long blockedUntil;
+
+    /**
+     * RateLimiter constructor.
+     *
+     * @param maxRate Maximum rate in requests per second
+     */
+    private RateLimiter(final double maxRate) {
+        this.maxRate = maxRate;
+        this.rate = maxRate;
+        this.tokens = capacity();
+        this.lastRefill = System.nanoTime();
+        this.blockedUntil = lastRefill;
+    }
+
+    /**
+     * Get the rate limiter for the given host, created with the rate set in the configuration
+     * file if it does not exist yet.
+     *
+     * @param host Host
+     * @return Rate limiter
+     */
+    public static RateLimiter forHost(final String host) {
+        return LIMITERS.computeIfAbsent(host, h -> new RateLimiter(Math.max(1,
+                Config.getIntValue(Config.PROP_REQUESTS_PER_SECOND_KEY,
+                        DEFAULT_REQUESTS_PER_SECOND))));
+    }
+
+    /**
+     * Wait until a request can be sent.
+     *
+     * @throws InterruptedException The thread has been interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+        long wait;
+        while ((wait = reserve()) > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    /**
+     * Take a token if one is available.
+     *
+     * @return 0 if a token has been taken, otherwise time in nanoseconds to wait before trying
+     * again
+     */
+    private synchronized long reserve() {
+        long now = System.nanoTime();
+        if (now - blockedUntil < 0) {
+            return blockedUntil - now;
+        }
+        tokens = Math.min(capacity(), tokens + (now - lastRefill) * rate / 1e9);
+        lastRefill = now;
+        if (tokens >= 1) {
+            tokens--;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / rate * 1e9);
+    }
+
+    /**
+     * Called when a request succeeded, increase the rate.
+     */
+    public synchronized void onSuccess() {
+        rate = Math.min(maxRate, rate + maxRate * INCREASE_STEP);
+    }
+
+    /**
+     * Called when the server throttled a request, decrease the rate and block the requests for
+     * the given delay.
+     *
+     * @param delay Delay in milliseconds during which no request should be sent
+     */
+    public synchronized void onThrottled(final long delay) {
+        rate = Math.max(maxRate * MIN_RATE_FACTOR, rate * DECREASE_FACTOR);
+        tokens = 0;
+        long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+        if (until - blockedUntil > 0) {
+            blockedUntil = until;
+        }
+    }
+
+    /**
+     * @return Current rate in requests per second
+     */
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    /**
+     * @return Maximum number of tokens the bucket can hold
+     */
+    private double capacity() {
+        return Math.max(1, maxRate);
+    }
+}
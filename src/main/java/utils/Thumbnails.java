@@ -1,18 +1,16 @@
 package utils;
 
+import metrics.Histogram;
+import metrics.Metrics;
+
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 
 /**
  * Utility class for thumbnails.
  *
  * @author Alkisum
- * @version 4.0
+ * @version 4.6
  * @since 4.0
  */
 public final class Thumbnails {
@@ -22,6 +20,18 @@ public final class Thumbnails {
      */
     public static final String DEFAULT_THUMBNAIL = "/img/default_thumbnail.png";
 
+    /**
+     * Size of the downloaded thumbnails.
+     */
+    private static final Histogram SIZE = Metrics.histogram("thumbnail_bytes",
+            "Size of the downloaded thumbnails");
+
+    /**
+     * Time spent decoding the thumbnails before showing them.
+     */
+    private static final Histogram DECODE_TIME = Metrics.timer("thumbnail_decode_seconds",
+            "Time spent decoding the thumbnails");
+
     /**
      * Thumbnails constructor.
      */
@@ -39,10 +49,15 @@ public final class Thumbnails {
     public static void downloadThumbnail(final String srcUrl, final File dstFile)
             throws IOException {
         if (dstFile.getParentFile().exists() || dstFile.getParentFile().mkdirs()) {
-            try (InputStream in = new URL(srcUrl).openStream()) {
-                Files.copy(in, Paths.get(dstFile.getAbsolutePath()),
-                        StandardCopyOption.REPLACE_EXISTING);
-            }
+            Http.download(srcUrl, dstFile.toPath());
+            SIZE.record(dstFile.length());
         }
     }
+
+    /**
+     * @return Histogram measuring the time spent decoding the thumbnails
+     */
+    public static Histogram getDecodeTime() {
+        return DECODE_TIME;
+    }
 }
@@ -0,0 +1,80 @@
+package utils;
+
+import config.Config;
+import database.ObjectBox;
+import io.objectbox.Box;
+import model.Tombstone;
+import model.Tombstone_;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Utility class for the tombstones of the deleted channels and videos.
+ * The tombstones are only read by the delta backups, so they are only recorded once a backup
+ * has saved the checkpoint of the next delta.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public final class Tombstones {
+
+    /**
+     * Box storing tombstones.
+     */
+    private static final Box<Tombstone> TOMBSTONE_BOX = ObjectBox.get().boxFor(Tombstone.class);
+
+    /**
+     * Tombstones constructor.
+     */
+    private Tombstones() {
+
+    }
+
+    /**
+     * @return true if the tombstones of the deletions are recorded, false if no backup has been
+     * made yet, as no delta would read them
+     */
+    static boolean isEnabled() {
+        try {
+            return Config.getValue(Config.PROP_BACKUP_CHECKPOINT_KEY) != null;
+        } catch (IOException e) {
+            // A missing tombstone would bring the deleted video back with the next restore
+            Logger.get(Tombstones.class).error(e);
+            return true;
+        }
+    }
+
+    /**
+     * Save tombstones, in the transaction of the deletion when called from one.
+     *
+     * @param tombstones Tombstones to save
+     */
+    static void save(final Collection<Tombstone> tombstones) {
+        TOMBSTONE_BOX.put(tombstones);
+    }
+
+    /**
+     * Get the tombstones of the channels and videos deleted since the given time.
+     *
+     * @param time Time of the oldest deletion to get
+     * @return List of tombstones, order by deletion time
+     */
+    public static List<Tombstone> getSince(final long time) {
+        return TOMBSTONE_BOX.query().greaterOrEqual(Tombstone_.deletedAt, time)
+                .order(Tombstone_.deletedAt).build().find();
+    }
+
+    /**
+     * Delete the tombstones of the channels and videos deleted before the given time, which are
+     * not read by the delta exports anymore.
+     *
+     * @param time Time of the oldest deletion to keep
+     * @return Number of tombstones deleted
+     */
+    public static long deleteBefore(final long time) {
+        return TOMBSTONE_BOX.query().less(Tombstone_.deletedAt, time).build().remove();
+    }
+}
@@ -1,31 +1,34 @@
 package utils;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonObject;
 import config.Config;
 import database.ObjectBox;
 import io.objectbox.Box;
 import io.objectbox.query.OrderFlags;
+import io.objectbox.query.Query;
 import io.objectbox.query.QueryBuilder;
+import jfr.ThumbnailDownloadEvent;
+import metrics.Histogram;
+import model.Channel;
 import model.Channel_;
+import model.Tombstone;
 import model.Video;
 import model.Video_;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.Response;
-import okhttp3.ResponseBody;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Utility class for videos.
  *
  * @author Alkisum
- * @version 4.2
+ * @version 4.6
  * @since 4.0
  */
 public final class Videos {
@@ -45,15 +48,80 @@ public final class Videos {
      */
     public static final String THUMBNAIL_EXT = ".jpg";
 
+    /**
+     * YouTube Data API URL.
+     */
+    public static final String API_URL = "https://www.googleapis.com/youtube/v3/";
+
     /**
      * Box storing videos.
      */
     private static final Box<Video> VIDEO_BOX = ObjectBox.get().boxFor(Video.class);
 
     /**
-     * OkHttpClient instance.
+     * Latency of the existence checks.
+     */
+    private static final Histogram EXISTS_QUERY = ObjectBox.queryTimer("video", "exists");
+
+    /**
+     * Latency of the lookups by YT id.
+     */
+    private static final Histogram YT_ID_QUERY = ObjectBox.queryTimer("video", "getByYtId");
+
+    /**
+     * Latency of the unwatched videos queries.
+     */
+    private static final Histogram UNWATCHED_QUERY = ObjectBox.queryTimer("video",
+            "getUnwatched");
+
+    /**
+     * Latency of the unwatched videos counts.
+     */
+    private static final Histogram UNWATCHED_COUNT = ObjectBox.queryTimer("video",
+            "countUnwatched");
+
+    /**
+     * Latency of the channel videos queries.
+     */
+    private static final Histogram CHANNEL_QUERY = ObjectBox.queryTimer("video",
+            "getByChannel");
+
+    /**
+     * Latency of the channel videos counts.
+     */
+    private static final Histogram CHANNEL_COUNT = ObjectBox.queryTimer("video",
+            "countByChannel");
+
+    /**
+     * Latency of the queries on the time the videos were last saved.
+     */
+    private static final Histogram UPDATED_QUERY = ObjectBox.queryTimer("video",
+            "getUpdatedSince");
+
+    /**
+     * Latency of the watched videos queries, run by the retention policy.
+     */
+    private static final Histogram WATCHED_QUERY = ObjectBox.queryTimer("video", "getWatched");
+
+    /**
+     * Latency of the queries of all the video ids.
+     */
+    private static final Histogram IDS_QUERY = ObjectBox.queryTimer("video", "getIds");
+
+    /**
+     * Latency of the video puts.
      */
-    private static final OkHttpClient CLIENT = new OkHttpClient();
+    private static final Histogram PUT_TX = ObjectBox.txTimer("video", "put");
+
+    /**
+     * Latency of the video removals.
+     */
+    private static final Histogram REMOVE_TX = ObjectBox.txTimer("video", "remove");
+
+    /**
+     * Latency of the watched state updates.
+     */
+    private static final Histogram WATCHED_TX = ObjectBox.txTimer("video", "setWatched");
 
     /**
      * Videos constructor.
@@ -72,31 +140,11 @@ public final class Videos {
      *                     or while fetching the duration
      */
     public static long retrieveDuration(final String ytId) throws IOException {
-        // Build HTTP request
-        Request request = new Request.Builder()
-                .url("https://www.googleapis.com/youtube/v3/videos?id=" + ytId
-                        + "&part=contentDetails&key=" + Config.getValue(Config.PROP_API_KEY))
-                .build();
-
-        try (Response response = CLIENT.newCall(request).execute()) {
-            // Get response body
-            ResponseBody responseBody = response.body();
-            if (responseBody == null) {
-                return 0;
-            }
-            String body = responseBody.string();
-
-            // Read duration from response body
-            Gson gson = new Gson();
-            JsonObject jsonObject = gson.fromJson(body, JsonObject.class);
-            String durationString = jsonObject.getAsJsonArray("items")
-                    .get(0).getAsJsonObject()
-                    .get("contentDetails").getAsJsonObject()
-                    .get("duration").getAsString();
-
-            // Parse duration and return it in seconds
-            return Duration.parse(durationString).toSeconds();
-        }
+        // Send HTTP request
+        String body = new String(Http.get(getApiUrl() + "videos?id=" + ytId
+                + "&part=contentDetails&key=" + Config.getValue(Config.PROP_API_KEY)),
+                StandardCharsets.UTF_8);
+        return Durations.parseApiResponse(body);
     }
 
     /**
@@ -106,7 +154,32 @@ public final class Videos {
      * @return true if a video exists, false otherwise
      */
     public static boolean exists(final String ytId) {
-        return VIDEO_BOX.query().equal(Video_.ytId, ytId).build().count() > 0;
+        return EXISTS_QUERY.time(() ->
+                VIDEO_BOX.query().equal(Video_.ytId, ytId).build().count() > 0);
+    }
+
+    /**
+     * Get the video identified by the given YT id.
+     *
+     * @param ytId YT id
+     * @return Video, null if there is none
+     */
+    public static Video getByYtId(final String ytId) {
+        return YT_ID_QUERY.time(() ->
+                VIDEO_BOX.query().equal(Video_.ytId, ytId).build().findFirst());
+    }
+
+    /**
+     * Get the videos of the channel identified by the given id that have one of the given YT ids.
+     *
+     * @param channelId Channel id to get the videos from
+     * @param ytIds     YT ids of the videos
+     * @return List of videos, in no particular order
+     */
+    public static List<Video> getByChannelIdAndYtIds(final long channelId,
+                                                     final String... ytIds) {
+        return YT_ID_QUERY.time(() -> VIDEO_BOX.query().equal(Video_.channelId, channelId)
+                .in(Video_.ytId, ytIds).build().find());
     }
 
     /**
@@ -116,9 +189,28 @@ public final class Videos {
      * @throws IOException An error occurred while downloading the thumbnail
      */
     public static void create(final Video... videos) throws IOException {
-        VIDEO_BOX.put(videos);
+        stamp(videos);
+        PUT_TX.time(() -> VIDEO_BOX.put(videos));
+        downloadThumbnails(videos);
+    }
+
+    /**
+     * Download the thumbnail of the given videos, which must have been saved beforehand.
+     *
+     * @param videos Videos to download the thumbnail for
+     * @throws IOException An error occurred while downloading the thumbnail
+     */
+    public static void downloadThumbnails(final Video... videos) throws IOException {
         for (Video video : videos) {
+            ThumbnailDownloadEvent event = new ThumbnailDownloadEvent(video.getYtId());
+            event.begin();
             Thumbnails.downloadThumbnail(video.getThumbnailUrl(), video.getThumbnailFile());
+            event.end();
+            if (event.shouldCommit()) {
+                event.setChannelYtId(video.getChannel().getTarget().getYtId());
+                event.setBytes(video.getThumbnailFile().length());
+                event.commit();
+            }
         }
     }
 
@@ -128,17 +220,63 @@ public final class Videos {
      * @param videos Videos to update
      */
     public static void update(final Video... videos) {
-        VIDEO_BOX.put(videos);
+        stamp(videos);
+        PUT_TX.time(() -> VIDEO_BOX.put(videos));
+    }
+
+    /**
+     * Set the time the videos are saved, read by the delta exports.
+     *
+     * @param videos Videos about to be saved
+     */
+    private static void stamp(final Video... videos) {
+        long time = System.currentTimeMillis();
+        for (Video video : videos) {
+            video.setUpdatedAt(time);
+        }
     }
 
     /**
-     * Delete videos and their thumbnail.
+     * Delete videos and their thumbnail, leaving a tombstone for each video if the tombstones are
+     * recorded.
      *
      * @param videos Videos to delete
      * @throws IOException An error occurred while deleting the video thumbnail file
      */
     public static void delete(final Video... videos) throws IOException {
-        VIDEO_BOX.remove(videos);
+        long time = System.currentTimeMillis();
+        Box<Channel> channelBox = ObjectBox.get().boxFor(Channel.class);
+        // The videos deleted together mostly belong to the same channel
+        Map<Long, String> channelYtIds = new HashMap<>();
+        List<Tombstone> tombstones = new ArrayList<>(videos.length);
+        for (Video video : videos) {
+            String channelYtId = channelYtIds.computeIfAbsent(
+                    video.getChannel().getTargetId(), id -> {
+                        Channel channel = channelBox.get(id);
+                        return channel == null ? null : channel.getYtId();
+                    });
+            tombstones.add(new Tombstone(channelYtId, video.getYtId(), time));
+        }
+        delete(tombstones, videos);
+    }
+
+    /**
+     * Delete videos and their thumbnail, saving the given tombstones in the same transaction if
+     * the tombstones are recorded.
+     *
+     * @param tombstones Tombstones to save
+     * @param videos     Videos to delete
+     * @throws IOException An error occurred while deleting the video thumbnail file
+     */
+    static void delete(final Collection<Tombstone> tombstones, final Video... videos)
+            throws IOException {
+        boolean tombstonesEnabled = !tombstones.isEmpty() && Tombstones.isEnabled();
+        REMOVE_TX.time(() -> ObjectBox.get().runInTx(() -> {
+            VIDEO_BOX.remove(videos);
+            if (tombstonesEnabled) {
+                Tombstones.save(tombstones);
+            }
+        }));
         for (Video video : videos) {
             Files.deleteIfExists(video.getThumbnailFile().toPath());
         }
@@ -150,19 +288,38 @@ public final class Videos {
      * @return Number of unwatched videos.
      */
     public static long countUnwatchedVideos() {
-        QueryBuilder<Video> builder = VIDEO_BOX.query().equal(Video_.watched, false);
-        builder.link(Video_.channel).equal(Channel_.subscribed, true);
-        return builder.build().count();
+        return UNWATCHED_COUNT.time(() -> {
+            QueryBuilder<Video> builder = VIDEO_BOX.query().equal(Video_.watched, false);
+            builder.link(Video_.channel).equal(Channel_.subscribed, true);
+            return builder.build().count();
+        });
     }
 
     /**
      * @return List of unwatched videos of subscribed channels, order by time (desc).
      */
     public static List<Video> getUnwatchedVideos() {
+        return UNWATCHED_QUERY.time(() -> unwatchedVideosQuery().build().find());
+    }
+
+    /**
+     * Get a page of the unwatched videos of subscribed channels, order by time (desc).
+     *
+     * @param offset Number of videos to skip
+     * @param limit  Maximum number of videos to return
+     * @return List of unwatched videos
+     */
+    public static List<Video> getUnwatchedVideos(final long offset, final long limit) {
+        return UNWATCHED_QUERY.time(() -> unwatchedVideosQuery().build().find(offset, limit));
+    }
+
+    /**
+     * @return Query builder for the unwatched videos of subscribed channels, order by time (desc)
+     */
+    private static QueryBuilder<Video> unwatchedVideosQuery() {
         QueryBuilder<Video> builder = VIDEO_BOX.query().equal(Video_.watched, false);
         builder.link(Video_.channel).equal(Channel_.subscribed, true);
-        return builder.order(Video_.startTime, OrderFlags.NULLS_LAST).orderDesc(Video_.time)
-                .build().find();
+        return builder.order(Video_.startTime, OrderFlags.NULLS_LAST).orderDesc(Video_.time);
     }
 
     /**
@@ -172,9 +329,173 @@ public final class Videos {
      * @return List of videos
      */
     public static List<Video> getByChannelId(final long channelId) {
+        return CHANNEL_QUERY.time(() -> channelVideosQuery(channelId).build().find());
+    }
+
+    /**
+     * Get a page of the videos of the channel identified by the given id.
+     *
+     * @param channelId Channel id to get the videos from
+     * @param offset    Number of videos to skip
+     * @param limit     Maximum number of videos to return
+     * @return List of videos
+     */
+    public static List<Video> getByChannelId(final long channelId, final long offset,
+                                             final long limit) {
+        return CHANNEL_QUERY.time(() ->
+                channelVideosQuery(channelId).build().find(offset, limit));
+    }
+
+    /**
+     * Get the ids of the videos of the channel identified by the given id, to read the videos of
+     * a large channel by pages with {@link #get(long...)}. Paging the query itself is slower, as
+     * an offset is skipped again for each page and a condition on the id makes the query scan
+     * the videos of all the channels.
+     *
+     * @param channelId Channel id to get the video ids from
+     * @return Video ids
+     */
+    public static long[] getIdsByChannelId(final long channelId) {
+        return CHANNEL_QUERY.time(() ->
+                VIDEO_BOX.query().equal(Video_.channelId, channelId).build().findIds());
+    }
+
+    /**
+     * Get the ids of the videos of the channel identified by the given id that have been saved
+     * since the given time.
+     *
+     * @param channelId Channel id to get the video ids from
+     * @param time      Time of the oldest save to consider
+     * @return Video ids
+     */
+    public static long[] getIdsByChannelIdUpdatedSince(final long channelId, final long time) {
+        return UPDATED_QUERY.time(() -> VIDEO_BOX.query()
+                .equal(Video_.channelId, channelId)
+                .greaterOrEqual(Video_.updatedAt, time).build().findIds());
+    }
+
+    /**
+     * Count the videos saved since the given time.
+     *
+     * @param time Time of the oldest save to consider
+     * @return Number of videos
+     */
+    public static long countUpdatedSince(final long time) {
+        return UPDATED_QUERY.time(() -> VIDEO_BOX.query()
+                .greaterOrEqual(Video_.updatedAt, time).build().count());
+    }
+
+    /**
+     * Get the ids of the watched videos published before the given time.
+     *
+     * @param time Published time of the oldest video to keep
+     * @return Video ids
+     */
+    public static long[] getWatchedIdsPublishedBefore(final long time) {
+        return WATCHED_QUERY.time(() -> VIDEO_BOX.query().equal(Video_.watched, true)
+                .less(Video_.time, time).build().findIds());
+    }
+
+    /**
+     * Get the ids of the watched videos of the channel identified by the given id, order by time
+     * (desc), skipping the most recent ones.
+     *
+     * @param channelId Channel id to get the video ids from
+     * @param offset    Number of videos to skip
+     * @return Video ids
+     */
+    public static long[] getWatchedIdsByChannelId(final long channelId, final long offset) {
+        return WATCHED_QUERY.time(() -> VIDEO_BOX.query().equal(Video_.channelId, channelId)
+                .equal(Video_.watched, true).orderDesc(Video_.time).build()
+                .findIds(offset, 0));
+    }
+
+    /**
+     * Get the most recent videos of the channel identified by the given id, watched or not.
+     *
+     * @param channelId Channel id to get the videos from
+     * @param limit     Maximum number of videos to return
+     * @return List of videos, order by time (desc)
+     */
+    public static List<Video> getNewestByChannelId(final long channelId, final long limit) {
+        return CHANNEL_QUERY.time(() -> VIDEO_BOX.query().equal(Video_.channelId, channelId)
+                .orderDesc(Video_.time).build().find(0, limit));
+    }
+
+    /**
+     * @return Ids of all the videos, in one query
+     */
+    public static long[] getAllIds() {
+        return IDS_QUERY.time(() -> VIDEO_BOX.query().build().findIds());
+    }
+
+    /**
+     * Get the videos identified by the given ids.
+     *
+     * @param ids Video ids
+     * @return List of videos, in the order of the ids
+     */
+    public static List<Video> get(final long... ids) {
+        return VIDEO_BOX.get(ids);
+    }
+
+    /**
+     * Count the videos of the channel identified by the given id.
+     *
+     * @param channelId Channel id to count the videos from
+     * @return Number of videos
+     */
+    public static long countByChannelId(final long channelId) {
+        return CHANNEL_COUNT.time(() ->
+                VIDEO_BOX.query().equal(Video_.channelId, channelId).build().count());
+    }
+
+    /**
+     * @param channelId Channel id to get the videos from
+     * @return Query builder for the videos of the given channel, order by time (desc)
+     */
+    private static QueryBuilder<Video> channelVideosQuery(final long channelId) {
         return VIDEO_BOX.query().equal(Video_.channelId, channelId)
-                .order(Video_.startTime, OrderFlags.NULLS_LAST).orderDesc(Video_.time)
-                .build().find();
+                .order(Video_.startTime, OrderFlags.NULLS_LAST).orderDesc(Video_.time);
+    }
+
+    /**
+     * Set the watched state of the videos identified by the given YT ids, in a single
+     * transaction.
+     *
+     * @param watched Watched state to set
+     * @param ytIds   YT ids of the videos to update
+     * @return Number of videos updated
+     */
+    public static int setWatched(final boolean watched, final Collection<String> ytIds) {
+        int count = WATCHED_TX.time(() -> ObjectBox.get().callInTxNoException(() -> {
+            Query<Video> query = VIDEO_BOX.query().equal(Video_.ytId, "").build();
+            List<Video> videos = new ArrayList<>();
+            for (String ytId : ytIds) {
+                query.setParameter(Video_.ytId, ytId);
+                for (Video video : query.find()) {
+                    if (video.isWatched() != watched) {
+                        video.setWatched(watched);
+                        videos.add(video);
+                    }
+                }
+            }
+            stamp(videos.toArray(new Video[0]));
+            VIDEO_BOX.put(videos);
+            return videos.size();
+        }));
+        if (count > 0) {
+            // The entity tag must change before the response is sent
+            ObjectBox.incrementRevision();
+        }
+        return count;
+    }
+
+    /**
+     * @return Number of videos
+     */
+    public static long count() {
+        return VIDEO_BOX.count();
     }
 
     /**
@@ -183,4 +504,21 @@ public final class Videos {
     public static List<Video> getAll() {
         return VIDEO_BOX.getAll();
     }
+
+    /**
+     * Get the YouTube Data API URL stored in the configuration file.
+     *
+     * @return API URL, ending with a slash
+     */
+    public static String getApiUrl() {
+        try {
+            String apiUrl = Config.getValue(Config.PROP_API_URL_KEY);
+            if (apiUrl == null) {
+                return API_URL;
+            }
+            return apiUrl;
+        } catch (IOException e) {
+            return API_URL;
+        }
+    }
 }
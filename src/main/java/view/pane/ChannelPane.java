@@ -12,16 +12,18 @@ import javafx.scene.layout.ColumnConstraints;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.Priority;
 import model.Channel;
+import utils.Channels;
 import view.Icon;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 /**
  * Pane extending GridPane and containing Channel attributes.
  *
  * @author Alkisum
- * @version 4.1
+ * @version 4.6
  * @since 1.0
  */
 public class ChannelPane extends GridPane {
@@ -75,6 +77,17 @@ public class ChannelPane extends GridPane {
             Label labelURL = new Label(channel.getUrl());
             add(labelURL, 2, row);
 
+            // Quarantine state
+            Label labelQuarantined = new Label();
+            if (Channels.isQuarantined(channel)) {
+                labelQuarantined.setText("Quarantined");
+                labelQuarantined.getStyleClass().add("quarantined");
+                labelQuarantined.setTooltip(new Tooltip(channel.getFailureCount()
+                        + " consecutive failures, last one on "
+                        + new Date(channel.getLastFailureTime())));
+            }
+            add(labelQuarantined, 3, row);
+
             // Subscribed button
             Button buttonSubscribed = new Button();
             Image imageSubscribed;
@@ -90,7 +103,7 @@ public class ChannelPane extends GridPane {
             buttonSubscribed.setGraphic(new ImageView(imageSubscribed));
             buttonSubscribed.setOnAction(
                     (event) -> channelController.onSetChannelSubscriptionClicked(channel));
-            add(buttonSubscribed, 3, row);
+            add(buttonSubscribed, 4, row);
 
             // Edit button
             Button buttonEdit = new Button();
@@ -98,14 +111,14 @@ public class ChannelPane extends GridPane {
             buttonEdit.setGraphic(new ImageView(Icon.get(Icon.EDIT)));
             buttonEdit.setOnAction(
                     (event) -> channelController.onEditChannelClicked(event, channel));
-            add(buttonEdit, 4, row);
+            add(buttonEdit, 5, row);
 
             // Delete button
             Button buttonDelete = new Button();
             buttonDelete.setTooltip(new Tooltip("Delete channel"));
             buttonDelete.setGraphic(new ImageView(Icon.get(Icon.DELETE)));
             buttonDelete.setOnAction((event) -> channelController.onDeleteChannelClicked(channel));
-            add(buttonDelete, 5, row);
+            add(buttonDelete, 6, row);
         }
 
         ColumnConstraints checkBoxConstraint = new ColumnConstraints();
@@ -115,6 +128,8 @@ public class ChannelPane extends GridPane {
         nameConstraint.setMinWidth(Double.NEGATIVE_INFINITY);
         ColumnConstraints urlConstraint = new ColumnConstraints();
         urlConstraint.setHgrow(Priority.ALWAYS);
+        ColumnConstraints quarantinedConstraint = new ColumnConstraints();
+        quarantinedConstraint.setHgrow(Priority.NEVER);
         ColumnConstraints subscribedConstraint = new ColumnConstraints();
         subscribedConstraint.setHgrow(Priority.NEVER);
         ColumnConstraints editConstraint = new ColumnConstraints();
@@ -123,7 +138,7 @@ public class ChannelPane extends GridPane {
         deleteConstraint.setHgrow(Priority.NEVER);
 
         getColumnConstraints().addAll(checkBoxConstraint, nameConstraint,
-                urlConstraint, subscribedConstraint, editConstraint,
+                urlConstraint, quarantinedConstraint, subscribedConstraint, editConstraint,
                 deleteConstraint);
     }
 }
@@ -9,6 +9,7 @@ import javafx.geometry.HPos;
 import javafx.geometry.Insets;
 import javafx.geometry.Orientation;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.control.Label;
 import javafx.scene.control.ProgressBar;
 import javafx.scene.control.Separator;
@@ -17,6 +18,8 @@ import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.Priority;
+import metrics.Histogram;
+import metrics.Metrics;
 import model.Video;
 import org.ocpsoft.prettytime.PrettyTime;
 import task.VideoDeleter;
@@ -33,12 +36,13 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.function.IntConsumer;
 
 /**
  * Class extending GridPane to show videos in video window.
  *
  * @author Alkisum
- * @version 4.5
+ * @version 4.6
  * @since 1.0
  */
 public class VideoPane extends GridPane implements VideoDeleter.Listener {
@@ -53,6 +57,12 @@ public class VideoPane extends GridPane implements VideoDeleter.Listener {
      */
     private static final int ROW_COUNT = 4;
 
+    /**
+     * Time spent building the pane, from the start of the task to the last video shown.
+     */
+    private static final Histogram BUILD_TIME = Metrics.timer("video_pane_build_seconds",
+            "Time spent building the video pane");
+
     /**
      * List of videos shown.
      */
@@ -73,6 +83,11 @@ public class VideoPane extends GridPane implements VideoDeleter.Listener {
      */
     private final ProgressBar progressBar;
 
+    /**
+     * Number of rows added to the pane, only accessed from the JavaFX application thread.
+     */
+    private int rowCount;
+
     /**
      * Video pane constructor.
      *
@@ -100,15 +115,15 @@ public class VideoPane extends GridPane implements VideoDeleter.Listener {
         setVgap(5);
         setPadding(new Insets(5, 10, 5, 10));
 
+        long start = System.nanoTime();
         Task<Void> task = new Task<>() {
             @Override
             protected Void call() {
-                int row = 0;
                 for (int i = 0; i < videos.size(); i++) {
                     updateProgress(i + 1, videos.size());
                     updateMessage("Getting " + videos.get(i).getTitle() + "...");
-                    addVideo(videos.get(i), row);
-                    row += ROW_COUNT;
+                    IntConsumer placer = createVideo(videos.get(i));
+                    Platform.runLater(() -> appendVideo(placer));
                     if (i > 100) {
                         // Do not list more than a 100 videos
                         return null;
@@ -125,6 +140,8 @@ public class VideoPane extends GridPane implements VideoDeleter.Listener {
         new Thread(task).start();
 
         task.setOnSucceeded(t -> {
+            // The videos are appended before this handler runs on the application thread
+            BUILD_TIME.recordSince(start);
             progressMessage.textProperty().unbind();
             progressBar.progressProperty().unbind();
             progressMessage.setText("");
@@ -147,12 +164,48 @@ public class VideoPane extends GridPane implements VideoDeleter.Listener {
     }
 
     /**
-     * Add the video information to the pane.
+     * Add the video at the end of the pane.
+     * Must be called from the JavaFX application thread.
      *
-     * @param video Video to add
-     * @param pRow  First row where to add information
+     * @param placer Function adding the video information at the given row
      */
-    private void addVideo(final Video video, final int pRow) {
+    private void appendVideo(final IntConsumer placer) {
+        placer.accept(rowCount);
+        rowCount += ROW_COUNT;
+    }
+
+    /**
+     * Insert the given videos at the given position, moving the following videos down.
+     * Must be called from the JavaFX application thread.
+     *
+     * @param index     Position of the first video to insert
+     * @param newVideos Videos to insert
+     */
+    public final void insertVideos(final int index, final List<Video> newVideos) {
+        int insertRow = Math.min(index * ROW_COUNT, rowCount);
+        int shift = newVideos.size() * ROW_COUNT;
+        for (Node node : getChildren()) {
+            Integer row = getRowIndex(node);
+            if (row != null && row >= insertRow) {
+                setRowIndex(node, row + shift);
+            }
+        }
+        int row = insertRow;
+        for (Video video : newVideos) {
+            createVideo(video).accept(row);
+            row += ROW_COUNT;
+        }
+        rowCount += shift;
+    }
+
+    /**
+     * Create the nodes showing the video information.
+     *
+     * @param video Video to create the nodes for
+     * @return Function adding the nodes to the pane at the given first row, to be called from
+     * the JavaFX application thread
+     */
+    private IntConsumer createVideo(final Video video) {
 
         // Play icon
         ImageView play = new ImageView(new Image(getClass().getResourceAsStream(PLAY)));
@@ -169,8 +222,10 @@ public class VideoPane extends GridPane implements VideoDeleter.Listener {
             thumbnail = new ImageView(image);
         } else {
             Image image;
+            long decodeStart = System.nanoTime();
             try {
                 image = SwingFXUtils.toFXImage(ImageIO.read(video.getThumbnailFile()), null);
+                Thumbnails.getDecodeTime().recordSince(decodeStart);
             } catch (IOException e) {
                 image = new Image(getClass().getResourceAsStream(Thumbnails.DEFAULT_THUMBNAIL));
             }
@@ -263,7 +318,7 @@ public class VideoPane extends GridPane implements VideoDeleter.Listener {
         Separator separator = new Separator(Orientation.HORIZONTAL);
         setColumnSpan(separator, 7);
 
-        Platform.runLater(() -> {
+        return pRow -> {
             int row = pRow;
             add(thumbnail, 0, row);
             add(play, 0, row);
@@ -276,7 +331,7 @@ public class VideoPane extends GridPane implements VideoDeleter.Listener {
             add(startTime, 5, row);
             add(delete, 6, row++);
             add(separator, 0, row);
-        });
+        };
     }
 
     /**
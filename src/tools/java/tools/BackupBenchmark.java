@@ -0,0 +1,220 @@
+package tools;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
+import config.Config;
+import database.ObjectBox;
+import model.Channel;
+import model.Tombstone;
+import model.Video;
+import service.LibraryExporter;
+import service.LibraryImporter;
+import utils.BackupReader;
+import utils.BackupWriter;
+import utils.Json;
+import utils.Videos;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the JSON export with the binary backup format on a synthetic library: size of the
+ * file, wall time of the export, of the decoding of the file alone and of the import. The
+ * thumbnails are not downloaded by the imports.
+ * <p>
+ * Usage: BackupBenchmark [--channels n] [--videos n] [--seed n]
+ * <p>
+ * A temporary directory is used unless -Dytsubscriber.dir is set, the database there must be
+ * empty.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public final class BackupBenchmark {
+
+    /**
+     * BackupBenchmark constructor.
+     */
+    private BackupBenchmark() {
+
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args Arguments, see the class description
+     * @throws Exception An error occurred while exporting or importing the library
+     */
+    public static void main(final String[] args) throws Exception {
+        // The constant is inlined, so Config is not loaded before the property is set
+        if (System.getProperty(Config.USER_DIR_PROPERTY) == null) {
+            System.setProperty(Config.USER_DIR_PROPERTY,
+                    Files.createTempDirectory("ytsubscriber-backup").toString());
+        }
+
+        int channelCount = 5000;
+        int videoCount = 1000000;
+        long seed = 42;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--channels":
+                    channelCount = Integer.parseInt(args[++i]);
+                    break;
+                case "--videos":
+                    videoCount = Integer.parseInt(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+
+        try {
+            long start = System.nanoTime();
+            new LibraryGenerator(seed, channelCount, videoCount).fillDatabase(false);
+            System.out.println(String.format(Locale.ROOT,
+                    "Generated %d channels and %d videos in %s in %.1fs", channelCount,
+                    videoCount, Config.USER_DIR, seconds(start)));
+            System.out.println("format   size(MB)  export(s)  decode(s)  import(s)");
+            File directory = new File(Config.USER_DIR);
+            run(new File(directory, "backup.json"));
+            run(new File(directory, "backup." + BackupWriter.EXTENSION));
+        } finally {
+            ObjectBox.get().close();
+        }
+    }
+
+    /**
+     * Export the library to the given file, decode the file and import it back, and print the
+     * results.
+     *
+     * @param file File to export to, its extension giving the format
+     * @throws Exception An error occurred while exporting or importing the library
+     */
+    private static void run(final File file) throws Exception {
+        long videoCount = Videos.count();
+
+        System.gc();
+        long start = System.nanoTime();
+        new LibraryExporter(file, (done, total, message) -> {
+        }).run();
+        double exportTime = seconds(start);
+
+        System.gc();
+        start = System.nanoTime();
+        long decoded = LibraryExporter.isBackupFile(file) ? decodeBackup(file) : decodeJson(file);
+        double decodeTime = seconds(start);
+        if (decoded != videoCount) {
+            throw new IOException("Decoded " + decoded + " videos instead of " + videoCount);
+        }
+
+        // Empty the database outside of the measure, the thumbnails being absent
+        ObjectBox.get().boxFor(Video.class).removeAll();
+        ObjectBox.get().boxFor(Channel.class).removeAll();
+        System.gc();
+        start = System.nanoTime();
+        LibraryImporter importer = new LibraryImporter(file, false, (done, total, message) -> {
+        });
+        importer.setDownloadThumbnails(false);
+        importer.run();
+        double importTime = seconds(start);
+        if (Videos.count() != videoCount) {
+            throw new IOException("Imported " + Videos.count() + " videos instead of "
+                    + videoCount);
+        }
+
+        System.out.println(String.format(Locale.ROOT, "%-6s  %9.1f  %9.2f  %9.2f  %9.2f",
+                LibraryExporter.isBackupFile(file) ? BackupWriter.EXTENSION : "json",
+                file.length() / 1e6, exportTime, decodeTime, importTime));
+    }
+
+    /**
+     * Decode the videos of a backup file without saving them.
+     *
+     * @param file Backup file
+     * @return Number of videos decoded
+     * @throws Exception An error occurred while reading the file
+     */
+    private static long decodeBackup(final File file) throws Exception {
+        long[] count = new long[1];
+        try (BackupReader reader = new BackupReader(new FileInputStream(file),
+                Runtime.getRuntime().availableProcessors())) {
+            reader.read(new BackupReader.Listener() {
+                @Override
+                public void onChannel(final Channel channel) {
+                }
+
+                @Override
+                public void onVideo(final Video video) {
+                    count[0]++;
+                }
+
+                @Override
+                public void onDelta(final long since, final long until) {
+                }
+
+                @Override
+                public void onFull(final long until) {
+                }
+
+                @Override
+                public void onTombstone(final Tombstone tombstone) {
+                }
+            });
+        }
+        return count[0];
+    }
+
+    /**
+     * Decode the videos of a JSON file without saving them, as the import does.
+     *
+     * @param file JSON file
+     * @return Number of videos decoded
+     * @throws IOException An error occurred while reading the file
+     */
+    private static long decodeJson(final File file) throws IOException {
+        Gson gson = new GsonBuilder().setExclusionStrategies(Json.EXCLUSION_STRATEGY).create();
+        long count = 0;
+        try (JsonReader jsonReader = new JsonReader(new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8)))) {
+            jsonReader.beginArray();
+            while (jsonReader.hasNext()) {
+                jsonReader.beginObject();
+                while (jsonReader.hasNext()) {
+                    if (!jsonReader.nextName().equals("videos")) {
+                        jsonReader.skipValue();
+                        continue;
+                    }
+                    jsonReader.beginArray();
+                    while (jsonReader.hasNext()) {
+                        gson.fromJson(jsonReader, Video.class);
+                        count++;
+                    }
+                    jsonReader.endArray();
+                }
+                jsonReader.endObject();
+            }
+            jsonReader.endArray();
+        }
+        return count;
+    }
+
+    /**
+     * @param start Start time in nanoseconds
+     * @return Seconds elapsed since the start time
+     */
+    private static double seconds(final long start) {
+        return (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+}
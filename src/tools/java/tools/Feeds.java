@@ -0,0 +1,175 @@
+package tools;
+
+import service.FeedEntry;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Utility class writing channel Atom feeds shaped like the ones served by YouTube, for the
+ * benchmarks and the stand-in servers.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public final class Feeds {
+
+    /**
+     * Number of entries in a YouTube channel feed.
+     */
+    public static final int ENTRY_COUNT = 15;
+
+    /**
+     * Characters of the YT ids.
+     */
+    private static final String ID_CHARS =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+
+    /**
+     * Words the titles are made of.
+     */
+    private static final String[] WORDS = {"Building", "the", "ultimate", "review", "guide",
+            "how", "to", "fix", "my", "new", "setup", "tour", "vs", "2020", "explained", "live",
+            "stream", "part", "episode", "why", "never", "again", "best", "worst", "update"};
+
+    /**
+     * Feeds constructor.
+     */
+    private Feeds() {
+
+    }
+
+    /**
+     * Generate a YT id.
+     *
+     * @param random Source of randomness
+     * @param length Length of the id, 11 for videos, 22 for channels (after "UC")
+     * @return YT id
+     */
+    public static String ytId(final Random random, final int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(ID_CHARS.charAt(random.nextInt(ID_CHARS.length())));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Generate a title.
+     *
+     * @param random Source of randomness
+     * @param words  Number of words
+     * @return Title
+     */
+    public static String title(final Random random, final int words) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                builder.append(' ');
+            }
+            builder.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Generate the entries of a channel feed, one video a day from the given time backwards.
+     *
+     * @param random      Source of randomness
+     * @param channelYtId YT id of the channel
+     * @param count       Number of entries
+     * @param time        Time of the newest entry in milliseconds
+     * @return Entries, newest first
+     */
+    public static List<FeedEntry> entries(final Random random, final String channelYtId,
+                                          final int count, final long time) {
+        List<FeedEntry> entries = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String ytId = ytId(random, 11);
+            // The feed dates have a second precision
+            long published = (time - i * 86_400_000L) / 1000 * 1000;
+            entries.add(new FeedEntry(ytId, channelYtId, title(random, 4 + random.nextInt(10)),
+                    "https://www.youtube.com/watch?v=" + ytId, published,
+                    "https://i.ytimg.com/vi/" + ytId + "/hqdefault.jpg"));
+        }
+        return entries;
+    }
+
+    /**
+     * Write the Atom feed of a channel.
+     *
+     * @param channelYtId YT id of the channel
+     * @param channelName Name of the channel
+     * @param entries     Entries of the feed
+     * @return Atom feed
+     */
+    public static String atom(final String channelYtId, final String channelName,
+                              final List<FeedEntry> entries) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'+00:00'");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        String channelUrl = "https://www.youtube.com/channel/" + channelYtId;
+        StringBuilder builder = new StringBuilder(1024 + entries.size() * 1536);
+        builder.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<feed xmlns:yt=\"http://www.youtube.com/xml/schemas/2015\" ")
+                .append("xmlns:media=\"http://search.yahoo.com/mrss/\" ")
+                .append("xmlns=\"http://www.w3.org/2005/Atom\">\n")
+                .append(" <link rel=\"self\" href=\"http://www.youtube.com/feeds/videos.xml")
+                .append("?channel_id=").append(channelYtId).append("\"/>\n")
+                .append(" <id>yt:channel:").append(channelYtId).append("</id>\n")
+                .append(" <yt:channelId>").append(channelYtId).append("</yt:channelId>\n")
+                .append(" <title>").append(escape(channelName)).append("</title>\n")
+                .append(" <link rel=\"alternate\" href=\"").append(channelUrl).append("\"/>\n")
+                .append(" <author>\n  <name>").append(escape(channelName))
+                .append("</name>\n  <uri>").append(channelUrl).append("</uri>\n </author>\n");
+        for (FeedEntry entry : entries) {
+            String published = format.format(new Date(entry.getTime()));
+            String title = escape(entry.getTitle());
+            builder.append(" <entry>\n")
+                    .append("  <id>yt:video:").append(entry.getYtId()).append("</id>\n")
+                    .append("  <yt:videoId>").append(entry.getYtId()).append("</yt:videoId>\n")
+                    .append("  <yt:channelId>").append(channelYtId).append("</yt:channelId>\n")
+                    .append("  <title>").append(title).append("</title>\n")
+                    .append("  <link rel=\"alternate\" href=\"").append(entry.getUrl())
+                    .append("\"/>\n")
+                    .append("  <author>\n   <name>").append(escape(channelName))
+                    .append("</name>\n   <uri>").append(channelUrl).append("</uri>\n")
+                    .append("  </author>\n")
+                    .append("  <published>").append(published).append("</published>\n")
+                    .append("  <updated>").append(published).append("</updated>\n")
+                    .append("  <media:group>\n")
+                    .append("   <media:title>").append(title).append("</media:title>\n")
+                    .append("   <media:content url=\"https://www.youtube.com/v/")
+                    .append(entry.getYtId()).append("?version=3\" type=\"application/x-shockwave")
+                    .append("-flash\" width=\"640\" height=\"390\"/>\n")
+                    .append("   <media:thumbnail url=\"").append(entry.getThumbnailUrl())
+                    .append("\" width=\"480\" height=\"360\"/>\n")
+                    .append("   <media:description>").append(title)
+                    .append(" - full description of the video with links and credits")
+                    .append("</media:description>\n")
+                    .append("   <media:community>\n")
+                    .append("    <media:starRating count=\"1234\" average=\"5.00\" min=\"1\" ")
+                    .append("max=\"5\"/>\n")
+                    .append("    <media:statistics views=\"56789\"/>\n")
+                    .append("   </media:community>\n")
+                    .append("  </media:group>\n")
+                    .append(" </entry>\n");
+        }
+        return builder.append("</feed>\n").toString();
+    }
+
+    /**
+     * Escape the XML special characters of the given text.
+     *
+     * @param text Text
+     * @return Escaped text
+     */
+    public static String escape(final String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;")
+                .replace("\"", "&quot;");
+    }
+}
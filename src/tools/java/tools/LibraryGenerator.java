@@ -0,0 +1,393 @@
+package tools;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
+import config.Config;
+import database.ObjectBox;
+import io.objectbox.Box;
+import model.Channel;
+import model.Video;
+import utils.Channels;
+import utils.Json;
+import utils.Videos;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generate a large synthetic library, deterministic for a given seed, to reproduce scaling
+ * issues locally. The number of videos per channel follows a Zipf distribution, the upload
+ * gaps are exponential, recent videos are less likely to be watched and a few unwatched
+ * videos have a start time.
+ * <p>
+ * Usage: LibraryGenerator [--seed n] [--channels n] [--videos n] [--time millis] [--db]
+ * [--thumbnails] [--json file] [--opml file]
+ * <ul>
+ * <li>--db - Fill the database of the user directory, which must be empty. Run with
+ * -Dytsubscriber.dir to fill a scratch directory</li>
+ * <li>--thumbnails - Write a thumbnail file for each video saved in the database</li>
+ * <li>--json - Write the library in the format of the JSON export</li>
+ * <li>--opml - Write the channels as an OPML subscription list</li>
+ * </ul>
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public final class LibraryGenerator {
+
+    /**
+     * Time of the newest videos when none is given, fixed so the output only depends on the
+     * seed: 2020-11-01T00:00:00Z.
+     */
+    private static final long DEFAULT_TIME = 1_604_188_800_000L;
+
+    /**
+     * Exponent of the Zipf distribution of the videos over the channels.
+     */
+    private static final double ZIPF_EXPONENT = 1.0;
+
+    /**
+     * Share of the channels that are subscribed.
+     */
+    private static final double SUBSCRIBED_RATIO = 0.9;
+
+    /**
+     * Share of the unwatched videos that have a start time.
+     */
+    private static final double START_TIME_RATIO = 0.05;
+
+    /**
+     * Number of videos put in a single transaction.
+     */
+    private static final int BATCH_SIZE = 10000;
+
+    /**
+     * Seed of the library.
+     */
+    private final long seed;
+
+    /**
+     * Number of channels.
+     */
+    private final int channelCount;
+
+    /**
+     * Number of videos of each channel.
+     */
+    private final int[] videoCounts;
+
+    /**
+     * Time of the newest videos in milliseconds.
+     */
+    private long time = DEFAULT_TIME;
+
+    /**
+     * LibraryGenerator constructor.
+     *
+     * @param seed         Seed of the library
+     * @param channelCount Number of channels
+     * @param videoCount   Total number of videos
+     */
+    public LibraryGenerator(final long seed, final int channelCount, final int videoCount) {
+        this.seed = seed;
+        this.channelCount = channelCount;
+        this.videoCounts = distribute(videoCount, channelCount);
+    }
+
+    /**
+     * @param time Time of the newest videos in milliseconds
+     */
+    public void setTime(final long time) {
+        this.time = time;
+    }
+
+    /**
+     * Start the generator.
+     *
+     * @param args Arguments, see the class description
+     * @throws IOException An error occurred while writing the library
+     */
+    public static void main(final String[] args) throws IOException {
+        long seed = 42;
+        int channelCount = 1000;
+        int videoCount = 100_000;
+        Long time = null;
+        boolean db = false;
+        boolean thumbnails = false;
+        File json = null;
+        File opml = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--channels":
+                    channelCount = Integer.parseInt(args[++i]);
+                    break;
+                case "--videos":
+                    videoCount = Integer.parseInt(args[++i]);
+                    break;
+                case "--time":
+                    time = Long.parseLong(args[++i]);
+                    break;
+                case "--db":
+                    db = true;
+                    break;
+                case "--thumbnails":
+                    thumbnails = true;
+                    break;
+                case "--json":
+                    json = new File(args[++i]);
+                    break;
+                case "--opml":
+                    opml = new File(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+
+        LibraryGenerator generator = new LibraryGenerator(seed, channelCount, videoCount);
+        if (time != null) {
+            generator.setTime(time);
+        }
+        long start = System.nanoTime();
+        if (db) {
+            generator.fillDatabase(thumbnails);
+            ObjectBox.get().close();
+        }
+        if (json != null) {
+            generator.writeJson(json);
+        }
+        if (opml != null) {
+            generator.writeOpml(opml);
+        }
+        System.out.println("Generated " + channelCount + " channels and " + videoCount
+                + " videos in " + TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start)
+                + "s");
+    }
+
+    /**
+     * Distribute the videos over the channels following a Zipf distribution, the first
+     * channel having the most videos.
+     *
+     * @param videoCount   Total number of videos
+     * @param channelCount Number of channels
+     * @return Number of videos of each channel
+     */
+    private static int[] distribute(final int videoCount, final int channelCount) {
+        double[] weights = new double[channelCount];
+        double sum = 0;
+        for (int i = 0; i < channelCount; i++) {
+            weights[i] = 1 / Math.pow(i + 1, ZIPF_EXPONENT);
+            sum += weights[i];
+        }
+        int[] counts = new int[channelCount];
+        int assigned = 0;
+        for (int i = 0; i < channelCount; i++) {
+            counts[i] = (int) (videoCount * weights[i] / sum);
+            assigned += counts[i];
+        }
+        // Give the videos left by the rounding, fewer than the channels, to the smallest ones
+        for (int i = channelCount - 1; assigned < videoCount; i--) {
+            counts[i]++;
+            assigned++;
+        }
+        return counts;
+    }
+
+    /**
+     * @param channelIndex Index of the channel
+     * @return Number of videos of the channel
+     */
+    public int getVideoCount(final int channelIndex) {
+        return videoCounts[channelIndex];
+    }
+
+    /**
+     * Create the channels, not saved yet.
+     *
+     * @return Channels, the first ones having the most videos
+     */
+    public List<Channel> createChannels() {
+        Random random = new Random(seed);
+        List<Channel> channels = new ArrayList<>(channelCount);
+        for (int i = 0; i < channelCount; i++) {
+            Channel channel = new Channel(Feeds.title(random, 1 + random.nextInt(3)),
+                    "UC" + Feeds.ytId(random, 22));
+            channel.setSubscribed(random.nextDouble() < SUBSCRIBED_RATIO);
+            channels.add(channel);
+        }
+        return channels;
+    }
+
+    /**
+     * Create the videos of a channel, not saved yet. Each channel has its own source of
+     * randomness so the videos do not depend on the order the channels are generated in.
+     *
+     * @param channelIndex Index of the channel
+     * @param channel      Channel created at the given index
+     * @return Videos of the channel, newest first
+     */
+    public List<Video> createVideos(final int channelIndex, final Channel channel) {
+        Random random = new Random(seed * 31 + channelIndex);
+        int count = videoCounts[channelIndex];
+        List<Video> videos = new ArrayList<>(count);
+        if (count == 0) {
+            return videos;
+        }
+        // The channel uploaded its videos over one month to ten years
+        long span = TimeUnit.DAYS.toMillis(30 + random.nextInt(3620));
+        double meanGap = (double) span / count;
+        long videoTime = time;
+        for (int i = 0; i < count; i++) {
+            videoTime -= (long) (-Math.log(1 - random.nextDouble()) * meanGap);
+            String ytId = Feeds.ytId(random, 11);
+            // Log-normal duration around ten minutes, between 30 seconds and 4 hours
+            long duration = Math.max(30, Math.min(14_400,
+                    (long) Math.exp(Math.log(600) + random.nextGaussian() * 0.9)));
+            int words = Math.max(2, Math.min(15, 6 + (int) (random.nextGaussian() * 3)));
+            Video video = new Video(Feeds.title(random, words), videoTime / 1000 * 1000,
+                    "https://i.ytimg.com/vi/" + ytId + "/hqdefault.jpg", duration, ytId,
+                    channel);
+            double ageDays = (double) (time - videoTime) / TimeUnit.DAYS.toMillis(1);
+            video.setWatched(random.nextDouble() < 0.98 - 0.6 * Math.exp(-ageDays / 21));
+            if (!video.isWatched() && random.nextDouble() < START_TIME_RATIO) {
+                video.setStartTime(formatStartTime(random.nextInt((int) duration)));
+            }
+            videos.add(video);
+        }
+        return videos;
+    }
+
+    /**
+     * Format a start time as entered in the start time dialog.
+     *
+     * @param seconds Start time in seconds
+     * @return Start time, e.g. 1h35m42s
+     */
+    private static String formatStartTime(final int seconds) {
+        StringBuilder builder = new StringBuilder();
+        if (seconds >= 3600) {
+            builder.append(seconds / 3600).append('h');
+        }
+        return builder.append((seconds % 3600) / 60).append('m')
+                .append(seconds % 60).append('s').toString();
+    }
+
+    /**
+     * Fill the database with the library. The database must be empty.
+     *
+     * @param thumbnails true to write a thumbnail file for each video
+     * @throws IOException The database is not empty or a thumbnail could not be written
+     */
+    public void fillDatabase(final boolean thumbnails) throws IOException {
+        if (Channels.count() > 0) {
+            throw new IOException("The database in " + Config.USER_DIR + " is not empty");
+        }
+        byte[] thumbnail = thumbnails ? createThumbnail() : null;
+        if (thumbnails) {
+            Files.createDirectories(new File(Videos.THUMBNAIL_PATH).toPath());
+        }
+        Box<Video> videoBox = ObjectBox.get().boxFor(Video.class);
+        List<Channel> channels = createChannels();
+        ObjectBox.get().boxFor(Channel.class).put(channels);
+        List<Video> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < channelCount; i++) {
+            batch.addAll(createVideos(i, channels.get(i)));
+            if (batch.size() >= BATCH_SIZE || i == channelCount - 1) {
+                videoBox.put(batch);
+                if (thumbnail != null) {
+                    for (Video video : batch) {
+                        Files.write(video.getThumbnailFile().toPath(), thumbnail);
+                    }
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * @return Thumbnail image, 480x360 like the YouTube ones
+     * @throws IOException The image could not be encoded
+     */
+    static byte[] createThumbnail() throws IOException {
+        BufferedImage image = new BufferedImage(480, 360, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.DARK_GRAY);
+        graphics.fillRect(0, 0, 480, 360);
+        graphics.setColor(Color.LIGHT_GRAY);
+        graphics.fillOval(180, 120, 120, 120);
+        graphics.dispose();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", output);
+        return output.toByteArray();
+    }
+
+    /**
+     * Write the library in the format of the JSON export, one channel at a time.
+     *
+     * @param file File to write to
+     * @throws IOException An error occurred while writing the file
+     */
+    public void writeJson(final File file) throws IOException {
+        Gson gson = new GsonBuilder()
+                .setExclusionStrategies(Json.EXCLUSION_STRATEGY)
+                .create();
+        List<Channel> channels = createChannels();
+        try (Writer writer = new FileWriter(file, StandardCharsets.UTF_8);
+             JsonWriter json = new JsonWriter(writer)) {
+            json.setIndent("  ");
+            json.beginArray();
+            for (int i = 0; i < channelCount; i++) {
+                Channel channel = channels.get(i);
+                json.beginObject();
+                json.name("name").value(channel.getName());
+                json.name("subscribed").value(channel.isSubscribed());
+                json.name("ytId").value(channel.getYtId());
+                json.name("videos").beginArray();
+                for (Video video : createVideos(i, channel)) {
+                    gson.toJson(video, Video.class, json);
+                }
+                json.endArray();
+                json.endObject();
+            }
+            json.endArray();
+        }
+    }
+
+    /**
+     * Write the channels as an OPML subscription list, as exported by YouTube.
+     *
+     * @param file File to write to
+     * @throws IOException An error occurred while writing the file
+     */
+    public void writeOpml(final File file) throws IOException {
+        try (Writer writer = new FileWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("<opml version=\"1.1\">\n<body>\n<outline text=\"YouTube Subscriptions\""
+                    + " title=\"YouTube Subscriptions\">\n");
+            for (Channel channel : createChannels()) {
+                String name = Feeds.escape(channel.getName());
+                writer.write("<outline text=\"" + name + "\" title=\"" + name
+                        + "\" type=\"rss\" xmlUrl=\"" + Channels.BASE_URL + channel.getYtId()
+                        + "\"/>\n");
+            }
+            writer.write("</outline>\n</body>\n</opml>\n");
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package tools;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local stand-in for a WebSub hub, to test the WebSub subscriber end to end without reaching
+ * the real hub.
+ * <ul>
+ * <li>POST / - Subscription request, the intent is verified asynchronously like a real hub</li>
+ * <li>POST /publish?topic= - Deliver the Atom body to the subscribers of the topic, signed
+ * with their secret</li>
+ * <li>GET /subscriptions - List the verified subscriptions</li>
+ * </ul>
+ * Usage: LocalHub [port], then set webSubHub to http://localhost:port/ in the configuration file.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public final class LocalHub {
+
+    /**
+     * Default port.
+     */
+    private static final int DEFAULT_PORT = 8644;
+
+    /**
+     * HTTP client calling the subscribers.
+     */
+    private static final HttpClient CLIENT = HttpClient.newHttpClient();
+
+    /**
+     * Verified subscriptions, mapped by topic.
+     */
+    private final Map<String, List<Subscription>> subscriptions = new ConcurrentHashMap<>();
+
+    /**
+     * Executor verifying the intents.
+     */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    /**
+     * HTTP server.
+     */
+    private final HttpServer server;
+
+    /**
+     * LocalHub constructor.
+     *
+     * @param port Port to listen on
+     * @throws IOException The server could not be bound to the port
+     */
+    public LocalHub(final int port) throws IOException {
+        server = HttpServer.create(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/", this::handle);
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args Arguments: [port]
+     * @throws IOException The server could not be started
+     */
+    public static void main(final String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        LocalHub hub = new LocalHub(port);
+        hub.server.start();
+        System.out.println("Local hub listening on http://localhost:" + port + "/");
+    }
+
+    /**
+     * Handle a request.
+     *
+     * @param exchange Exchange
+     * @throws IOException An error occurred while sending the response
+     */
+    private void handle(final HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String method = exchange.getRequestMethod();
+        if ("POST".equals(method) && "/".equals(path)) {
+            subscribe(exchange);
+        } else if ("POST".equals(method) && "/publish".equals(path)) {
+            publish(exchange);
+        } else if ("GET".equals(method) && "/subscriptions".equals(path)) {
+            StringBuilder builder = new StringBuilder();
+            subscriptions.forEach((topic, list) -> list.forEach(subscription ->
+                    builder.append(topic).append(" -> ").append(subscription.callback)
+                            .append('\n')));
+            send(exchange, 200, builder.toString());
+        } else {
+            send(exchange, 404, "Not found\n");
+        }
+    }
+
+    /**
+     * Handle a subscription request: answer 202 and verify the intent of the subscriber.
+     *
+     * @param exchange Exchange
+     * @throws IOException An error occurred while sending the response
+     */
+    private void subscribe(final HttpExchange exchange) throws IOException {
+        Map<String, String> form = parseForm(new String(readBody(exchange),
+                StandardCharsets.UTF_8));
+        String mode = form.get("hub.mode");
+        String topic = form.get("hub.topic");
+        String callback = form.get("hub.callback");
+        if (mode == null || topic == null || callback == null) {
+            send(exchange, 400, "hub.mode, hub.topic and hub.callback are required\n");
+            return;
+        }
+        send(exchange, 202, "");
+        String lease = form.getOrDefault("hub.lease_seconds", "864000");
+        executor.execute(() -> verify(mode, topic, callback, form.get("hub.secret"), lease));
+    }
+
+    /**
+     * Verify the intent of a subscriber and record the subscription.
+     *
+     * @param mode     Subscribe or unsubscribe
+     * @param topic    Topic
+     * @param callback Callback URL of the subscriber
+     * @param secret   Secret of the subscriber, can be null
+     * @param lease    Lease in seconds
+     */
+    private void verify(final String mode, final String topic, final String callback,
+                        final String secret, final String lease) {
+        String challenge = UUID.randomUUID().toString();
+        String uri = callback + (callback.contains("?") ? "&" : "?")
+                + "hub.mode=" + encode(mode) + "&hub.topic=" + encode(topic)
+                + "&hub.challenge=" + encode(challenge) + "&hub.lease_seconds=" + encode(lease);
+        try {
+            HttpResponse<String> response = CLIENT.send(
+                    HttpRequest.newBuilder(URI.create(uri)).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            boolean confirmed = response.statusCode() / 100 == 2
+                    && challenge.equals(response.body().trim());
+            List<Subscription> list = subscriptions.computeIfAbsent(topic,
+                    t -> new CopyOnWriteArrayList<>());
+            list.removeIf(subscription -> subscription.callback.equals(callback));
+            if (confirmed && "subscribe".equals(mode)) {
+                list.add(new Subscription(callback, secret));
+            }
+            System.out.println(mode + " " + topic + " -> " + callback + ": "
+                    + (confirmed ? "verified" : "refused (" + response.statusCode() + ")"));
+        } catch (IOException e) {
+            System.out.println("Cannot verify " + callback + ": " + e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Deliver the request body to the subscribers of the topic given in the query string.
+     *
+     * @param exchange Exchange
+     * @throws IOException An error occurred while sending the response
+     */
+    private void publish(final HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getRawQuery();
+        String topic = query == null ? null : parseForm(query).get("topic");
+        if (topic == null) {
+            send(exchange, 400, "topic is required\n");
+            return;
+        }
+        byte[] body = readBody(exchange);
+        int delivered = 0;
+        for (Subscription subscription : subscriptions.getOrDefault(topic, List.of())) {
+            try {
+                HttpRequest.Builder request = HttpRequest.newBuilder(
+                        URI.create(subscription.callback))
+                        .header("Content-Type", "application/atom+xml")
+                        .header("Link", "<" + topic + ">; rel=self")
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+                if (subscription.secret != null) {
+                    request.header("X-Hub-Signature", "sha1=" + hmacSha1(subscription.secret,
+                            body));
+                }
+                int code = CLIENT.send(request.build(), HttpResponse.BodyHandlers.discarding())
+                        .statusCode();
+                if (code / 100 == 2) {
+                    delivered++;
+                }
+            } catch (IOException | GeneralSecurityException e) {
+                System.out.println("Cannot deliver to " + subscription.callback + ": " + e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        send(exchange, 200, "{\"delivered\":" + delivered + "}\n");
+    }
+
+    /**
+     * Compute the hexadecimal HMAC-SHA1 of the given data.
+     *
+     * @param key  Key
+     * @param data Data
+     * @return Hexadecimal HMAC
+     * @throws GeneralSecurityException The algorithm is not available
+     */
+    private static String hmacSha1(final String key, final byte[] data)
+            throws GeneralSecurityException {
+        Mac mac = Mac.getInstance("HmacSHA1");
+        mac.init(new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), "HmacSHA1"));
+        StringBuilder builder = new StringBuilder();
+        for (byte b : mac.doFinal(data)) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @param value Value to encode
+     * @return URL encoded value
+     */
+    private static String encode(final String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parse a URL encoded form.
+     *
+     * @param form Form
+     * @return Values mapped by name
+     */
+    private static Map<String, String> parseForm(final String form) {
+        Map<String, String> values = new HashMap<>();
+        for (String pair : form.split("&")) {
+            int index = pair.indexOf('=');
+            if (index > 0) {
+                values.put(URLDecoder.decode(pair.substring(0, index), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(index + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @param exchange Exchange
+     * @return Request body
+     * @throws IOException An error occurred while reading the body
+     */
+    private static byte[] readBody(final HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Send a text response.
+     *
+     * @param exchange Exchange
+     * @param code     Status code
+     * @param text     Text body
+     * @throws IOException An error occurred while sending the response
+     */
+    private static void send(final HttpExchange exchange, final int code, final String text)
+            throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        if (body.length == 0) {
+            exchange.sendResponseHeaders(code, -1);
+            exchange.close();
+            return;
+        }
+        exchange.sendResponseHeaders(code, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Verified subscription.
+     */
+    private static final class Subscription {
+
+        /**
+         * Callback URL of the subscriber.
+         */
+        private final String callback;
+
+        /**
+         * Secret of the subscriber, can be null.
+         */
+        private final String secret;
+
+        /**
+         * Subscription constructor.
+         *
+         * @param callback Callback URL of the subscriber
+         * @param secret   Secret of the subscriber, can be null
+         */
+        private Subscription(final String callback, final String secret) {
+            this.callback = callback;
+            this.secret = secret;
+        }
+    }
+}
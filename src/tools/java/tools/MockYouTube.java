@@ -0,0 +1,394 @@
+package tools;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import service.FeedEntry;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the YouTube services read by the refresh, to test it offline and
+ * deterministically. The content only depends on the ids requested.
+ * <ul>
+ * <li>GET /feeds/videos.xml?channel_id= - Atom feed of the channel, with an ETag</li>
+ * <li>GET /youtube/v3/videos?id=&amp;part=contentDetails - Duration of the video</li>
+ * <li>GET /vi/{id}/hqdefault.jpg - Thumbnail of the video</li>
+ * </ul>
+ * The latency, the share of server errors and the rate limit are configurable. Set channelUrl to {@link #getFeedUrl()} and apiUrl to {@link #getApiUrl()} in
+ * the configuration file to refresh against it.
+ * <p>
+ * Usage: MockYouTube [port]
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public final class MockYouTube {
+
+    /**
+     * Default port.
+     */
+    private static final int DEFAULT_PORT = 8645;
+
+    /**
+     * Number of threads serving the requests, high enough for the latency not to queue them.
+     */
+    private static final int THREAD_COUNT = 64;
+
+    static {
+        // Without it the JDK server delays the small responses by the delayed ACK timeout
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    /**
+     * HTTP server.
+     */
+    private final HttpServer server;
+
+    /**
+     * Executor serving the requests.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Thumbnail served for every video.
+     */
+    private final byte[] thumbnail;
+
+    /**
+     * Number of responses sent, mapped by status code.
+     */
+    private final Map<Integer, AtomicLong> responseCounts = new ConcurrentHashMap<>();
+
+    /**
+     * Mean latency added to each response in milliseconds.
+     */
+    private volatile long latency;
+
+    /**
+     * Share of the requests answered with a 500 error.
+     */
+    private volatile double errorRate;
+
+    /**
+     * Interval in milliseconds between two videos published by each channel, 0 for feeds that
+     * never change.
+     */
+    private volatile long publishInterval;
+
+    /**
+     * Maximum number of requests per second before answering 429, 0 for no limit.
+     */
+    private volatile int requestsPerSecond;
+
+    /**
+     * Second of the current rate limit window.
+     */
+    private long windowSecond;
+
+    /**
+     * Number of requests received in the current rate limit window.
+     */
+    private int windowCount;
+
+    /**
+     * Time the server has been created, origin of the published videos.
+     */
+    private final long startTime = System.currentTimeMillis();
+
+    /**
+     * MockYouTube constructor.
+     *
+     * @param port Port to listen on, 0 for any free port
+     * @throws IOException The server could not be bound to the port
+     */
+    public MockYouTube(final int port) throws IOException {
+        server = HttpServer.create(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        executor = Executors.newFixedThreadPool(THREAD_COUNT, runnable -> {
+            Thread thread = new Thread(runnable, "mock-youtube");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        thumbnail = LibraryGenerator.createThumbnail();
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args Arguments: [port]
+     * @throws IOException The server could not be started
+     */
+    public static void main(final String[] args) throws IOException {
+        MockYouTube mock = new MockYouTube(args.length > 0 ? Integer.parseInt(args[0])
+                : DEFAULT_PORT);
+        mock.start();
+        System.out.println("Mock YouTube listening, channelUrl=" + mock.getFeedUrl()
+                + " apiUrl=" + mock.getApiUrl());
+    }
+
+    /**
+     * Start the server.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stop the server.
+     */
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return Feed URL without the channel id, value of channelUrl
+     */
+    public String getFeedUrl() {
+        return getUrl() + "feeds/videos.xml?channel_id=";
+    }
+
+    /**
+     * @return Data API URL, value of apiUrl
+     */
+    public String getApiUrl() {
+        return getUrl() + "youtube/v3/";
+    }
+
+    /**
+     * @return Base URL of the server, ending with a slash
+     */
+    private String getUrl() {
+        return "http://" + server.getAddress().getAddress().getHostAddress() + ":"
+                + server.getAddress().getPort() + "/";
+    }
+
+    /**
+     * @param latency Mean latency added to each response in milliseconds
+     */
+    public void setLatency(final long latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * @param errorRate Share of the requests answered with a 500 error, between 0 and 1
+     */
+    public void setErrorRate(final double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * @param publishInterval Interval in milliseconds between two videos published by each
+     *                        channel, 0 for feeds that never change
+     */
+    public void setPublishInterval(final long publishInterval) {
+        this.publishInterval = publishInterval;
+    }
+
+    /**
+     * @param requestsPerSecond Maximum number of requests per second before answering 429, 0
+     *                          for no limit
+     */
+    public void setRequestsPerSecond(final int requestsPerSecond) {
+        this.requestsPerSecond = requestsPerSecond;
+    }
+
+    /**
+     * @param code Status code
+     * @return Number of responses sent with the given status code
+     */
+    public long getResponseCount(final int code) {
+        AtomicLong count = responseCounts.get(code);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * Handle a request.
+     *
+     * @param exchange Exchange
+     * @throws IOException An error occurred while sending the response
+     */
+    private void handle(final HttpExchange exchange) throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (latency > 0) {
+            try {
+                // Exponential latency, with the long tail of real servers
+                Thread.sleep((long) (-Math.log(1 - random.nextDouble()) * latency));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        URI uri = exchange.getRequestURI();
+        String path = uri.getPath();
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            send(exchange, 405, null, null);
+        } else if (isRateLimited()) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            send(exchange, 429, null, null);
+        } else if (random.nextDouble() < errorRate) {
+            send(exchange, 500, null, null);
+        } else if ("/feeds/videos.xml".equals(path)) {
+            feed(exchange, query(uri, "channel_id"));
+        } else if ("/youtube/v3/videos".equals(path)) {
+            duration(exchange, query(uri, "id"));
+        } else if (path.startsWith("/vi/")) {
+            send(exchange, 200, "image/jpeg", thumbnail);
+        } else {
+            send(exchange, 404, null, null);
+        }
+    }
+
+    /**
+     * Check whether the request exceeds the rate limit, counted per second.
+     *
+     * @return true if the request should be answered with 429, false otherwise
+     */
+    private synchronized boolean isRateLimited() {
+        if (requestsPerSecond <= 0) {
+            return false;
+        }
+        long second = System.nanoTime() / TimeUnit.SECONDS.toNanos(1);
+        if (second != windowSecond) {
+            windowSecond = second;
+            windowCount = 0;
+        }
+        windowCount++;
+        return windowCount > requestsPerSecond;
+    }
+
+    /**
+     * Send the feed of a channel, the 15 videos published last.
+     *
+     * @param exchange    Exchange
+     * @param channelYtId YT id of the channel
+     * @throws IOException An error occurred while sending the response
+     */
+    private void feed(final HttpExchange exchange, final String channelYtId)
+            throws IOException {
+        if (channelYtId == null || channelYtId.isEmpty()) {
+            send(exchange, 404, null, null);
+            return;
+        }
+        long interval = publishInterval;
+        long published = interval > 0 ? (System.currentTimeMillis() - startTime) / interval : 0;
+        String etag = "\"" + channelYtId + "-" + published + "\"";
+        exchange.getResponseHeaders().set("ETag", etag);
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            send(exchange, 304, null, null);
+            return;
+        }
+        List<FeedEntry> entries = new ArrayList<>(Feeds.ENTRY_COUNT);
+        for (long i = published; i > published - Feeds.ENTRY_COUNT; i--) {
+            // Each video only depends on the channel and its position
+            Random random = new Random(channelYtId.hashCode() * 31L + i);
+            String ytId = Feeds.ytId(random, 11);
+            long time = (startTime + i * Math.max(interval, TimeUnit.HOURS.toMillis(1)))
+                    / 1000 * 1000;
+            entries.add(new FeedEntry(ytId, channelYtId, Feeds.title(random,
+                    4 + random.nextInt(10)), "https://www.youtube.com/watch?v=" + ytId, time,
+                    getUrl() + "vi/" + ytId + "/hqdefault.jpg"));
+        }
+        send(exchange, 200, "application/atom+xml; charset=UTF-8",
+                Feeds.atom(channelYtId, "Channel " + channelYtId, entries)
+                        .getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Send the duration of a video, as a videoListResponse with the contentDetails part.
+     *
+     * @param exchange Exchange
+     * @param ytId     YT id of the video
+     * @throws IOException An error occurred while sending the response
+     */
+    private void duration(final HttpExchange exchange, final String ytId) throws IOException {
+        if (ytId == null || ytId.isEmpty()) {
+            send(exchange, 400, null, null);
+            return;
+        }
+        int seconds = 30 + Math.floorMod(ytId.hashCode(), 3600);
+        String body = "{\n"
+                + "  \"kind\": \"youtube#videoListResponse\",\n"
+                + "  \"items\": [\n"
+                + "    {\n"
+                + "      \"kind\": \"youtube#video\",\n"
+                + "      \"id\": \"" + ytId + "\",\n"
+                + "      \"contentDetails\": {\n"
+                + "        \"duration\": \"PT" + seconds / 3600 + "H" + (seconds % 3600) / 60
+                + "M" + seconds % 60 + "S\",\n"
+                + "        \"dimension\": \"2d\",\n"
+                + "        \"definition\": \"hd\"\n"
+                + "      }\n"
+                + "    }\n"
+                + "  ],\n"
+                + "  \"pageInfo\": {\n"
+                + "    \"totalResults\": 1,\n"
+                + "    \"resultsPerPage\": 1\n"
+                + "  }\n"
+                + "}\n";
+        send(exchange, 200, "application/json; charset=UTF-8",
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Get a query parameter, the values of the ids do not need to be decoded.
+     *
+     * @param uri  Request URI
+     * @param name Name of the parameter
+     * @return Value, null if the parameter is missing
+     */
+    private static String query(final URI uri, final String name) {
+        String query = uri.getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            if (pair.startsWith(name + "=")) {
+                return pair.substring(name.length() + 1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Send a response and count it.
+     *
+     * @param exchange Exchange
+     * @param code     Status code
+     * @param type     Content type, null without body
+     * @param body     Body, null without body
+     * @throws IOException An error occurred while sending the response
+     */
+    private void send(final HttpExchange exchange, final int code, final String type,
+                      final byte[] body) throws IOException {
+        responseCounts.computeIfAbsent(code, c -> new AtomicLong()).incrementAndGet();
+        if (body == null || body.length == 0) {
+            exchange.sendResponseHeaders(code, -1);
+            exchange.close();
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", type);
+        exchange.sendResponseHeaders(code, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
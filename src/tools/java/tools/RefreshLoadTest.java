@@ -0,0 +1,188 @@
+package tools;
+
+import config.Config;
+import database.ObjectBox;
+import metrics.Histogram;
+import metrics.Metrics;
+import model.Channel;
+import model.Video;
+import service.RefreshSummary;
+import service.Refresher;
+import utils.Channels;
+import utils.Videos;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Run the refresh pipeline against a {@link MockYouTube} server with an increasing number of
+ * threads, and report its throughput and the latency of the channel refreshes. Each run starts
+ * from channels without videos, so it reads every feed, looks up every duration and downloads
+ * every thumbnail.
+ * <p>
+ * Usage: RefreshLoadTest [--channels n] [--threads 1,2,4,...] [--latency ms] [--error-rate r]
+ * [--server-rps n] [--client-rps n] [--seed n]
+ * <p>
+ * The database of the user directory must be empty, a temporary directory is used unless
+ * -Dytsubscriber.dir is set.
+ *
+ * @author Alkisum
+ * @version 4.6
+ * @since 4.6
+ */
+public final class RefreshLoadTest {
+
+    /**
+     * RefreshLoadTest constructor.
+     */
+    private RefreshLoadTest() {
+
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args Arguments, see the class description
+     * @throws Exception An error occurred while running the refreshes
+     */
+    public static void main(final String[] args) throws Exception {
+        // The constant is inlined, so Config is not loaded before the property is set
+        if (System.getProperty(Config.USER_DIR_PROPERTY) == null) {
+            System.setProperty(Config.USER_DIR_PROPERTY,
+                    Files.createTempDirectory("ytsubscriber-load").toString());
+        }
+
+        int channelCount = 200;
+        String[] threadCounts = {"1", "2", "4", "8", "16"};
+        long latency = 50;
+        double errorRate = 0;
+        int serverRps = 0;
+        int clientRps = 1000;
+        long seed = 42;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--channels":
+                    channelCount = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threadCounts = args[++i].split(",");
+                    break;
+                case "--latency":
+                    latency = Long.parseLong(args[++i]);
+                    break;
+                case "--error-rate":
+                    errorRate = Double.parseDouble(args[++i]);
+                    break;
+                case "--server-rps":
+                    serverRps = Integer.parseInt(args[++i]);
+                    break;
+                case "--client-rps":
+                    clientRps = Integer.parseInt(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+
+        MockYouTube mock = new MockYouTube(0);
+        mock.setLatency(latency);
+        mock.setErrorRate(errorRate);
+        mock.setRequestsPerSecond(serverRps);
+        mock.start();
+        try {
+            // The rate limiters read their rate when they are created, before the first request
+            Config.setValue(Config.PROP_CHANNEL_URL_KEY, mock.getFeedUrl());
+            Config.setValue(Config.PROP_API_URL_KEY, mock.getApiUrl());
+            Config.setValue(Config.PROP_API_KEY, "mock");
+            Config.setValue(Config.PROP_REQUESTS_PER_SECOND_KEY, String.valueOf(clientRps));
+            Config.removeValue(Config.PROP_REFRESH_CHECKPOINT_KEY);
+
+            if (Channels.count() > 0) {
+                throw new IOException("The database in " + Config.USER_DIR + " is not empty");
+            }
+            List<Channel> channels = new LibraryGenerator(seed, channelCount, 0)
+                    .createChannels();
+            for (Channel channel : channels) {
+                channel.setSubscribed(true);
+            }
+            Channels.save(channels.toArray(new Channel[0]));
+            Files.createDirectories(new File(Videos.THUMBNAIL_PATH).toPath());
+
+            System.out.println("Refreshing " + channelCount + " channels from "
+                    + mock.getFeedUrl() + " in " + Config.USER_DIR);
+            System.out.println("threads  duration(s)  channels/s  videos/s"
+                    + "  p50(ms)  p90(ms)  p99(ms)  max(ms)  failed");
+            for (String threadCount : threadCounts) {
+                run(Integer.parseInt(threadCount.trim()));
+            }
+            System.out.println("Responses: 200=" + mock.getResponseCount(200)
+                    + " 429=" + mock.getResponseCount(429)
+                    + " 500=" + mock.getResponseCount(500));
+        } finally {
+            mock.stop();
+            ObjectBox.get().close();
+        }
+    }
+
+    /**
+     * Refresh all the channels from scratch with the given number of threads and print the
+     * results.
+     *
+     * @param threadCount Number of channel feeds read in parallel
+     * @throws Exception An error occurred while running the refresh
+     */
+    private static void run(final int threadCount) throws Exception {
+        // Start from channels without videos and with their feed never read
+        Videos.delete(Videos.getAll().toArray(new Video[0]));
+        List<Channel> channels = Channels.getAll();
+        for (Channel channel : channels) {
+            channel.setFeedHash(0);
+            channel.setFailureCount(0);
+        }
+        Channels.save(channels.toArray(new Channel[0]));
+
+        Histogram latency = Metrics.timer("load_test_channel_seconds",
+                "Time to refresh a channel, from its feed request to its videos committed",
+                "threads", String.valueOf(threadCount));
+        ThreadLocal<Long> channelStart = new ThreadLocal<>();
+        Refresher refresher = new Refresher(channels, new Refresher.Listener() {
+            @Override
+            public void onProgress(final int done, final int total, final String message) {
+                // Called before a channel is read, from the thread reading it
+                channelStart.set(System.nanoTime());
+            }
+
+            @Override
+            public void onChannelRefreshed(final Channel channel, final List<Video> newVideos) {
+                latency.recordSince(channelStart.get());
+            }
+        });
+        refresher.setThreadCount(threadCount);
+
+        long start = System.nanoTime();
+        RefreshSummary summary = refresher.run();
+        double seconds = (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+        System.out.println(String.format(Locale.ROOT,
+                "%7d  %11.2f  %10.1f  %8.1f  %7.1f  %7.1f  %7.1f  %7.1f  %6d",
+                threadCount, seconds, summary.getReadChannelCount() / seconds,
+                summary.getNewVideoCount() / seconds, millis(latency, 50),
+                millis(latency, 90), millis(latency, 99), latency.getMax() / 1e6,
+                summary.getFailedChannelCount()));
+    }
+
+    /**
+     * @param histogram  Histogram of durations in nanoseconds
+     * @param percentile Percentile, between 0 and 100
+     * @return Duration at the given percentile in milliseconds
+     */
+    private static double millis(final Histogram histogram, final double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1e6;
+    }
+}